@@ -1,2 +1,3 @@
 mvn clean install
-mvn source:jar install
\ No newline at end of file
+mvn source:jar install
+mvn -f swstate-codegen/pom.xml clean install
\ No newline at end of file
@@ -1 +1,2 @@
-mvn clean deploy -P release -Dmaven.test.skip=true
\ No newline at end of file
+mvn clean deploy -P release -Dmaven.test.skip=true
+mvn -f swstate-codegen/pom.xml clean deploy -P release -Dmaven.test.skip=true
\ No newline at end of file
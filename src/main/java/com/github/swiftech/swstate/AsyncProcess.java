@@ -0,0 +1,46 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A process with non-blocking side effects, which completes when the returned stage completes.
+ * It's chained without blocking by {@code postAsync()} and {@code acceptAsync()} of {@link StateMachine},
+ * {@link AsyncStateMachine}, and in a {@link ProcessGroup}, otherwise it's waited for completion like other processes.
+ *
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see StateBuilder#inAsync(AsyncProcess)
+ * @see StateBuilder#outAsync(AsyncProcess)
+ * @since 2.3
+ */
+@FunctionalInterface
+public interface AsyncProcess<P extends Serializable> extends Process<P> {
+
+    /**
+     * Start the process with a payload.
+     *
+     * @param payload
+     * @return completes when the process finishes.
+     */
+    CompletionStage<Void> executeAsync(P payload);
+
+    /**
+     * Execute the process and wait for it to finish.
+     *
+     * @param payload
+     */
+    @Override
+    default void execute(P payload) {
+        try {
+            this.executeAsync(payload).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new StateException(cause);
+        }
+    }
+}
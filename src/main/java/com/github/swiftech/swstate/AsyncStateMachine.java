@@ -0,0 +1,180 @@
+package com.github.swiftech.swstate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * State machine which reads and writes states by {@link AsyncStateProvider} without blocking.
+ * The state is read, the route is checked and the processes are executed by the executor,
+ * and then the state is written by compare-and-set, so no transition is lost by concurrent writes.
+ * Note that the processes are executed before the state is written, so the processes of a transition which ends in
+ * {@link TransitionResult#CONFLICT} may have been executed, if another transition writes the state in between.
+ * The processes must be idempotent or tolerate it, or the transitions of an id must be serialized by the caller.
+ * <p>
+ * Unlike {@link StateMachine}, the results are returned as {@link TransitionResult} instead of exceptions,
+ * and lazy start, outbox and event store are not supported.
+ * <p>
+ * Usage:
+ * <pre>
+ *     AsyncStateMachine&lt;String, String&gt; sm = new AsyncStateMachine&lt;&gt;(stateBuilder, asyncStateProvider);
+ *     sm.start("order-1", null)
+ *       .thenCompose(result -&gt; sm.post("order-1", "Payed", payload))
+ *       .thenAccept(result -&gt; ...);
+ * </pre>
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class AsyncStateMachine<S extends Serializable, P extends Serializable> {
+
+    private final Logger log = LoggerFactory.getLogger(AsyncStateMachine.class);
+
+    private final StateTransition<S, P> stateTransition;
+
+    private final AsyncStateProvider<S> stateProvider;
+
+    private volatile Executor executor = StateTransition.DEFAULT_PROCESS_EXECUTOR;
+
+    public AsyncStateMachine(StateBuilder<S, P> stateBuilder, AsyncStateProvider<S> stateProvider) {
+        this(new StateTransition<>(stateBuilder), stateProvider);
+    }
+
+    public AsyncStateMachine(StateTransition<S, P> stateTransition, AsyncStateProvider<S> stateProvider) {
+        this.stateTransition = stateTransition;
+        this.stateProvider = stateProvider;
+    }
+
+    /**
+     * Get current state for {@code id}.
+     *
+     * @param id
+     * @return completes with null if not started.
+     */
+    public CompletionStage<S> getCurrentState(String id) {
+        return stateProvider.getCurrentState(id);
+    }
+
+    /**
+     * Start a new circulation from initial state for {@code id}.
+     *
+     * @param id
+     * @param payload
+     * @return completes with {@code CONFLICT} if already started.
+     */
+    public CompletionStage<TransitionResult> start(String id, P payload) {
+        S initialState;
+        try {
+            initialState = stateTransition.getInitialState();
+        } catch (StateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return stateProvider.getCurrentState(id).thenComposeAsync(currentState -> {
+            if (currentState != null) {
+                return CompletableFuture.completedFuture(TransitionResult.CONFLICT);
+            }
+            return this.transit(id, null, initialState, payload);
+        }, executor);
+    }
+
+    /**
+     * Post current state to be provided state with payload for {@code id}.
+     *
+     * @param id
+     * @param toState
+     * @param payload
+     * @return
+     */
+    public CompletionStage<TransitionResult> post(String id, S toState, P payload) {
+        return stateProvider.getCurrentState(id).thenComposeAsync(currentState -> {
+            if (currentState == null) {
+                return CompletableFuture.completedFuture(TransitionResult.NOT_STARTED);
+            }
+            if (!stateTransition.hasRoute(currentState, toState)) {
+                return CompletableFuture.completedFuture(TransitionResult.NO_ROUTE);
+            }
+            if (!stateTransition.checkGuard(currentState, toState, payload)) {
+                return CompletableFuture.completedFuture(TransitionResult.REJECTED);
+            }
+            return this.transit(id, currentState, toState, payload);
+        }, executor);
+    }
+
+    /**
+     * Accept data with payload from the client to trigger state transition for {@code id}.
+     *
+     * @param id
+     * @param data
+     * @param payload
+     * @return
+     */
+    public CompletionStage<TransitionResult> accept(String id, Object data, P payload) {
+        return stateProvider.getCurrentState(id).thenComposeAsync(currentState -> {
+            if (currentState == null) {
+                return CompletableFuture.completedFuture(TransitionResult.NOT_STARTED);
+            }
+            S stateTo = stateTransition.resolveTrigger(currentState, data, payload);
+            if (stateTo == null) {
+                return CompletableFuture.completedFuture(TransitionResult.NO_TRIGGER);
+            }
+            return this.transit(id, currentState, stateTo, payload);
+        }, executor);
+    }
+
+    /**
+     * Execute the processes in the executor, and write the state by compare-and-set, which detects the state
+     * changed concurrently since it's read.
+     * In silent mode, the state is written even if any process fails.
+     */
+    private CompletionStage<TransitionResult> transit(String id, S fromState, S toState, P payload) {
+        return stateTransition.tryTransitAsync(fromState, toState, payload).thenCompose(result -> {
+            if (!result.isWritable(stateTransition.isSilent())) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return stateProvider.compareAndSet(id, fromState, toState).thenApply(isSet -> {
+                if (!isSet) {
+                    log.warn("State of '%s' is changed concurrently from '%s' after the processes are executed"
+                            .formatted(id, fromState));
+                    return TransitionResult.CONFLICT;
+                }
+                return result;
+            });
+        });
+    }
+
+    /**
+     * Set whether throws exception when an internal exception occurs.
+     *
+     * @param silent
+     */
+    public void setSilent(boolean silent) {
+        this.stateTransition.setSilent(silent);
+    }
+
+    /**
+     * Handler to be notified when an internal exception occurs.
+     *
+     * @param exceptionHandler
+     */
+    public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+        this.stateTransition.setExceptionHandler(exceptionHandler);
+    }
+
+    /**
+     * Set executor to execute the IN/OUT processes of transitions, default is the same dedicated pool of daemon threads
+     * as the default process executor of {@link StateTransition}, since the processes may block.
+     * {@link AsyncProcess} is started by the executor but doesn't occupy it while waiting.
+     * Use {@code Runnable::run} to execute them in the thread which completes the state provider, if they never block.
+     *
+     * @param executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking state provider for {@link AsyncStateMachine}, to store and retrieve states by asynchronous storage clients.
+ * <p>
+ * Use {@code fromSync()} to adapt a {@link StateProvider}, and {@code toSync()} to use it as a {@link StateProvider}.
+ *
+ * @param <S> type of state object
+ * @author swiftech
+ * @since 2.3
+ */
+public interface AsyncStateProvider<S extends Serializable> {
+
+    /**
+     * Get current state
+     *
+     * @param id
+     * @return completes with null if no state stored.
+     */
+    CompletionStage<S> getCurrentState(String id);
+
+    /**
+     * Set the state only if the current state is the expected state.
+     *
+     * @param id
+     * @param expected null if no state stored.
+     * @param state
+     * @return completes with false if the current state is not the expected state.
+     */
+    CompletionStage<Boolean> compareAndSet(String id, S expected, S state);
+
+    /**
+     * Set state no matter what the current state is.
+     *
+     * @param id
+     * @param state
+     * @return
+     */
+    CompletionStage<Void> setState(String id, S state);
+
+    /**
+     * Adapt the synchronous state provider, whose methods are called by the executor.
+     *
+     * @param stateProvider
+     * @param executor      executor to call blocking methods of the state provider.
+     * @param <S>
+     * @return
+     */
+    static <S extends Serializable> AsyncStateProvider<S> fromSync(StateProvider<S> stateProvider, Executor executor) {
+        return new AsyncStateProviderAdapter<>(stateProvider, executor);
+    }
+
+    /**
+     * Adapt as a synchronous state provider, whose methods block until this provider completes.
+     *
+     * @return
+     */
+    default StateProvider<S> toSync() {
+        return new BlockingStateProvider<>(this);
+    }
+}
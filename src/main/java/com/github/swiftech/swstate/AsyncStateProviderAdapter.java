@@ -0,0 +1,60 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapts a synchronous {@link StateProvider} as {@link AsyncStateProvider} by calling it with an executor.
+ * The compare-and-set is atomic only among the calls through this adapter.
+ *
+ * @param <S> type of state object
+ * @author swiftech
+ * @since 2.3
+ */
+class AsyncStateProviderAdapter<S extends Serializable> implements AsyncStateProvider<S> {
+
+    private final StateProvider<S> stateProvider;
+
+    private final Executor executor;
+
+    AsyncStateProviderAdapter(StateProvider<S> stateProvider, Executor executor) {
+        this.stateProvider = stateProvider;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletionStage<S> getCurrentState(String id) {
+        return CompletableFuture.supplyAsync(() -> stateProvider.getCurrentState(id), executor);
+    }
+
+    @Override
+    public CompletionStage<Boolean> compareAndSet(String id, S expected, S state) {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (this) {
+                if (!Objects.equals(stateProvider.getCurrentState(id), expected)) {
+                    return false;
+                }
+                if (expected == null) stateProvider.initializeState(id, state);
+                else stateProvider.setState(id, state);
+                return true;
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletionStage<Void> setState(String id, S state) {
+        return CompletableFuture.runAsync(() -> {
+            synchronized (this) {
+                stateProvider.setState(id, state);
+            }
+        }, executor);
+    }
+
+    @Override
+    public StateProvider<S> toSync() {
+        return stateProvider;
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Adapts an {@link AsyncStateProvider} as synchronous {@link StateProvider}, which blocks until it completes.
+ *
+ * @param <S> type of state object
+ * @author swiftech
+ * @since 2.3
+ */
+class BlockingStateProvider<S extends Serializable> implements StateProvider<S> {
+
+    private final AsyncStateProvider<S> asyncStateProvider;
+
+    BlockingStateProvider(AsyncStateProvider<S> asyncStateProvider) {
+        this.asyncStateProvider = asyncStateProvider;
+    }
+
+    @Override
+    public S getCurrentState(String id) {
+        return join(asyncStateProvider.getCurrentState(id));
+    }
+
+    @Override
+    public void initializeState(String id, S state) {
+        join(asyncStateProvider.setState(id, state));
+    }
+
+    @Override
+    public void setState(String id, S state) {
+        join(asyncStateProvider.setState(id, state));
+    }
+
+    @Override
+    public List<String> compareAndSetStates(Map<String, S> expectedStates, S state) {
+        List<String> setIds = new ArrayList<>(expectedStates.size());
+        expectedStates.forEach((id, expected) -> {
+            if (join(asyncStateProvider.compareAndSet(id, expected, state))) {
+                setIds.add(id);
+            }
+        });
+        return setIds;
+    }
+
+    @Override
+    public boolean isState(String id, S state) {
+        return Objects.equals(this.getCurrentState(id), state);
+    }
+
+    @Override
+    public boolean isStateIn(String id, S... states) {
+        S currentState = this.getCurrentState(id);
+        for (S state : states) {
+            if (Objects.equals(currentState, state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new StateException(cause);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.swiftech.swstate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scalable bloom filter of ids, which never answers false for an added id.
+ * When the last segment is full, a new segment with double capacity and half false positive rate is added,
+ * so the total false positive rate stays under twice the rate of the first segment however many ids are added.
+ * Ids are added and tested without locks. An id which might be contained already is not added again,
+ * so writing the same ids repeatedly doesn't fill the filter.
+ *
+ * @author swiftech
+ * @since 2.3
+ */
+class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    BloomFilter(int expectedIds, double falsePositiveRate) {
+        if (expectedIds <= 0) {
+            throw new IllegalArgumentException("expected ids must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("false positive rate must be in (0, 1)");
+        }
+        segments.add(new Segment(expectedIds, falsePositiveRate / 2));
+    }
+
+    void add(String id) {
+        long hash = hash(id);
+        if (this.mightContain(hash)) {
+            return;
+        }
+        Segment last = segments.get(segments.size() - 1);
+        if (last.count.get() >= last.capacity) {
+            last = this.grow(last);
+        }
+        last.add(hash);
+    }
+
+    private synchronized Segment grow(Segment full) {
+        Segment last = segments.get(segments.size() - 1);
+        if (last == full) {
+            last = new Segment(full.capacity * 2L, full.falsePositiveRate / 2);
+            segments.add(last);
+        }
+        return last;
+    }
+
+    /**
+     * @param id
+     * @return false if the id is definitely not added.
+     */
+    boolean mightContain(String id) {
+        return this.mightContain(hash(id));
+    }
+
+    private boolean mightContain(long hash) {
+        for (Segment segment : segments) {
+            if (segment.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 64-bit FNV-1a of the chars, finalized by the mixer of MurmurHash3 to spread the bits.
+     */
+    private static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static class Segment {
+
+        private final int capacity;
+
+        private final double falsePositiveRate;
+
+        private final int hashCount;
+
+        private final long bitCount;
+
+        private final AtomicLongArray bits;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Segment(long capacity, double falsePositiveRate) {
+            this.capacity = (int) Math.min(capacity, Integer.MAX_VALUE);
+            this.falsePositiveRate = falsePositiveRate;
+            long words = Math.max(1, (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (LN2 * LN2) / 64));
+            this.bits = new AtomicLongArray((int) Math.min(words, Integer.MAX_VALUE - 8));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.capacity * LN2));
+        }
+
+        private void add(long hash) {
+            // double hashing by the two halves of the hash.
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                while (((current = bits.get(word)) & mask) == 0) {
+                    if (bits.compareAndSet(word, current, current | mask)) break;
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * A process bounded by a timeout and a circuit breaker, which are enforced by {@link StateTransition}.
+ * A process with timeout is executed by the process executor, and the transition stops waiting for it when timed out.
+ *
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see StateBuilder#in(Process, Duration, CircuitBreaker)
+ * @see StateBuilder#out(Process, Duration, CircuitBreaker)
+ * @since 2.3
+ */
+public class BoundedProcess<P extends Serializable> implements Process<P> {
+
+    private final Process<P> process;
+
+    private final Duration timeout;
+
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * @param process
+     * @param timeout        null for no timeout.
+     * @param circuitBreaker null for no circuit breaker.
+     */
+    public BoundedProcess(Process<P> process, Duration timeout, CircuitBreaker circuitBreaker) {
+        this.process = process;
+        this.timeout = timeout;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Execute the process without bounds, only if this process is executed out of {@link StateTransition}.
+     *
+     * @param payload
+     */
+    @Override
+    public void execute(P payload) {
+        process.execute(payload);
+    }
+
+    public Process<P> getProcess() {
+        return process;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.swiftech.swstate;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToIntFunction;
+
+/**
+ * Splits ids into batches and transits them by fork-join tasks, with throttling and progress reporting.
+ *
+ * @author swiftech
+ * @see Parallelism
+ * @since 2.3
+ */
+class BulkTransition {
+
+    private final Parallelism parallelism;
+
+    private final long total;
+
+    private final LongAdder done = new LongAdder();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    // the earliest time in nanoseconds for the next batch to start, only for throttling.
+    private final AtomicLong nextStartTime = new AtomicLong(System.nanoTime());
+
+    BulkTransition(Parallelism parallelism, long total) {
+        this.parallelism = parallelism;
+        this.total = total;
+    }
+
+    /**
+     * @param ids
+     * @param batchTransition transits a batch of ids and returns how many are transited.
+     * @return how many ids are transited.
+     */
+    long run(List<String> ids, ToIntFunction<List<String>> batchTransition) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism.getParallelism());
+        try {
+            pool.invoke(new BatchTask(ids, batchTransition));
+        } finally {
+            pool.shutdown();
+        }
+        return succeeded.sum();
+    }
+
+    private void throttle(int count) {
+        int rate = parallelism.getMaxTransitionsPerSecond();
+        if (rate <= 0) {
+            return;
+        }
+        long cost = count * TimeUnit.SECONDS.toNanos(1) / rate;
+        long now = System.nanoTime();
+        long start = nextStartTime.getAndUpdate(prev -> Math.max(prev, now) + cost);
+        long wait = start - now;
+        while (wait > 0) {
+            LockSupport.parkNanos(wait);
+            wait = start - System.nanoTime();
+        }
+    }
+
+    private class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> ids;
+
+        private final ToIntFunction<List<String>> batchTransition;
+
+        private BatchTask(List<String> ids, ToIntFunction<List<String>> batchTransition) {
+            this.ids = ids;
+            this.batchTransition = batchTransition;
+        }
+
+        @Override
+        protected void compute() {
+            if (ids.size() > parallelism.getBatchSize()) {
+                int middle = ids.size() / 2;
+                invokeAll(new BatchTask(ids.subList(0, middle), batchTransition),
+                        new BatchTask(ids.subList(middle, ids.size()), batchTransition));
+                return;
+            }
+            throttle(ids.size());
+            succeeded.add(batchTransition.applyAsInt(ids));
+            done.add(ids.size());
+            Parallelism.ProgressListener listener = parallelism.getProgressListener();
+            if (listener != null) {
+                listener.onProgress(done.sum(), total);
+            }
+        }
+    }
+}
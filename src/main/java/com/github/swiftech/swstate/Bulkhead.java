@@ -0,0 +1,222 @@
+package com.github.swiftech.swstate;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits concurrent transitions into a state, which is a lock-free semaphore with a queue of waiters.
+ * A permit is acquired before a transition into the state starts, and released after all its processes finish.
+ * The queue can be bounded by length and wait time, the transitions beyond them are rejected.
+ *
+ * @author swiftech
+ * @see StateBuilder#maxConcurrency(int, Policy)
+ * @since 2.3
+ */
+public class Bulkhead {
+
+    /**
+     * What to do with a transition if the max concurrency is reached.
+     */
+    public enum Policy {
+        /**
+         * Wait for a permit, transitions are admitted in the order of arrival,
+         * and rejected if the queue is full or they have waited too long.
+         */
+        QUEUE,
+        /**
+         * Reject the transition.
+         */
+        REJECT
+    }
+
+    private static final CompletableFuture<Boolean> ADMITTED = CompletableFuture.completedFuture(true);
+
+    private static final CompletableFuture<Boolean> REJECTED = CompletableFuture.completedFuture(false);
+
+    private final int maxConcurrency;
+
+    private final Policy policy;
+
+    private final int maxQueueLength;
+
+    // null for no limit.
+    private final Duration maxWait;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Queue<CompletableFuture<Boolean>> waiters = new ConcurrentLinkedQueue<>();
+
+    // since the size of the concurrent queue is not constant time.
+    private final AtomicInteger queueLength = new AtomicInteger();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public Bulkhead(int maxConcurrency, Policy policy) {
+        this(maxConcurrency, policy, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param maxConcurrency
+     * @param policy
+     * @param maxQueueLength max transitions waiting in the queue, the transitions beyond are rejected.
+     * @param maxWait        max time to wait in the queue before rejected, null for no limit.
+     */
+    public Bulkhead(int maxConcurrency, Policy policy, int maxQueueLength, Duration maxWait) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("max concurrency must be positive");
+        }
+        if (maxQueueLength < 0) {
+            throw new IllegalArgumentException("max queue length must not be negative");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.policy = policy;
+        this.maxQueueLength = maxQueueLength;
+        this.maxWait = maxWait;
+    }
+
+    private static boolean tryIncrement(AtomicInteger counter, int max) {
+        for (; ; ) {
+            int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean tryAcquire() {
+        return tryIncrement(inFlight, maxConcurrency);
+    }
+
+    /**
+     * Acquire a permit, the returned future is completed by the thread releasing the permit if queued.
+     */
+    private CompletableFuture<Boolean> acquirePermit() {
+        if (this.tryAcquire()) {
+            return ADMITTED;
+        }
+        if (policy == Policy.REJECT || !tryIncrement(queueLength, maxQueueLength)) {
+            rejectedCount.increment();
+            return REJECTED;
+        }
+        queuedCount.increment();
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        if (maxWait != null) {
+            // the waiter is completed by either the timeout or the release which removes it from the queue.
+            CompletableFuture.delayedExecutor(maxWait.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (waiters.remove(waiter)) {
+                    queueLength.decrementAndGet();
+                    rejectedCount.increment();
+                    waiter.complete(false);
+                }
+            });
+        }
+        // a permit may be released before the waiter is added, hand it to the first waiter.
+        if (this.tryAcquire()) {
+            this.release();
+        }
+        return waiter;
+    }
+
+    /**
+     * Acquire a permit without blocking.
+     *
+     * @param executor to resume the transition admitted from the queue, instead of the thread releasing the permit.
+     * @return completes with true when a permit is acquired, or false if rejected.
+     */
+    CompletableFuture<Boolean> acquireAsync(Executor executor) {
+        CompletableFuture<Boolean> permit = this.acquirePermit();
+        return permit.isDone() ? permit : permit.thenApplyAsync(isAdmitted -> isAdmitted, executor);
+    }
+
+    /**
+     * Acquire a permit, wait for it if the policy is {@code QUEUE}.
+     *
+     * @return false if rejected.
+     */
+    boolean acquire() {
+        return this.acquirePermit().join();
+    }
+
+    /**
+     * Release the permit, which is handed to the first waiter if any.
+     */
+    void release() {
+        for (; ; ) {
+            CompletableFuture<Boolean> waiter = waiters.poll();
+            if (waiter != null) {
+                queueLength.decrementAndGet();
+                waiter.complete(true);
+                return;
+            }
+            inFlight.decrementAndGet();
+            // a waiter may be added after polled, take the permit back to hand it over.
+            if (waiters.isEmpty() || !this.tryAcquire()) {
+                return;
+            }
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * How many transitions are in progress, including the ones admitted from the queue.
+     *
+     * @return
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * How many transitions are waiting in the queue now.
+     *
+     * @return
+     */
+    public int getQueueLength() {
+        return queueLength.get();
+    }
+
+    /**
+     * How many transitions have been queued.
+     *
+     * @return
+     */
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    /**
+     * How many transitions have been rejected, including the ones rejected by the queue.
+     *
+     * @return
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
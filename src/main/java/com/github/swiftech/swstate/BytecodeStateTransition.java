@@ -0,0 +1,112 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.github.swiftech.swstate.Mapping.StateDirection;
+
+/**
+ * State transition which checks routes and resolves triggers by a {@link Dispatcher} generated at runtime,
+ * the processes and the boundaries of hierarchical states are looked up by state indexes in arrays.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see StateBuilder#compileToBytecode()
+ * @since 2.3
+ */
+class BytecodeStateTransition<S extends Serializable, P extends Serializable> extends StateTransition<S, P> {
+
+    private final StateIndex<S> stateIndex;
+
+    private final Dispatcher dispatcher;
+
+    // state index -> IN processes
+    private final List<Process<P>>[] inProcesses;
+
+    // state index -> OUT processes
+    private final List<Process<P>>[] outProcesses;
+
+    // from index * size + to index -> boundary, null if no hierarchical states.
+    private final Boundary<S>[] boundaries;
+
+    @SuppressWarnings("unchecked")
+    BytecodeStateTransition(StateBuilder<S, P> stateBuilder) {
+        super(stateBuilder);
+        List<S> states = new ArrayList<>();
+        Set<S> guardedStates = new HashSet<>();
+        actionMap.forEach((from, toMap) -> {
+            states.add(from);
+            states.addAll(toMap.keySet());
+            if (toMap.values().stream().anyMatch(action -> action instanceof GuardedAction)) {
+                guardedStates.add(from);
+            }
+        });
+        states.addAll(stateMapping.getStateMap().keySet());
+        this.stateIndex = new StateIndex<>(states);
+        this.dispatcher = new DispatcherGenerator<>(stateIndex, actionMap, triggerMap, guardedStates).generate();
+
+        int size = stateIndex.size();
+        this.inProcesses = (List<Process<P>>[]) new List<?>[size];
+        this.outProcesses = (List<Process<P>>[]) new List<?>[size];
+        for (int i = StateIndex.NULL_INDEX + 1; i < size; i++) {
+            inProcesses[i] = super.getProcesses(stateIndex.stateOf(i), StateDirection.IN);
+            outProcesses[i] = super.getProcesses(stateIndex.stateOf(i), StateDirection.OUT);
+        }
+        Boundary<S>[] boundaries = (Boundary<S>[]) new Boundary<?>[size * size];
+        boolean hasBoundaries = false;
+        for (S from : actionMap.keySet()) {
+            for (S to : actionMap.get(from).keySet()) {
+                Boundary<S> boundary = super.getBoundary(from, to);
+                if (boundary != null) {
+                    boundaries[stateIndex.indexOf(from) * size + stateIndex.indexOf(to)] = boundary;
+                    hasBoundaries = true;
+                }
+            }
+        }
+        this.boundaries = hasBoundaries ? boundaries : null;
+    }
+
+    @Override
+    public boolean hasRoute(S stateFrom, S stateTo) {
+        return dispatcher.hasRoute(stateIndex.indexOf(stateFrom), stateIndex.indexOf(stateTo));
+    }
+
+    @Override
+    public S resolveTrigger(S from, Object data, P payload) {
+        int to = dispatcher.resolve(stateIndex.indexOf(from), data);
+        if (to == Dispatcher.FALLBACK) {
+            return super.resolveTrigger(from, data, payload);
+        }
+        return to == Dispatcher.NONE ? null : stateIndex.stateOf(to);
+    }
+
+    @Override
+    protected List<Process<P>> getProcesses(S state, StateDirection direction) {
+        int index = stateIndex.indexOf(state);
+        if (index <= StateIndex.NULL_INDEX) {
+            return super.getProcesses(state, direction);
+        }
+        return direction == StateDirection.IN ? inProcesses[index] : outProcesses[index];
+    }
+
+    @Override
+    Boundary<S> getBoundary(S from, S to) {
+        if (boundaries == null) {
+            return null;
+        }
+        int fromIndex = stateIndex.indexOf(from);
+        int toIndex = stateIndex.indexOf(to);
+        if (fromIndex == StateIndex.UNKNOWN_INDEX || toIndex == StateIndex.UNKNOWN_INDEX) {
+            return null;
+        }
+        return boundaries[fromIndex * stateIndex.size() + toIndex];
+    }
+
+    Dispatcher getDispatcher() {
+        return dispatcher;
+    }
+}
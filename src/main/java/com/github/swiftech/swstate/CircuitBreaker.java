@@ -0,0 +1,200 @@
+package com.github.swiftech.swstate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker which short-circuits a process when its failure rate, including timeouts, reaches the threshold
+ * in the recent calls. After the open duration, one trial call is allowed to close it if succeeded.
+ * One circuit breaker can be shared by processes calling the same dependency.
+ * <p>
+ * Usage:
+ * <pre>
+ *     CircuitBreaker breaker = new CircuitBreaker("payment", 0.5, 20, Duration.ofSeconds(30));
+ *     stateBuilder.state("Payed").in(process, Duration.ofMillis(500), breaker);
+ * </pre>
+ *
+ * @author swiftech
+ * @see StateBuilder#in(Process, Duration, CircuitBreaker)
+ * @since 2.3
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        /**
+         * Calls are allowed.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+        /**
+         * One trial call is allowed.
+         */
+        HALF_OPEN
+    }
+
+    private final String name;
+
+    private final double failureRateThreshold;
+
+    private final long openDurationNanos;
+
+    // outcomes of recent calls in a ring, true for failure.
+    private final boolean[] window;
+
+    private int windowIndex;
+
+    private int windowCount;
+
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+
+    private long openedTime;
+
+    private boolean isTrialInProgress;
+
+    private final LongAdder successCount = new LongAdder();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * @param name                 name for logs and metrics.
+     * @param failureRateThreshold open the circuit if the failure rate of recent calls reaches it, in (0, 1].
+     * @param windowSize           count of recent calls to calculate the failure rate.
+     * @param openDuration         how long the circuit keeps open before a trial call.
+     */
+    public CircuitBreaker(String name, double failureRateThreshold, int windowSize, Duration openDuration) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failure rate threshold must be in (0, 1]");
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Whether a call is allowed, the caller must call {@code onSuccess()} or {@code onFailure()} after the call.
+     *
+     * @return false if the circuit is open.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedTime >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            isTrialInProgress = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !isTrialInProgress) {
+            isTrialInProgress = true;
+            return true;
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        successCount.increment();
+        if (state == State.HALF_OPEN) {
+            this.close();
+        }
+        else {
+            this.record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        failureCount.increment();
+        if (state == State.HALF_OPEN) {
+            this.open();
+        }
+        else if (state == State.CLOSED) {
+            this.record(true);
+            if (windowCount == window.length && (double) windowFailures / windowCount >= failureRateThreshold) {
+                this.open();
+            }
+        }
+    }
+
+    private void record(boolean isFailure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) windowFailures--;
+        }
+        else {
+            windowCount++;
+        }
+        window[windowIndex] = isFailure;
+        if (isFailure) windowFailures++;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedTime = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Failure rate of recent calls, 0 if no calls.
+     *
+     * @return
+     */
+    public synchronized double getFailureRate() {
+        return windowCount == 0 ? 0 : (double) windowFailures / windowCount;
+    }
+
+    /**
+     * How many calls succeeded.
+     *
+     * @return
+     */
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    /**
+     * How many calls failed or timed out.
+     *
+     * @return
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * How many calls are rejected since the circuit is open.
+     *
+     * @return
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{name='%s', state=%s}".formatted(name, this.getState());
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Default outbox state provider that stores states and outbox items in memory.
+ * States and outbox items are written under the same lock, implement your own {@link OutboxStateProvider}
+ * to write them in one database transaction for durability.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class DefaultOutboxStateProvider<S extends Serializable, P extends Serializable>
+        extends DefaultStateProvider<S> implements OutboxStateProvider<S, P> {
+
+    // item id -> outbox item, in the order of storing.
+    private final Map<String, OutboxItem<S, P>> outbox = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void initializeStateWithOutbox(String id, S state, List<OutboxItem<S, P>> items) {
+        super.initializeState(id, state);
+        items.forEach(item -> outbox.put(item.getItemId(), item));
+    }
+
+    @Override
+    public synchronized void setStateWithOutbox(String id, S state, List<OutboxItem<S, P>> items) {
+        super.setState(id, state);
+        items.forEach(item -> outbox.put(item.getItemId(), item));
+    }
+
+    @Override
+    public synchronized List<OutboxItem<S, P>> fetchOutbox(long now, int limit) {
+        List<OutboxItem<S, P>> items = new ArrayList<>();
+        for (OutboxItem<S, P> item : outbox.values()) {
+            if (items.size() >= limit) {
+                break;
+            }
+            if (item.getNextAttemptTime() <= now) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public synchronized void updateOutbox(List<OutboxItem<S, P>> items) {
+        items.forEach(item -> outbox.replace(item.getItemId(), item));
+    }
+
+    @Override
+    public synchronized void removeOutbox(List<OutboxItem<S, P>> items) {
+        items.forEach(item -> outbox.remove(item.getItemId()));
+    }
+
+    @Override
+    public synchronized S getCurrentState(String id) {
+        return super.getCurrentState(id);
+    }
+
+    @Override
+    public synchronized void initializeState(String id, S state) {
+        super.initializeState(id, state);
+    }
+
+    @Override
+    public synchronized void setState(String id, S state) {
+        super.setState(id, state);
+    }
+
+    @Override
+    public synchronized void setStates(Map<String, S> states) {
+        super.setStates(states);
+    }
+
+    @Override
+    public synchronized List<String> compareAndSetStates(Map<String, S> expectedStates, S state) {
+        return super.compareAndSetStates(expectedStates, state);
+    }
+
+    @Override
+    public synchronized boolean isState(String id, S state) {
+        return super.isState(id, state);
+    }
+
+    @Override
+    public synchronized boolean isStateIn(String id, S... states) {
+        return super.isStateIn(id, states);
+    }
+
+    @Override
+    public synchronized Map<S, Integer> countByState() {
+        return super.countByState();
+    }
+
+    @Override
+    public synchronized List<String> idsInState(S state, String cursor, int limit) {
+        return super.idsInState(state, cursor, limit);
+    }
+
+    @Override
+    public synchronized void forEachInState(S state, Consumer<String> action) {
+        super.forEachInState(state, action);
+    }
+
+    /**
+     * How many outbox items are not delivered yet.
+     *
+     * @return
+     */
+    public synchronized int getOutboxSize() {
+        return outbox.size();
+    }
+}
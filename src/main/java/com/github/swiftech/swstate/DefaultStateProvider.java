@@ -1,21 +1,36 @@
 package com.github.swiftech.swstate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Default state provider that stores states in memory.
+ * As of v2.3, ids are indexed by states to query them by state, and states can be written concurrently.
  *
  * @param <S> type of State
  * @author swiftech
  */
-public class DefaultStateProvider<S extends Serializable> implements StateProvider<S> {
+public class DefaultStateProvider<S extends Serializable> implements IndexedStateProvider<S> {
 
     /**
      * Map of current state
      */
-    private final Map<String, S> stateMap = new HashMap<>();
+    private final Map<String, S> stateMap = new ConcurrentHashMap<>();
+
+    // @since 2.3, state -> ids in the state in ascending order.
+    private final Map<S, NavigableSet<String>> stateIndex = new ConcurrentHashMap<>();
+
+    // @since 2.3, state -> count of ids in the state, since the size of a concurrent set is not constant time.
+    private final Map<S, AtomicInteger> stateCounts = new ConcurrentHashMap<>();
 
 
     @Override
@@ -25,19 +40,56 @@ public class DefaultStateProvider<S extends Serializable> implements StateProvid
 
     @Override
     public void initializeState(String id, S state) {
-        stateMap.put(id, state);
+        this.putState(id, state);
     }
 
     @Override
     public void setState(String id, S state) {
-        stateMap.put(id, state);
+        this.putState(id, state);
+    }
+
+    @Override
+    public List<String> compareAndSetStates(Map<String, S> expectedStates, S state) {
+        List<String> setIds = new ArrayList<>(expectedStates.size());
+        expectedStates.forEach((id, expected) -> {
+            if (this.putState(id, expected, state, true)) {
+                setIds.add(id);
+            }
+        });
+        return setIds;
+    }
+
+    private void putState(String id, S state) {
+        this.putState(id, null, state, false);
+    }
+
+    /**
+     * @return false if the state is not set since the current state is not the expected one.
+     */
+    private boolean putState(String id, S expected, S state, boolean isCompared) {
+        boolean[] isSet = {false};
+        // the index is updated while the id is locked.
+        stateMap.compute(id, (k, previous) -> {
+            if (isCompared && !Objects.equals(previous, expected)) {
+                return previous;
+            }
+            if (previous != null) {
+                NavigableSet<String> ids = stateIndex.get(previous);
+                if (ids != null && ids.remove(id)) {
+                    stateCounts.get(previous).decrementAndGet();
+                }
+            }
+            if (state != null && stateIndex.computeIfAbsent(state, s -> new ConcurrentSkipListSet<>()).add(id)) {
+                stateCounts.computeIfAbsent(state, s -> new AtomicInteger()).incrementAndGet();
+            }
+            isSet[0] = true;
+            return state;
+        });
+        return isSet[0];
     }
 
     @Override
     public boolean isState(String id, S state) {
-        if (!stateMap.containsKey(id)) {
-            return false;
-        }
         S currentState = stateMap.get(id);
         return currentState != null
                 && currentState.equals(state);
@@ -45,11 +97,48 @@ public class DefaultStateProvider<S extends Serializable> implements StateProvid
 
     @Override
     public boolean isStateIn(String id, S... states) {
+        S currentState = stateMap.get(id);
+        if (currentState == null) {
+            return false;
+        }
         for (S state : states) {
-            if (isState(id, state)) {
+            if (currentState.equals(state)) {
                 return true;
             }
         }
         return false;
     }
+
+    @Override
+    public Map<S, Integer> countByState() {
+        Map<S, Integer> counts = new HashMap<>();
+        stateCounts.forEach((state, count) -> {
+            if (count.get() > 0) counts.put(state, count.get());
+        });
+        return counts;
+    }
+
+    @Override
+    public List<String> idsInState(S state, String cursor, int limit) {
+        NavigableSet<String> ids = stateIndex.get(state);
+        List<String> page = new ArrayList<>();
+        if (ids == null || limit <= 0) {
+            return page;
+        }
+        for (String id : cursor == null ? ids : ids.tailSet(cursor, false)) {
+            page.add(id);
+            if (page.size() >= limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void forEachInState(S state, Consumer<String> action) {
+        NavigableSet<String> ids = stateIndex.get(state);
+        if (ids != null) {
+            ids.forEach(action);
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.github.swiftech.swstate;
+
+import com.github.swiftech.swstate.trigger.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.swiftech.swstate.Mapping.StateDirection;
+
+/**
+ * Structural key of the definition built by a {@link StateBuilder}, two builders have equal keys if they define
+ * the same states, actions, triggers, parents, processes and bulkheads. Built-in triggers and bulkheads are compared
+ * by their values, guards, custom triggers and processes are compared by identity.
+ *
+ * @author swiftech
+ * @see StateMachineRegistry
+ * @since 2.3
+ */
+final class DefinitionKey {
+
+    private final List<Object> structure;
+
+    private final int hash;
+
+    <S extends Serializable, P extends Serializable> DefinitionKey(StateBuilder<S, P> stateBuilder) {
+        Map<S, Map<S, Object>> actions = new HashMap<>();
+        stateBuilder.actionMap.forEach((from, toMap) -> {
+            Map<S, Object> toKeys = new HashMap<>();
+            toMap.forEach((to, action) -> toKeys.put(to, Arrays.asList(action.getName(),
+                    action instanceof GuardedAction<?, ?> ga ? new Identity(ga.getGuard()) : null)));
+            actions.put(from, toKeys);
+        });
+        // the order of triggers matters
+        Map<S, List<Object>> triggers = new HashMap<>();
+        stateBuilder.triggerMap.forEach((from, toByTriggerMap) -> {
+            List<Object> triggerKeys = new ArrayList<>();
+            toByTriggerMap.forEach((trigger, to) -> triggerKeys.add(Arrays.asList(triggerKey(trigger), to)));
+            triggers.put(from, triggerKeys);
+        });
+        Map<S, List<Object>> processes = new HashMap<>();
+        stateBuilder.stateMapping.getStateMap().forEach((state, subMapping) -> processes.put(state, Arrays.asList(
+                processKeys(subMapping.getProcesses(StateDirection.IN)),
+                processKeys(subMapping.getProcesses(StateDirection.OUT)))));
+        Map<S, Object> bulkheads = new HashMap<>();
+        stateBuilder.bulkheadMap.forEach((state, bulkhead) -> bulkheads.put(state, Arrays.asList(bulkhead.getMaxConcurrency(),
+                bulkhead.getPolicy(), bulkhead.getMaxQueueLength(), bulkhead.getMaxWait())));
+        this.structure = Arrays.asList(actions, triggers, new HashMap<>(stateBuilder.parentMap), processes, bulkheads);
+        this.hash = structure.hashCode();
+    }
+
+    private static Object triggerKey(Trigger trigger) {
+        Class<?> clazz = trigger.getClass();
+        if (clazz == CharTrigger.class) return Arrays.asList(clazz, ((CharTrigger) trigger).getCharacter());
+        if (clazz == IntTrigger.class) return Arrays.asList(clazz, ((IntTrigger) trigger).getInteger());
+        if (clazz == LongTrigger.class) return Arrays.asList(clazz, ((LongTrigger) trigger).getLong());
+        if (clazz == StringTrigger.class) return Arrays.asList(clazz, ((StringTrigger) trigger).getText());
+        if (clazz == FloatTrigger.class) return Arrays.asList(clazz, ((FloatTrigger) trigger).getFloat());
+        if (clazz == DoubleTrigger.class) return Arrays.asList(clazz, ((DoubleTrigger) trigger).getDouble());
+        if (clazz == ObjectTrigger.class) return Arrays.asList(clazz, ((ObjectTrigger) trigger).getObject());
+        return new Identity(trigger);
+    }
+
+    private static <P extends Serializable> List<Object> processKeys(List<Process<P>> processes) {
+        List<Object> keys = new ArrayList<>(processes.size());
+        for (Process<P> process : processes) {
+            keys.add(processKey(process));
+        }
+        return keys;
+    }
+
+    private static <P extends Serializable> Object processKey(Process<P> process) {
+        if (process instanceof ProcessGroup<P> group) {
+            return Arrays.asList(ProcessGroup.class, processKeys(group.getProcesses()));
+        }
+        if (process instanceof OutboxProcess<P> outboxProcess) {
+            return Arrays.asList(OutboxProcess.class, processKey(outboxProcess.getProcess()));
+        }
+        if (process instanceof BoundedProcess<P> boundedProcess) {
+            CircuitBreaker circuitBreaker = boundedProcess.getCircuitBreaker();
+            return Arrays.asList(BoundedProcess.class, processKey(boundedProcess.getProcess()), boundedProcess.getTimeout(),
+                    circuitBreaker == null ? null : new Identity(circuitBreaker));
+        }
+        return new Identity(process);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DefinitionKey that)) return false;
+        return hash == that.hash && structure.equals(that.structure);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Compares the object by reference.
+     */
+    private record Identity(Object object) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity that && that.object == object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.swiftech.swstate;
+
+/**
+ * Dispatcher of transitions over state indexes, implemented by the bytecode generated by {@link DispatcherGenerator}.
+ *
+ * @author swiftech
+ * @see StateIndex
+ * @since 2.3
+ */
+interface Dispatcher {
+
+    // the target state is not found.
+    int NONE = -1;
+
+    // the state has triggers or guards that can't be inlined, resolve by the triggers.
+    int FALLBACK = -2;
+
+    /**
+     * @param from index of state from
+     * @param to   index of state to
+     * @return
+     */
+    boolean hasRoute(int from, int to);
+
+    /**
+     * @param from index of state from
+     * @param data
+     * @return index of the target state, or {@code NONE} or {@code FALLBACK}.
+     */
+    int resolve(int from, Object data);
+}
@@ -0,0 +1,512 @@
+package com.github.swiftech.swstate;
+
+import com.github.swiftech.swstate.trigger.CharTrigger;
+import com.github.swiftech.swstate.trigger.IntTrigger;
+import com.github.swiftech.swstate.trigger.LongTrigger;
+import com.github.swiftech.swstate.trigger.StringTrigger;
+import com.github.swiftech.swstate.trigger.Trigger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link Dispatcher} as a hidden class for the compiled definition of a state builder:
+ * <pre>
+ *     - hasRoute() is a tableswitch over indexes of state from, with a lookupswitch over indexes of state to.
+ *     - resolve() is a tableswitch over indexes of state from, with inlined comparisons for char, int, long and string triggers.
+ * </pre>
+ * States with guarded actions or other triggers are resolved by the triggers as usual.
+ * The hidden class is not strongly bound to the class loader, so it is unloaded when the dispatcher is unreachable.
+ * The class file version is 49 which doesn't require stack map frames.
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+final class DispatcherGenerator<S extends Serializable> {
+
+    private static final String CLASS_NAME = "com/github/swiftech/swstate/GeneratedDispatcher";
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ILOAD_2 = 0x1c;
+    private static final int LLOAD_3 = 0x21;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int LSTORE_3 = 0x42;
+    private static final int LCMP = 0x94;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int GOTO = 0xa7;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int CHECKCAST = 0xc0;
+    private static final int INSTANCEOF = 0xc1;
+
+    private final StateIndex<S> stateIndex;
+
+    private final Map<S, Map<S, Action<S>>> actionMap;
+
+    private final Map<S, Map<Trigger, S>> triggerMap;
+
+    // states from which have guarded actions.
+    private final Set<S> guardedStates;
+
+    DispatcherGenerator(StateIndex<S> stateIndex, Map<S, Map<S, Action<S>>> actionMap,
+                        Map<S, Map<Trigger, S>> triggerMap, Set<S> guardedStates) {
+        this.stateIndex = stateIndex;
+        this.actionMap = actionMap;
+        this.triggerMap = triggerMap;
+        this.guardedStates = guardedStates;
+    }
+
+    /**
+     * Define the hidden class and create the dispatcher.
+     *
+     * @return
+     */
+    Dispatcher generate() {
+        byte[] bytes = this.toBytecode();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (Dispatcher) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new StateException("Failed to define the dispatcher", e);
+        }
+    }
+
+    byte[] toBytecode() {
+        ConstantPool cp = new ConstantPool();
+        int thisClass = cp.classRef(CLASS_NAME);
+        int superClass = cp.classRef("java/lang/Object");
+        int dispatcherClass = cp.classRef(Dispatcher.class.getName().replace('.', '/'));
+
+        Bytes methods = new Bytes();
+        writeMethod(methods, cp, "<init>", "()V", 1, 1, this.constructor(cp));
+        writeMethod(methods, cp, "hasRoute", "(II)Z", 1, 3, this.hasRoute());
+        writeMethod(methods, cp, "resolve", "(ILjava/lang/Object;)I", 4, 5, this.resolve(cp));
+
+        Bytes out = new Bytes();
+        out.u4(0xCAFEBABE);
+        out.u2(0);
+        out.u2(49);
+        out.u2(cp.count);
+        out.bytes(cp.pool.toArray());
+        out.u2(ACC_FINAL | ACC_SUPER);
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(1);
+        out.u2(dispatcherClass);
+        out.u2(0); // fields
+        out.u2(3);
+        out.bytes(methods.toArray());
+        out.u2(0); // attributes
+        return out.toArray();
+    }
+
+    private Code constructor(ConstantPool cp) {
+        Code code = new Code();
+        code.u1(ALOAD_0);
+        code.u1(INVOKESPECIAL);
+        code.u2(cp.methodRef("java/lang/Object", "<init>", "()V"));
+        code.u1(RETURN);
+        return code;
+    }
+
+    private Code hasRoute() {
+        Code code = new Code();
+        Label yes = new Label();
+        Label no = new Label();
+        Label[] fromLabels = new Label[stateIndex.size()];
+        Arrays.fill(fromLabels, no);
+        for (int i = 0; i < fromLabels.length; i++) {
+            Map<S, Action<S>> toMap = actionMap.get(stateIndex.stateOf(i));
+            if (toMap != null && !toMap.isEmpty()) {
+                fromLabels[i] = new Label();
+            }
+        }
+        code.u1(ILOAD_1);
+        code.tableSwitch(0, fromLabels, no);
+        for (int i = 0; i < fromLabels.length; i++) {
+            if (fromLabels[i] == no) {
+                continue;
+            }
+            code.bind(fromLabels[i]);
+            int[] keys = actionMap.get(stateIndex.stateOf(i)).keySet().stream()
+                    .mapToInt(stateIndex::indexOf).sorted().toArray();
+            Label[] targets = new Label[keys.length];
+            Arrays.fill(targets, yes);
+            code.u1(ILOAD_2);
+            code.lookupSwitch(keys, targets, no);
+        }
+        code.bind(yes);
+        code.u1(ICONST_1);
+        code.u1(IRETURN);
+        code.bind(no);
+        code.u1(ICONST_0);
+        code.u1(IRETURN);
+        return code;
+    }
+
+    private Code resolve(ConstantPool cp) {
+        Code code = new Code();
+        Label none = new Label();
+        Label fallback = new Label();
+        // index of state to -> label returns it
+        Map<Integer, Label> returns = new HashMap<>();
+        Label[] fromLabels = new Label[stateIndex.size()];
+        for (int i = 0; i < fromLabels.length; i++) {
+            S from = stateIndex.stateOf(i);
+            Map<Trigger, S> toByTriggerMap = triggerMap.get(from);
+            if (toByTriggerMap == null || toByTriggerMap.isEmpty()) {
+                fromLabels[i] = none;
+            }
+            else if (guardedStates.contains(from) || !toByTriggerMap.keySet().stream().allMatch(this::isInlinable)) {
+                fromLabels[i] = fallback;
+            }
+            else {
+                fromLabels[i] = new Label();
+            }
+        }
+        code.u1(ILOAD_1);
+        code.tableSwitch(0, fromLabels, none);
+        for (int i = 0; i < fromLabels.length; i++) {
+            if (fromLabels[i] == none || fromLabels[i] == fallback) {
+                continue;
+            }
+            code.bind(fromLabels[i]);
+            // the first trigger wins for duplicated values, in the order of definition.
+            Map<Integer, Integer> chars = new LinkedHashMap<>();
+            Map<Integer, Integer> ints = new LinkedHashMap<>();
+            Map<Long, Integer> longs = new LinkedHashMap<>();
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            for (Map.Entry<Trigger, S> entry : triggerMap.get(stateIndex.stateOf(i)).entrySet()) {
+                int to = stateIndex.indexOf(entry.getValue());
+                Trigger trigger = entry.getKey();
+                if (trigger instanceof CharTrigger t) chars.putIfAbsent((int) t.getCharacter(), to);
+                else if (trigger instanceof IntTrigger t) ints.putIfAbsent(t.getInteger(), to);
+                else if (trigger instanceof LongTrigger t) longs.putIfAbsent(t.getLong(), to);
+                else if (trigger instanceof StringTrigger t) strings.putIfAbsent(t.getText(), to);
+            }
+            if (!chars.isEmpty()) {
+                this.unboxAndSwitch(code, cp, "java/lang/Character", "charValue", "()C", chars, returns, none);
+            }
+            if (!ints.isEmpty()) {
+                this.unboxAndSwitch(code, cp, "java/lang/Integer", "intValue", "()I", ints, returns, none);
+            }
+            if (!longs.isEmpty()) {
+                Label next = new Label();
+                this.unbox(code, cp, "java/lang/Long", "longValue", "()J", next);
+                code.u1(LSTORE_3);
+                for (Map.Entry<Long, Integer> entry : longs.entrySet()) {
+                    code.u1(LLOAD_3);
+                    code.u1(LDC2_W);
+                    code.u2(cp.longConst(entry.getKey()));
+                    code.u1(LCMP);
+                    code.jump(IFEQ, returns.computeIfAbsent(entry.getValue(), k -> new Label()));
+                }
+                code.jump(GOTO, none);
+                code.bind(next);
+            }
+            for (Map.Entry<String, Integer> entry : strings.entrySet()) {
+                code.u1(LDC_W);
+                code.u2(cp.string(entry.getKey()));
+                code.u1(ALOAD_2);
+                code.u1(INVOKEVIRTUAL);
+                code.u2(cp.methodRef("java/lang/String", "equals", "(Ljava/lang/Object;)Z"));
+                code.jump(IFNE, returns.computeIfAbsent(entry.getValue(), k -> new Label()));
+            }
+            code.jump(GOTO, none);
+        }
+        for (Map.Entry<Integer, Label> entry : returns.entrySet()) {
+            code.bind(entry.getValue());
+            code.pushInt(cp, entry.getKey());
+            code.u1(IRETURN);
+        }
+        code.bind(none);
+        code.pushInt(cp, Dispatcher.NONE);
+        code.u1(IRETURN);
+        code.bind(fallback);
+        code.pushInt(cp, Dispatcher.FALLBACK);
+        code.u1(IRETURN);
+        return code;
+    }
+
+    /**
+     * Only the exact built-in triggers are inlined, since a subclass may override {@code accept()}.
+     */
+    private boolean isInlinable(Trigger trigger) {
+        if (trigger.getClass() == CharTrigger.class) return ((CharTrigger) trigger).getCharacter() != null;
+        if (trigger.getClass() == IntTrigger.class) return ((IntTrigger) trigger).getInteger() != null;
+        if (trigger.getClass() == LongTrigger.class) return ((LongTrigger) trigger).getLong() != null;
+        if (trigger.getClass() == StringTrigger.class) return ((StringTrigger) trigger).getText() != null;
+        return false;
+    }
+
+    private void unbox(Code code, ConstantPool cp, String type, String method, String desc, Label next) {
+        int typeClass = cp.classRef(type);
+        code.u1(ALOAD_2);
+        code.u1(INSTANCEOF);
+        code.u2(typeClass);
+        code.jump(IFEQ, next);
+        code.u1(ALOAD_2);
+        code.u1(CHECKCAST);
+        code.u2(typeClass);
+        code.u1(INVOKEVIRTUAL);
+        code.u2(cp.methodRef(type, method, desc));
+    }
+
+    private void unboxAndSwitch(Code code, ConstantPool cp, String type, String method, String desc,
+                                Map<Integer, Integer> valueToState, Map<Integer, Label> returns, Label none) {
+        Label next = new Label();
+        this.unbox(code, cp, type, method, desc, next);
+        int[] keys = valueToState.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        Label[] targets = new Label[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            targets[i] = returns.computeIfAbsent(valueToState.get(keys[i]), k -> new Label());
+        }
+        code.lookupSwitch(keys, targets, none);
+        code.bind(next);
+    }
+
+    private static void writeMethod(Bytes out, ConstantPool cp, String name, String desc,
+                                    int maxStack, int maxLocals, Code code) {
+        byte[] bytes = code.finish();
+        out.u2(ACC_PUBLIC);
+        out.u2(cp.utf8(name));
+        out.u2(cp.utf8(desc));
+        out.u2(1);
+        out.u2(cp.utf8("Code"));
+        out.u4(12 + bytes.length);
+        out.u2(maxStack);
+        out.u2(maxLocals);
+        out.u4(bytes.length);
+        out.bytes(bytes);
+        out.u2(0); // exception table
+        out.u2(0); // attributes
+    }
+
+    private static class Bytes {
+        byte[] buf = new byte[256];
+        int len = 0;
+
+        void u1(int v) {
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[len++] = (byte) v;
+        }
+
+        void u2(int v) {
+            u1(v >>> 8);
+            u1(v);
+        }
+
+        void u4(int v) {
+            u2(v >>> 16);
+            u2(v);
+        }
+
+        void bytes(byte[] bytes) {
+            for (byte b : bytes) u1(b);
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buf, len);
+        }
+    }
+
+    private static class ConstantPool {
+        final Bytes pool = new Bytes();
+        final Map<String, Integer> entries = new HashMap<>();
+        int count = 1;
+
+        private int add(String key, int slots, java.util.function.Consumer<Bytes> writer) {
+            Integer index = entries.get(key);
+            if (index == null) {
+                index = count;
+                writer.accept(pool);
+                count += slots;
+                entries.put(key, index);
+            }
+            return index;
+        }
+
+        int utf8(String s) {
+            return add("U" + s, 1, b -> {
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    new DataOutputStream(bytes).writeUTF(s);
+                    b.u1(1);
+                    b.bytes(bytes.toByteArray());
+                } catch (IOException e) {
+                    throw new StateException("Too long string constant", e);
+                }
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return add("C" + name, 1, b -> {
+                b.u1(7);
+                b.u2(nameIndex);
+            });
+        }
+
+        int string(String s) {
+            int utf8Index = utf8(s);
+            return add("S" + s, 1, b -> {
+                b.u1(8);
+                b.u2(utf8Index);
+            });
+        }
+
+        int integer(int v) {
+            return add("I" + v, 1, b -> {
+                b.u1(3);
+                b.u4(v);
+            });
+        }
+
+        int longConst(long v) {
+            return add("J" + v, 2, b -> {
+                b.u1(5);
+                b.u4((int) (v >>> 32));
+                b.u4((int) v);
+            });
+        }
+
+        int methodRef(String owner, String name, String desc) {
+            int classIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            int nameAndType = add("N" + name + ":" + desc, 1, b -> {
+                b.u1(12);
+                b.u2(nameIndex);
+                b.u2(descIndex);
+            });
+            return add("M" + owner + "." + name + ":" + desc, 1, b -> {
+                b.u1(10);
+                b.u2(classIndex);
+                b.u2(nameAndType);
+            });
+        }
+    }
+
+    private static class Label {
+        int pos = -1;
+    }
+
+    /**
+     * Offset to the label to be patched, relative to the instruction at base.
+     */
+    private record Fixup(Label label, int at, int base, boolean wide) {
+    }
+
+    private static class Code extends Bytes {
+        final List<Fixup> fixups = new ArrayList<>();
+
+        void bind(Label label) {
+            label.pos = len;
+        }
+
+        void jump(int opcode, Label label) {
+            int base = len;
+            u1(opcode);
+            fixups.add(new Fixup(label, len, base, false));
+            u2(0);
+        }
+
+        void tableSwitch(int low, Label[] targets, Label defaultLabel) {
+            int base = len;
+            u1(TABLESWITCH);
+            while (len % 4 != 0) u1(0);
+            offset(defaultLabel, base);
+            u4(low);
+            u4(low + targets.length - 1);
+            for (Label target : targets) offset(target, base);
+        }
+
+        void lookupSwitch(int[] sortedKeys, Label[] targets, Label defaultLabel) {
+            int base = len;
+            u1(LOOKUPSWITCH);
+            while (len % 4 != 0) u1(0);
+            offset(defaultLabel, base);
+            u4(sortedKeys.length);
+            for (int i = 0; i < sortedKeys.length; i++) {
+                u4(sortedKeys[i]);
+                offset(targets[i], base);
+            }
+        }
+
+        private void offset(Label label, int base) {
+            fixups.add(new Fixup(label, len, base, true));
+            u4(0);
+        }
+
+        void pushInt(ConstantPool cp, int v) {
+            if (v >= -1 && v <= 5) {
+                u1(ICONST_0 + v);
+            }
+            else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                u1(BIPUSH);
+                u1(v);
+            }
+            else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                u1(SIPUSH);
+                u2(v);
+            }
+            else {
+                u1(LDC_W);
+                u2(cp.integer(v));
+            }
+        }
+
+        byte[] finish() {
+            if (len > 65535) {
+                throw new StateException("The definition is too large to compile to bytecode");
+            }
+            for (Fixup fixup : fixups) {
+                int offset = fixup.label.pos - fixup.base;
+                if (fixup.wide) {
+                    buf[fixup.at] = (byte) (offset >>> 24);
+                    buf[fixup.at + 1] = (byte) (offset >>> 16);
+                    buf[fixup.at + 2] = (byte) (offset >>> 8);
+                    buf[fixup.at + 3] = (byte) offset;
+                }
+                else {
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new StateException("The definition is too large to compile to bytecode");
+                    }
+                    buf[fixup.at] = (byte) (offset >>> 8);
+                    buf[fixup.at + 1] = (byte) offset;
+                }
+            }
+            return toArray();
+        }
+    }
+}
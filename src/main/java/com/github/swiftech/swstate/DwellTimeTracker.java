@@ -0,0 +1,230 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks when each id enters its current state, and records how long it dwells in a state into the histogram of the state
+ * when it leaves. A self-circulation transition doesn't leave the state.
+ * Nothing is allocated for a transition except the entry of a new id, and the states are looked up by index.
+ * An id is no longer tracked once it enters a final state which has no outgoing actions, so the entries don't grow
+ * with the ids finished. Ids are tracked from their first transitions after the tracker is set,
+ * the ids loaded from an existing state provider are not tracked until they move.
+ * <p>
+ * Usage:
+ * <pre>
+ *     DwellTimeTracker&lt;String&gt; tracker = new DwellTimeTracker&lt;&gt;(stateBuilder);
+ *     stateMachine.setDwellTimeTracker(tracker);
+ *     tracker.getHistogram("Created").getPercentile(0.99);
+ *     tracker.stuckIds("Payed", Duration.ofHours(1));
+ * </pre>
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+public class DwellTimeTracker<S extends Serializable> {
+
+    private final StateIndex<S> stateIndex;
+
+    // index of state -> histogram of dwell times in the state.
+    private final Histogram[] histograms;
+
+    // index of state -> whether the state has no outgoing actions, including the ones inherited from its ancestors.
+    private final boolean[] isFinal;
+
+    // id -> state and entry time of the id.
+    private final Map<String, Entry<S>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Track the states defined by the state builder, the states added later are tracked without histograms,
+     * and they are never final.
+     *
+     * @param stateBuilder
+     */
+    public DwellTimeTracker(StateBuilder<S, ?> stateBuilder) {
+        this.stateIndex = stateBuilder.indexStates(Collections.emptyList());
+        this.histograms = new Histogram[stateIndex.size()];
+        this.isFinal = new boolean[stateIndex.size()];
+        Map<S, Map<S, Action<S>>> actionMap = stateBuilder.compileActionMap();
+        for (int i = 1; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+            Map<S, Action<S>> toMap = actionMap.get(stateIndex.stateOf(i));
+            isFinal[i] = toMap == null || toMap.isEmpty();
+        }
+    }
+
+    /**
+     * Called when the state of the id is written.
+     *
+     * @param id
+     * @param state
+     */
+    void onEnter(String id, S state) {
+        long now = System.nanoTime();
+        int stateIndex = this.stateIndex.indexOf(state);
+        boolean isFinalState = stateIndex > StateIndex.NULL_INDEX && isFinal[stateIndex];
+        Entry<S> entry = entries.get(id);
+        if (entry == null) {
+            if (isFinalState) {
+                return;
+            }
+            entry = entries.computeIfAbsent(id, k -> new Entry<>());
+        }
+        synchronized (entry) {
+            if (state.equals(entry.state)) {
+                return;
+            }
+            if (entry.state != null) {
+                int index = this.stateIndex.indexOf(entry.state);
+                if (index > StateIndex.NULL_INDEX) {
+                    histograms[index].record(now - entry.enteredTime);
+                }
+            }
+            entry.state = state;
+            entry.enteredTime = now;
+        }
+        if (isFinalState) {
+            // the id never leaves the state.
+            entries.remove(id, entry);
+        }
+    }
+
+    /**
+     * Stop tracking the id, like it's archived or deleted. The dwell time in its current state is not recorded.
+     *
+     * @param id
+     */
+    public void remove(String id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Histogram of dwell times in the state, recorded when ids leave the state.
+     *
+     * @param state
+     * @return null if the state is not defined when the tracker is created.
+     */
+    public Histogram getHistogram(S state) {
+        int index = stateIndex.indexOf(state);
+        return index > StateIndex.NULL_INDEX ? histograms[index] : null;
+    }
+
+    /**
+     * How long the id has dwelt in its current state.
+     *
+     * @param id
+     * @return null if the id is not tracked.
+     */
+    public Duration getDwellTime(String id) {
+        Entry<S> entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return Duration.ofNanos(System.nanoTime() - entry.enteredTime);
+        }
+    }
+
+    /**
+     * Ids which have dwelt in the state longer than the duration, by scanning all tracked ids,
+     * which are the ids not in final states.
+     *
+     * @param state
+     * @param longerThan
+     * @return
+     */
+    public List<String> stuckIds(S state, Duration longerThan) {
+        long deadline = System.nanoTime() - longerThan.toNanos();
+        List<String> ids = new ArrayList<>();
+        entries.forEach((id, entry) -> {
+            synchronized (entry) {
+                if (state.equals(entry.state) && entry.enteredTime - deadline < 0) {
+                    ids.add(id);
+                }
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * How many ids are tracked, excluding the ids in final states.
+     *
+     * @return
+     */
+    public int getTrackedCount() {
+        return entries.size();
+    }
+
+    private static class Entry<S extends Serializable> {
+
+        private S state;
+
+        private long enteredTime;
+    }
+
+    /**
+     * Histogram of durations in buckets of powers of 2 nanoseconds, percentiles are the upper bounds of the buckets.
+     */
+    public static class Histogram {
+
+        // bucket i holds durations in [2^(i-1), 2^i) nanoseconds, bucket 0 holds 0.
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public Duration getMean() {
+            long count = this.getCount();
+            return count == 0 ? Duration.ZERO : Duration.ofNanos(totalNanos.sum() / count);
+        }
+
+        public Duration getMax() {
+            return Duration.ofNanos(maxNanos.get());
+        }
+
+        /**
+         * @param quantile in [0, 1], e.g. 0.99.
+         * @return upper bound of the bucket of the quantile, no more than the max.
+         */
+        public Duration getPercentile(double quantile) {
+            long count = this.getCount();
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Duration.ofNanos(Math.min(upper, maxNanos.get()));
+                }
+            }
+            return this.getMax();
+        }
+    }
+}
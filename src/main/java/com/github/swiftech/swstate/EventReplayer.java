@@ -0,0 +1,140 @@
+package com.github.swiftech.swstate;
+
+import com.github.swiftech.swstate.event.Event;
+import com.github.swiftech.swstate.event.EventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rebuilds states by replaying events recorded by {@link StateMachine} against a (probably changed) definition.
+ * Events are grouped by id, and the ids are partitioned to run in parallel by a fork-join pool,
+ * the events of one id are always replayed in the order they were recorded.
+ * The final state of each id is written to the {@link StateProvider} only once.
+ * <p>
+ * By default, no processes are executed during the replay, call {@code setProcessEnabled(true)} to execute them.
+ * Events which are not allowed by the new definition are skipped.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see StateMachine#setEventStore(EventStore)
+ * @since 2.3
+ */
+public class EventReplayer<S extends Serializable, P extends Serializable> {
+
+    private final Logger log = LoggerFactory.getLogger(EventReplayer.class);
+
+    private final StateProvider<S> stateProvider;
+
+    private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
+    private boolean isProcessEnabled = false;
+
+    /**
+     * Construct replayer which writes rebuilt states to the state provider, the provider is expected to be empty.
+     *
+     * @param stateProvider
+     */
+    public EventReplayer(StateProvider<S> stateProvider) {
+        this.stateProvider = stateProvider;
+    }
+
+    /**
+     * Replay all events from the event store by the definition from the state builder.
+     *
+     * @param eventStore
+     * @param stateBuilder
+     * @return how many ids have been rebuilt.
+     */
+    public long replay(EventStore<S, P> eventStore, StateBuilder<S, P> stateBuilder) {
+        StateTransition<S, P> stateTransition = new StateTransition<>(stateBuilder);
+
+        Map<String, List<Event<S, P>>> eventsById = new LinkedHashMap<>();
+        eventStore.forEach(event -> eventsById.computeIfAbsent(event.getId(), k -> new ArrayList<>()).add(event));
+        if (log.isDebugEnabled()) log.debug("Replay events of %d ids".formatted(eventsById.size()));
+
+        Map<String, S> rebuilt = new ConcurrentHashMap<>();
+        LongAdder skipped = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> eventsById.entrySet().parallelStream().forEach(entry -> {
+                S state = this.replayId(stateTransition, entry.getValue(), skipped);
+                if (state != null) {
+                    rebuilt.put(entry.getKey(), state);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StateException("Replaying is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new StateException("Failed to replay events", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        if (skipped.sum() > 0) {
+            log.warn("%d events are skipped since they are not allowed by the definition".formatted(skipped.sum()));
+        }
+        rebuilt.forEach(stateProvider::initializeState);
+        return rebuilt.size();
+    }
+
+    private S replayId(StateTransition<S, P> stateTransition, List<Event<S, P>> events, LongAdder skipped) {
+        S current = null;
+        for (Event<S, P> event : events) {
+            S target = switch (event.getType()) {
+                case START -> current != null ? null
+                        : event.getState() == null ? stateTransition.getInitialState() : event.getState();
+                case POST -> current == null ? null : event.getState();
+                case ACCEPT -> current == null ? null
+                        : stateTransition.resolveTrigger(current, event.getData(), event.getPayload());
+                case RESET -> event.getState();
+            };
+            if (target == null) {
+                if (event.getType() != Event.Type.ACCEPT) skipped.increment();
+                continue;
+            }
+            if (event.getType() != Event.Type.RESET) {
+                S from = event.getType() == Event.Type.START ? null : current;
+                if (!stateTransition.hasRoute(from, target)
+                        || (event.getType() == Event.Type.POST && !stateTransition.checkGuard(from, target, event.getPayload()))) {
+                    if (log.isTraceEnabled()) log.trace("Skip event %s from state '%s'".formatted(event, from));
+                    skipped.increment();
+                    continue;
+                }
+                if (isProcessEnabled) {
+                    stateTransition.transit(from, target, event.getPayload(), null);
+                }
+            }
+            current = target;
+        }
+        return current;
+    }
+
+    /**
+     * Set how many threads are used to replay the events, default is the parallelism of the common pool.
+     *
+     * @param parallelism
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set whether the IN/OUT processes are executed during replaying, default is false.
+     *
+     * @param processEnabled
+     */
+    public void setProcessEnabled(boolean processEnabled) {
+        isProcessEnabled = processEnabled;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+
+/**
+ * A guard decides whether an action is allowed to happen with the payload.
+ * It is only evaluated when the current state is the 'from' state of the action.
+ *
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see GuardedAction
+ * @since 2.3
+ */
+@FunctionalInterface
+public interface Guard<P extends Serializable> {
+
+    /**
+     * Test whether the action is allowed.
+     *
+     * @param payload
+     * @return true if the action is allowed.
+     */
+    boolean test(P payload);
+}
@@ -0,0 +1,73 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Defines an action which is only allowed when its {@link Guard} passes, with statistics of the guard.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class GuardedAction<S extends Serializable, P extends Serializable> extends Action<S> {
+
+    private final Guard<P> guard;
+
+    private final LongAdder evaluatedCount = new LongAdder();
+
+    private final LongAdder passedCount = new LongAdder();
+
+    public GuardedAction(String name, S stateFrom, S stateTo, Guard<P> guard) {
+        super(name, stateFrom, stateTo);
+        this.guard = guard;
+    }
+
+    /**
+     * Evaluate the guard with payload.
+     *
+     * @param payload
+     * @return true if the guard passes.
+     */
+    boolean test(P payload) {
+        evaluatedCount.increment();
+        boolean passed = guard.test(payload);
+        if (passed) {
+            passedCount.increment();
+        }
+        return passed;
+    }
+
+    public Guard<P> getGuard() {
+        return guard;
+    }
+
+    /**
+     * How many times the guard has been evaluated.
+     *
+     * @return
+     */
+    public long getEvaluatedCount() {
+        return evaluatedCount.sum();
+    }
+
+    /**
+     * How many times the guard has passed.
+     *
+     * @return
+     */
+    public long getPassedCount() {
+        return passedCount.sum();
+    }
+
+    /**
+     * Ratio of passed to evaluated, 0 if never evaluated.
+     *
+     * @return
+     */
+    public double getHitRate() {
+        long evaluated = evaluatedCount.sum();
+        return evaluated == 0 ? 0 : (double) passedCount.sum() / evaluated;
+    }
+}
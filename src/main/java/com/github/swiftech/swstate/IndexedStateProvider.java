@@ -0,0 +1,42 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * State provider which maintains a reverse index from state to ids, to query ids by state
+ * in time proportional to the result.
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+public interface IndexedStateProvider<S extends Serializable> extends StateProvider<S> {
+
+    /**
+     * Count ids in each state, the states without ids are absent.
+     *
+     * @return
+     */
+    Map<S, Integer> countByState();
+
+    /**
+     * List ids in the state in ascending order, page by page.
+     *
+     * @param state
+     * @param cursor the last id of previous page, null for the first page.
+     * @param limit  max count of ids to list.
+     * @return ids after the cursor, empty if no more.
+     */
+    List<String> idsInState(S state, String cursor, int limit);
+
+    /**
+     * Iterate ids in the state in ascending order, the states should not be changed by the action.
+     *
+     * @param state
+     * @param action
+     */
+    void forEachInState(S state, Consumer<String> action);
+}
@@ -2,6 +2,8 @@ package com.github.swiftech.swstate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,8 +37,8 @@ public class Mapping<S extends Serializable, P extends Serializable> {
      * @return
      */
     public List<Process<P>> getIn(S state) {
-        SubMapping<P> subMapping = stateMap.computeIfAbsent(state, k -> new SubMapping<>());
-        return subMapping.getProcesses(StateDirection.IN);
+        SubMapping<P> subMapping = stateMap.get(state);
+        return subMapping == null ? Collections.emptyList() : subMapping.getProcesses(StateDirection.IN);
     }
 
     /**
@@ -46,8 +48,8 @@ public class Mapping<S extends Serializable, P extends Serializable> {
      * @return
      */
     public List<Process<P>> getOut(S state) {
-        SubMapping<P> subMapping = stateMap.computeIfAbsent(state, k -> new SubMapping<>());
-        return subMapping.getProcesses(StateDirection.OUT);
+        SubMapping<P> subMapping = stateMap.get(state);
+        return subMapping == null ? Collections.emptyList() : subMapping.getProcesses(StateDirection.OUT);
     }
 
     public Map<S, SubMapping<P>> getStateMap() {
@@ -58,6 +60,20 @@ public class Mapping<S extends Serializable, P extends Serializable> {
         this.stateMap = stateMap;
     }
 
+    /**
+     * Copy the mapping to an immutable one, which is not changed by the processes added to this mapping later.
+     *
+     * @return
+     * @since 2.3
+     */
+    Mapping<S, P> immutableCopy() {
+        Map<S, SubMapping<P>> copy = new HashMap<>();
+        stateMap.forEach((state, subMapping) -> copy.put(state, subMapping.immutableCopy()));
+        Mapping<S, P> mapping = new Mapping<>();
+        mapping.stateMap = Collections.unmodifiableMap(copy);
+        return mapping;
+    }
+
     /**
      * Get how many states are mapped with processes.
      *
@@ -71,11 +87,33 @@ public class Mapping<S extends Serializable, P extends Serializable> {
      * Mapping state direction(IN or OUT) and processes
      */
     public static class SubMapping<P extends Serializable> {
-        private final Map<StateDirection, List<Process<P>>> customizedActionMapping = new HashMap<>();
+        private final Map<StateDirection, List<Process<P>>> customizedActionMapping;
+
+        public SubMapping() {
+            this.customizedActionMapping = new HashMap<>();
+        }
+
+        private SubMapping(Map<StateDirection, List<Process<P>>> customizedActionMapping) {
+            this.customizedActionMapping = customizedActionMapping;
+        }
 
         public List<Process<P>> getProcesses(StateDirection statusDirection) {
+            List<Process<P>> processes = customizedActionMapping.get(statusDirection);
+            if (processes != null) {
+                return processes;
+            }
             return customizedActionMapping.computeIfAbsent(statusDirection, k -> new ArrayList<>());
         }
+
+        // both directions are copied, so the immutable copy is never changed by getProcesses().
+        private SubMapping<P> immutableCopy() {
+            Map<StateDirection, List<Process<P>>> copy = new EnumMap<>(StateDirection.class);
+            for (StateDirection direction : StateDirection.values()) {
+                List<Process<P>> processes = customizedActionMapping.getOrDefault(direction, Collections.emptyList());
+                copy.put(direction, Collections.unmodifiableList(new ArrayList<>(processes)));
+            }
+            return new SubMapping<>(Collections.unmodifiableMap(copy));
+        }
     }
 
     /**
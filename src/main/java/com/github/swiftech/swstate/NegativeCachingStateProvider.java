@@ -0,0 +1,202 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * State provider decorator which answers reads of ids that are definitely not stored without querying the slow state provider,
+ * by a bloom filter of all stored ids. e.g. {@code start()} checks that the id is new by reading its state.
+ * <p>
+ * The filter must be seeded with the ids already stored before it takes effect, and reads are passed through until then.
+ * All writes must go through this provider, the ids written by others (like another instance) are not seen.
+ * <p>
+ * Create it by {@link #create(StateProvider, int, double)} to keep the state provider an {@link IndexedStateProvider}
+ * for {@code transitionAll()}. An {@link OutboxStateProvider} is not supported, since its outbox would be hidden.
+ * <p>
+ * Usage:
+ * <pre>
+ *     NegativeCachingStateProvider&lt;String&gt; provider = NegativeCachingStateProvider.create(dbStateProvider, 1_000_000, 0.01);
+ *     provider.seed(dbStateProvider.loadAllIds());
+ *     StateMachine&lt;String, Order&gt; stateMachine = new StateMachine&lt;&gt;(stateBuilder, provider);
+ * </pre>
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+public class NegativeCachingStateProvider<S extends Serializable> implements StateProvider<S> {
+
+    private final StateProvider<S> stateProvider;
+
+    private final BloomFilter bloomFilter;
+
+    private volatile boolean isSeeded = false;
+
+    private final LongAdder negativeCount = new LongAdder();
+
+    private final LongAdder passedCount = new LongAdder();
+
+    /**
+     * @param stateProvider     the slow state provider.
+     * @param expectedIds       expected count of ids, the filter grows if exceeded.
+     * @param falsePositiveRate rate of reads which are passed through for ids not stored, e.g. 0.01.
+     * @throws StateException if the state provider is an {@link OutboxStateProvider}.
+     */
+    public NegativeCachingStateProvider(StateProvider<S> stateProvider, int expectedIds, double falsePositiveRate) {
+        if (stateProvider instanceof OutboxStateProvider) {
+            throw new StateException("An OutboxStateProvider can't be decorated, which would disable its outbox");
+        }
+        this.stateProvider = stateProvider;
+        this.bloomFilter = new BloomFilter(expectedIds, falsePositiveRate);
+    }
+
+    /**
+     * Create the decorator, which is an {@link IndexedStateProvider} if the state provider is.
+     *
+     * @param stateProvider
+     * @param expectedIds
+     * @param falsePositiveRate
+     * @param <S>
+     * @return
+     * @throws StateException if the state provider is an {@link OutboxStateProvider}.
+     */
+    public static <S extends Serializable> NegativeCachingStateProvider<S> create(StateProvider<S> stateProvider,
+                                                                               int expectedIds, double falsePositiveRate) {
+        if (stateProvider instanceof IndexedStateProvider<S> indexedStateProvider) {
+            return new Indexed<>(indexedStateProvider, expectedIds, falsePositiveRate);
+        }
+        return new NegativeCachingStateProvider<>(stateProvider, expectedIds, falsePositiveRate);
+    }
+
+    /**
+     * Seed the filter with the ids already stored, like a scan or snapshot of the state provider, and enable it.
+     * The ids written while seeding are added by the writes.
+     *
+     * @param storedIds
+     */
+    public void seed(Iterable<String> storedIds) {
+        for (String id : storedIds) {
+            bloomFilter.add(id);
+        }
+        this.isSeeded = true;
+    }
+
+    /**
+     * Seed the filter by scanning ids in all states of the {@link IndexedStateProvider}, and enable it.
+     */
+    public void seed() {
+        if (!(stateProvider instanceof IndexedStateProvider<S> indexed)) {
+            throw new StateException("The state provider is not an IndexedStateProvider to scan ids");
+        }
+        for (S state : indexed.countByState().keySet()) {
+            indexed.forEachInState(state, bloomFilter::add);
+        }
+        this.isSeeded = true;
+    }
+
+    /**
+     * @param id
+     * @return false if the id is definitely not stored.
+     */
+    private boolean mightExist(String id) {
+        if (isSeeded && !bloomFilter.mightContain(id)) {
+            negativeCount.increment();
+            return false;
+        }
+        passedCount.increment();
+        return true;
+    }
+
+    @Override
+    public S getCurrentState(String id) {
+        return this.mightExist(id) ? stateProvider.getCurrentState(id) : null;
+    }
+
+    @Override
+    public void initializeState(String id, S state) {
+        // added before written, so the id is never answered as absent after it's stored.
+        bloomFilter.add(id);
+        stateProvider.initializeState(id, state);
+    }
+
+    @Override
+    public void setState(String id, S state) {
+        bloomFilter.add(id);
+        stateProvider.setState(id, state);
+    }
+
+    @Override
+    public void setStates(Map<String, S> states) {
+        states.keySet().forEach(bloomFilter::add);
+        stateProvider.setStates(states);
+    }
+
+    @Override
+    public List<String> compareAndSetStates(Map<String, S> expectedStates, S state) {
+        expectedStates.keySet().forEach(bloomFilter::add);
+        return stateProvider.compareAndSetStates(expectedStates, state);
+    }
+
+    @Override
+    public boolean isState(String id, S state) {
+        return this.mightExist(id) && stateProvider.isState(id, state);
+    }
+
+    @Override
+    public boolean isStateIn(String id, S... states) {
+        return this.mightExist(id) && stateProvider.isStateIn(id, states);
+    }
+
+    public StateProvider<S> getStateProvider() {
+        return stateProvider;
+    }
+
+    /**
+     * How many reads are answered without querying the state provider.
+     *
+     * @return
+     */
+    public long getNegativeCount() {
+        return negativeCount.sum();
+    }
+
+    /**
+     * How many reads are passed through to the state provider, including the false positives.
+     *
+     * @return
+     */
+    public long getPassedCount() {
+        return passedCount.sum();
+    }
+
+    /**
+     * Decorator of an {@link IndexedStateProvider}, the queries by state are passed through.
+     */
+    static class Indexed<S extends Serializable> extends NegativeCachingStateProvider<S> implements IndexedStateProvider<S> {
+
+        private final IndexedStateProvider<S> stateProvider;
+
+        Indexed(IndexedStateProvider<S> stateProvider, int expectedIds, double falsePositiveRate) {
+            super(stateProvider, expectedIds, falsePositiveRate);
+            this.stateProvider = stateProvider;
+        }
+
+        @Override
+        public Map<S, Integer> countByState() {
+            return stateProvider.countByState();
+        }
+
+        @Override
+        public List<String> idsInState(S state, String cursor, int limit) {
+            return stateProvider.idsInState(state, cursor, limit);
+        }
+
+        @Override
+        public void forEachInState(S state, Consumer<String> action) {
+            stateProvider.forEachInState(state, action);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.swiftech.swstate.Mapping.StateDirection;
+
+/**
+ * Collects outbox items for the outbox processes reached by a transition of an id, in the order they are reached,
+ * an outbox process after a failed process of the same state is not reached.
+ * The processes of a transition are executed one after another, so the items are not added concurrently.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+class OutboxCollector<S extends Serializable, P extends Serializable> {
+
+    private final String id;
+
+    private final List<OutboxItem<S, P>> items = new ArrayList<>(0);
+
+    OutboxCollector(String id) {
+        this.id = id;
+    }
+
+    void add(S state, StateDirection direction, int index, int groupIndex, Process<P> process, P payload) {
+        OutboxItem<S, P> item = new OutboxItem<>(id, state, direction, index, groupIndex, payload);
+        item.setProcess(process);
+        items.add(item);
+    }
+
+    List<OutboxItem<S, P>> getItems() {
+        return items;
+    }
+}
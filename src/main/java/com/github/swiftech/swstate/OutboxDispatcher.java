@@ -0,0 +1,188 @@
+package com.github.swiftech.swstate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers outbox items stored by {@link OutboxStateProvider} asynchronously in batches.
+ * A failed item is retried with exponential backoff, and given up after max attempts,
+ * the {@link ExceptionHandler} is notified when an item is given up.
+ * <p>
+ * Usage:
+ * <pre>
+ *     OutboxDispatcher&lt;String, Order&gt; dispatcher = new OutboxDispatcher&lt;&gt;(stateMachine);
+ *     dispatcher.start();
+ *     ...
+ *     dispatcher.stop();
+ * </pre>
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class OutboxDispatcher<S extends Serializable, P extends Serializable> {
+
+    private final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final StateMachine<S, P> stateMachine;
+
+    private final OutboxStateProvider<S, P> outboxStateProvider;
+
+    private ScheduledExecutorService scheduler;
+
+    private ExceptionHandler exceptionHandler;
+
+    private int batchSize = 100;
+
+    private int maxAttempts = 5;
+
+    private long initialBackoffMillis = 100;
+
+    private long maxBackoffMillis = 60_000;
+
+    private long pollIntervalMillis = 100;
+
+    /**
+     * Construct dispatcher for the state machine whose state provider must be an {@link OutboxStateProvider}.
+     *
+     * @param stateMachine
+     */
+    @SuppressWarnings("unchecked")
+    public OutboxDispatcher(StateMachine<S, P> stateMachine) {
+        if (!(stateMachine.getStateProvider() instanceof OutboxStateProvider)) {
+            throw new StateException("The state provider of state machine is not an OutboxStateProvider");
+        }
+        this.stateMachine = stateMachine;
+        this.outboxStateProvider = (OutboxStateProvider<S, P>) stateMachine.getStateProvider();
+    }
+
+    /**
+     * Start delivering outbox items periodically in a background thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "swstate-outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                // drain the due items continuously until there are less than a batch.
+                int fetched;
+                do {
+                    fetched = this.dispatch();
+                } while (fetched >= batchSize);
+            } catch (Exception e) {
+                log.error("Failed to dispatch outbox items", e);
+            }
+        }, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop delivering, the items being delivered are finished.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Deliver one batch of due outbox items.
+     *
+     * @return how many items are fetched in this batch.
+     */
+    public int dispatch() {
+        long now = System.currentTimeMillis();
+        List<OutboxItem<S, P>> items = outboxStateProvider.fetchOutbox(now, batchSize);
+        if (items.isEmpty()) {
+            return 0;
+        }
+        List<OutboxItem<S, P>> done = new ArrayList<>(items.size());
+        List<OutboxItem<S, P>> retries = new ArrayList<>();
+        for (OutboxItem<S, P> item : items) {
+            try {
+                stateMachine.executeOutboxItem(item);
+                done.add(item);
+            } catch (Exception e) {
+                item.setAttempts(item.getAttempts() + 1);
+                if (item.getAttempts() >= maxAttempts) {
+                    log.error("Give up outbox item %s after %d attempts".formatted(item, item.getAttempts()), e);
+                    done.add(item);
+                    if (exceptionHandler != null) {
+                        exceptionHandler.onException(new StateException("Failed to deliver outbox item " + item, e));
+                    }
+                }
+                else {
+                    long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(item.getAttempts() - 1, 30));
+                    item.setNextAttemptTime(now + backoff);
+                    if (log.isDebugEnabled())
+                        log.debug("Retry outbox item %s in %dms: %s".formatted(item, backoff, e.getMessage()));
+                    retries.add(item);
+                }
+            }
+        }
+        if (!done.isEmpty()) outboxStateProvider.removeOutbox(done);
+        if (!retries.isEmpty()) outboxStateProvider.updateOutbox(retries);
+        return items.size();
+    }
+
+    /**
+     * Handler to be notified when an outbox item is given up.
+     *
+     * @param exceptionHandler
+     */
+    public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * Set max count of items delivered in one batch, default is 100.
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set max attempts to deliver an item before giving up, default is 5.
+     *
+     * @param maxAttempts
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Set backoff of the first retry, which is doubled for each of the following retries, default is 100ms.
+     *
+     * @param initialBackoffMillis
+     * @param maxBackoffMillis     default is 1 minute.
+     */
+    public void setBackoff(long initialBackoffMillis, long maxBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Set interval to poll the outbox when it's drained, default is 100ms.
+     *
+     * @param pollIntervalMillis
+     */
+    public void setPollIntervalMillis(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+}
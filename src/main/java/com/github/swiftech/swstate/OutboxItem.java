@@ -0,0 +1,128 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import static com.github.swiftech.swstate.Mapping.StateDirection;
+
+/**
+ * A work item to execute an {@link OutboxProcess} later. The item keeps the process of the definition it's created under,
+ * so it's delivered by the same process after the definition is updated. The process is not serialized,
+ * a deserialized item is resolved by the state, the direction and the index in processes of the state
+ * against the current definition, with renamed states mapped. So the outbox processes of a state should not be
+ * reordered until the items created before are delivered.
+ * For an outbox process in a {@link ProcessGroup}, the index is of the group and the group index is of the process in it.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class OutboxItem<S extends Serializable, P extends Serializable> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String itemId;
+
+    private final String id;
+
+    private final S state;
+
+    private final StateDirection direction;
+
+    private final int index;
+
+    private final int groupIndex;
+
+    private final P payload;
+
+    // the process of the definition which the item is created under, null if deserialized.
+    private transient Process<P> process;
+
+    private int attempts = 0;
+
+    private long nextAttemptTime = 0;
+
+    public OutboxItem(String id, S state, StateDirection direction, int index, P payload) {
+        this(id, state, direction, index, -1, payload);
+    }
+
+    public OutboxItem(String id, S state, StateDirection direction, int index, int groupIndex, P payload) {
+        this(UUID.randomUUID().toString(), id, state, direction, index, groupIndex, payload);
+    }
+
+    public OutboxItem(String itemId, String id, S state, StateDirection direction, int index, P payload) {
+        this(itemId, id, state, direction, index, -1, payload);
+    }
+
+    public OutboxItem(String itemId, String id, S state, StateDirection direction, int index, int groupIndex, P payload) {
+        this.itemId = itemId;
+        this.id = id;
+        this.state = state;
+        this.direction = direction;
+        this.index = index;
+        this.groupIndex = groupIndex;
+        this.payload = payload;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public S getState() {
+        return state;
+    }
+
+    public StateDirection getDirection() {
+        return direction;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return index of the process in the {@link ProcessGroup}, -1 if the process is not in a group.
+     */
+    public int getGroupIndex() {
+        return groupIndex;
+    }
+
+    public P getPayload() {
+        return payload;
+    }
+
+    Process<P> getProcess() {
+        return process;
+    }
+
+    void setProcess(Process<P> process) {
+        this.process = process;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public long getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(long nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    @Override
+    public String toString() {
+        return groupIndex < 0 ? "%s of '%s': %s %s[%d]".formatted(itemId, id, direction, state, index)
+                : "%s of '%s': %s %s[%d][%d]".formatted(itemId, id, direction, state, index, groupIndex);
+    }
+}
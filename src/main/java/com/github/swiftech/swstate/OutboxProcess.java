@@ -0,0 +1,32 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+
+/**
+ * A process with side effects which is recorded as an {@link OutboxItem} in the same write as the state change,
+ * and delivered later by {@link OutboxDispatcher}, if the state provider of {@link StateMachine} is an
+ * {@link OutboxStateProvider}. Otherwise, it is executed as same as other processes.
+ *
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see StateBuilder#inOutbox(Process)
+ * @see StateBuilder#outOutbox(Process)
+ * @since 2.3
+ */
+public class OutboxProcess<P extends Serializable> implements Process<P> {
+
+    private final Process<P> process;
+
+    public OutboxProcess(Process<P> process) {
+        this.process = process;
+    }
+
+    @Override
+    public void execute(P payload) {
+        process.execute(payload);
+    }
+
+    public Process<P> getProcess() {
+        return process;
+    }
+}
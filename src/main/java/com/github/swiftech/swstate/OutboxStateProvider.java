@@ -0,0 +1,58 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * State provider which stores outbox items in the same write as the state, usually in one database transaction,
+ * so that the state change and the side effects are never inconsistent even if the application crashes.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see OutboxDispatcher
+ * @since 2.3
+ */
+public interface OutboxStateProvider<S extends Serializable, P extends Serializable> extends StateProvider<S> {
+
+    /**
+     * Initialize state and store the outbox items atomically.
+     *
+     * @param id
+     * @param state
+     * @param items
+     */
+    void initializeStateWithOutbox(String id, S state, List<OutboxItem<S, P>> items);
+
+    /**
+     * Set state and store the outbox items atomically.
+     *
+     * @param id
+     * @param state
+     * @param items
+     */
+    void setStateWithOutbox(String id, S state, List<OutboxItem<S, P>> items);
+
+    /**
+     * Fetch outbox items which are due to be delivered, in the order they were stored.
+     *
+     * @param now   current time in milliseconds.
+     * @param limit max count of items to fetch.
+     * @return
+     */
+    List<OutboxItem<S, P>> fetchOutbox(long now, int limit);
+
+    /**
+     * Update attempts and next attempt time of the outbox items.
+     *
+     * @param items
+     */
+    void updateOutbox(List<OutboxItem<S, P>> items);
+
+    /**
+     * Remove outbox items which are delivered or given up.
+     *
+     * @param items
+     */
+    void removeOutbox(List<OutboxItem<S, P>> items);
+}
@@ -0,0 +1,103 @@
+package com.github.swiftech.swstate;
+
+/**
+ * Options for bulk transitions by {@code transitionAll()} of {@link StateMachine}.
+ * <p>
+ * Usage:
+ * <pre>
+ *     Parallelism.of(8).batchSize(500).throttle(10000).onProgress((done, total) -&gt; ...)
+ * </pre>
+ *
+ * @author swiftech
+ * @since 2.3
+ */
+public class Parallelism {
+
+    private final int parallelism;
+
+    private int batchSize = 1000;
+
+    private int maxTransitionsPerSecond = 0;
+
+    private ProgressListener progressListener;
+
+    private Parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param parallelism count of threads to transit ids concurrently.
+     * @return
+     */
+    public static Parallelism of(int parallelism) {
+        return new Parallelism(parallelism);
+    }
+
+    /**
+     * Count of ids transited in one task and written to the state provider in one batch, default is 1000.
+     *
+     * @param batchSize
+     * @return
+     */
+    public Parallelism batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Limit the rate of transitions to protect downstream systems, default is unlimited.
+     *
+     * @param maxTransitionsPerSecond 0 for unlimited.
+     * @return
+     */
+    public Parallelism throttle(int maxTransitionsPerSecond) {
+        this.maxTransitionsPerSecond = maxTransitionsPerSecond;
+        return this;
+    }
+
+    /**
+     * Listener to be notified after each batch, it's called concurrently from the worker threads.
+     *
+     * @param progressListener
+     * @return
+     */
+    public Parallelism onProgress(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxTransitionsPerSecond() {
+        return maxTransitionsPerSecond;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Progress of a bulk transition.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param done  count of ids processed, including the skipped and failed ones.
+         * @param total count of ids to process.
+         */
+        void onProgress(long done, long total);
+    }
+}
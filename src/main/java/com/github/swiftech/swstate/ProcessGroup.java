@@ -0,0 +1,40 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A group of independent processes which are executed concurrently by {@link StateTransition},
+ * the group completes when all the processes in it finish. Processes before and after the group are
+ * executed in the order of registration, which makes the group a barrier for them.
+ *
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see StateBuilder#inParallel(Process[])
+ * @see StateBuilder#outParallel(Process[])
+ * @since 2.3
+ */
+public class ProcessGroup<P extends Serializable> implements Process<P> {
+
+    private final List<Process<P>> processes;
+
+    public ProcessGroup(List<Process<P>> processes) {
+        this.processes = List.copyOf(processes);
+    }
+
+    /**
+     * Execute all processes sequentially, only if this group is executed out of {@link StateTransition}.
+     *
+     * @param payload
+     */
+    @Override
+    public void execute(P payload) {
+        for (Process<P> process : processes) {
+            process.execute(payload);
+        }
+    }
+
+    public List<Process<P>> getProcesses() {
+        return processes;
+    }
+}
@@ -4,6 +4,10 @@ import com.github.swiftech.swstate.trigger.Trigger;
 import com.github.swiftech.swstate.trigger.TriggerBuilder;
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -31,6 +35,13 @@ public class StateBuilder<S extends Serializable, P extends Serializable> {
     // mapping for states and transition processing.
     final Mapping<S, P> stateMapping = new Mapping<>();
 
+    // @since 2.3, child state -> parent state
+    final Map<S, S> parentMap = new HashMap<>();
+
+    // @since 2.3, state -> configuration of the bulkhead to limit concurrent transitions into it,
+    // a bulkhead is created by each state transition compiled from this builder.
+    final Map<S, Bulkhead> bulkheadMap = new HashMap<>();
+
     private S composeState;
 
     /**
@@ -75,11 +86,7 @@ public class StateBuilder<S extends Serializable, P extends Serializable> {
      * @return
      */
     public StateBuilder<S, P> action(String name, S stateFrom, S stateTo) {
-        if (!hasRoute(stateFrom, stateTo)) {
-            Map<S, Action<S>> toMap = actionMap.computeIfAbsent(stateFrom, k -> new HashMap<>());
-            toMap.put(stateTo, new Action<>(name, stateFrom, stateTo));
-        }
-        return this;
+        return this.addAction(new Action<>(name, stateFrom, stateTo));
     }
 
     /**
@@ -93,9 +100,45 @@ public class StateBuilder<S extends Serializable, P extends Serializable> {
      * @since 2.0
      */
     public StateBuilder<S, P> action(String name, S stateFrom, S stateTo, Trigger... triggers) {
+        return this.addAction(new Action<>(name, stateFrom, stateTo), triggers);
+    }
+
+    /**
+     * Add an action from one state to another, which is only allowed when the guard passes.
+     * The guard is evaluated with the payload when posting or accepting from the state before the action happens.
+     *
+     * @param name      name of the action
+     * @param stateFrom the state before the action happens.
+     * @param stateTo   the state after the action happens.
+     * @param guard     guard to allow the action.
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> action(String name, S stateFrom, S stateTo, Guard<P> guard) {
+        return this.addAction(new GuardedAction<>(name, stateFrom, stateTo, guard));
+    }
+
+    /**
+     * Add an action from one state to another, which is only allowed when the guard passes.
+     *
+     * @param name      name of the action
+     * @param stateFrom the state before the action happens.
+     * @param stateTo   the state after the action happens.
+     * @param guard     guard to allow the action.
+     * @param triggers  triggers to automatically transit the state if the guard passes.
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> action(String name, S stateFrom, S stateTo, Guard<P> guard, Trigger... triggers) {
+        return this.addAction(new GuardedAction<>(name, stateFrom, stateTo, guard), triggers);
+    }
+
+    private StateBuilder<S, P> addAction(Action<S> action, Trigger... triggers) {
+        S stateFrom = action.getStateFrom();
+        S stateTo = action.getStateTo();
         if (!hasRoute(stateFrom, stateTo)) {
-            Map<S, Action<S>> toMap = actionMap.computeIfAbsent(stateFrom, k -> new HashMap<>());
-            toMap.put(stateTo, new Action<>(name, stateFrom, stateTo));
+            Map<S, Action<S>> toMap = actionMap.computeIfAbsent(stateFrom, k -> new LinkedHashMap<>());
+            toMap.put(stateTo, action);
 
             if (triggers != null && triggers.length > 0) {
                 Map<Trigger, S> toByTriggerMap = triggerMap.computeIfAbsent(stateFrom, k -> new LinkedHashMap<>());
@@ -189,6 +232,146 @@ public class StateBuilder<S extends Serializable, P extends Serializable> {
         return this;
     }
 
+    /**
+     * Set the parent of the state, use {@code state()} method to specify a state before calling this method.
+     * The state inherits all actions and triggers from its parent (and ancestors) unless it defines its own actions
+     * to the same target states, the IN/OUT processes of the parent are only executed when entering the parent from
+     * outside or exiting the parent to outside.
+     *
+     * @param parentState
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> parent(S parentState) {
+        if (composeState == null || parentState == null) {
+            throw new StateException("Both the state and its parent are required.");
+        }
+        if (composeState.equals(parentState) || getAncestors(parentState).contains(composeState)) {
+            throw new StateException("Circular hierarchy between state '%s' and '%s'".formatted(composeState, parentState));
+        }
+        parentMap.put(composeState, parentState);
+        return this;
+    }
+
+    /**
+     * Limit concurrent transitions into the state, the transitions exceeding the limit wait in a queue.
+     * The queue is unbounded and the transitions wait without time limit, a synchronous transition blocks until admitted,
+     * use {@code maxConcurrency(int, int, Duration)} to bound them.
+     * The limit applies to each state transition compiled from this builder, which is shared by its state machine,
+     * and by the state machines of tenants sharing the definition.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param maxConcurrency
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> maxConcurrency(int maxConcurrency) {
+        return this.maxConcurrency(maxConcurrency, Bulkhead.Policy.QUEUE);
+    }
+
+    /**
+     * Limit concurrent transitions into the state, the transitions exceeding the limit wait in a queue or are rejected.
+     * The queue is unbounded and the transitions wait without time limit for {@code QUEUE}.
+     * The limit applies to each state transition compiled from this builder.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param maxConcurrency
+     * @param policy
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> maxConcurrency(int maxConcurrency, Bulkhead.Policy policy) {
+        if (composeState == null) {
+            throw new StateException("The state is required.");
+        }
+        bulkheadMap.put(composeState, new Bulkhead(maxConcurrency, policy));
+        return this;
+    }
+
+    /**
+     * Limit concurrent transitions into the state, the transitions exceeding the limit wait in a bounded queue,
+     * and they are rejected if the queue is full or they have waited for {@code maxWait}.
+     * The limit applies to each state transition compiled from this builder.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param maxConcurrency
+     * @param maxQueueLength
+     * @param maxWait        null for no limit.
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> maxConcurrency(int maxConcurrency, int maxQueueLength, Duration maxWait) {
+        if (composeState == null) {
+            throw new StateException("The state is required.");
+        }
+        bulkheadMap.put(composeState, new Bulkhead(maxConcurrency, Bulkhead.Policy.QUEUE, maxQueueLength, maxWait));
+        return this;
+    }
+
+    /**
+     * Get ancestors of the state, from the parent to the root.
+     *
+     * @param state
+     * @return empty list if the state has no parent.
+     * @since 2.3
+     */
+    public List<S> getAncestors(S state) {
+        List<S> ancestors = new ArrayList<>();
+        S parent = parentMap.get(state);
+        while (parent != null) {
+            ancestors.add(parent);
+            parent = parentMap.get(parent);
+        }
+        return ancestors;
+    }
+
+    /**
+     * Compile actions with inherited actions from ancestors for each child state.
+     *
+     * @return the original action map if no hierarchical states.
+     */
+    Map<S, Map<S, Action<S>>> compileActionMap() {
+        if (parentMap.isEmpty()) {
+            return actionMap;
+        }
+        Map<S, Map<S, Action<S>>> compiled = new HashMap<>();
+        actionMap.forEach((from, toMap) -> compiled.put(from, new LinkedHashMap<>(toMap)));
+        for (S child : parentMap.keySet()) {
+            for (S ancestor : getAncestors(child)) {
+                Map<S, Action<S>> inherited = actionMap.get(ancestor);
+                if (inherited != null) {
+                    Map<S, Action<S>> toMap = compiled.computeIfAbsent(child, k -> new LinkedHashMap<>());
+                    inherited.forEach(toMap::putIfAbsent);
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile triggers with inherited triggers from ancestors for each child state,
+     * triggers of the child state take precedence over the inherited ones.
+     *
+     * @return the original trigger map if no hierarchical states.
+     */
+    Map<S, Map<Trigger, S>> compileTriggerMap() {
+        if (parentMap.isEmpty()) {
+            return triggerMap;
+        }
+        Map<S, Map<Trigger, S>> compiled = new HashMap<>();
+        triggerMap.forEach((from, toByTriggerMap) -> compiled.put(from, new LinkedHashMap<>(toByTriggerMap)));
+        for (S child : parentMap.keySet()) {
+            for (S ancestor : getAncestors(child)) {
+                Map<Trigger, S> inherited = triggerMap.get(ancestor);
+                if (inherited != null) {
+                    Map<Trigger, S> toByTriggerMap = compiled.computeIfAbsent(child, k -> new LinkedHashMap<>());
+                    inherited.forEach(toByTriggerMap::putIfAbsent);
+                }
+            }
+        }
+        return compiled;
+    }
+
     /**
      * Add {@link Process} which will be executed before entering a state.
      * Use {@code state()} method to specify a state before calling this method.
@@ -217,6 +400,208 @@ public class StateBuilder<S extends Serializable, P extends Serializable> {
         return this;
     }
 
+    /**
+     * Add {@link Process} which will be executed before entering a state, the transition stops waiting for it
+     * when timed out, and it's handled as a failed process.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @param timeout
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> in(Process<P> process, Duration timeout) {
+        return this.in(new BoundedProcess<>(process, timeout, null));
+    }
+
+    /**
+     * Add {@link Process} which will be executed before entering a state, bounded by the timeout and the circuit breaker.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @param timeout        null for no timeout.
+     * @param circuitBreaker
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> in(Process<P> process, Duration timeout, CircuitBreaker circuitBreaker) {
+        return this.in(new BoundedProcess<>(process, timeout, circuitBreaker));
+    }
+
+    /**
+     * Add {@link Process} which will be executed after exiting a state, the transition stops waiting for it
+     * when timed out, and it's handled as a failed process.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @param timeout
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> out(Process<P> process, Duration timeout) {
+        return this.out(new BoundedProcess<>(process, timeout, null));
+    }
+
+    /**
+     * Add {@link Process} which will be executed after exiting a state, bounded by the timeout and the circuit breaker.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @param timeout        null for no timeout.
+     * @param circuitBreaker
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> out(Process<P> process, Duration timeout, CircuitBreaker circuitBreaker) {
+        return this.out(new BoundedProcess<>(process, timeout, circuitBreaker));
+    }
+
+    /**
+     * Add a group of {@link Process} which will be executed concurrently before entering a state.
+     * The group is executed after the processes added before it, and before the processes added after it.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param processes independent processes
+     * @return
+     * @see StateTransition#setProcessExecutor(java.util.concurrent.Executor)
+     * @since 2.3
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final StateBuilder<S, P> inParallel(Process<P>... processes) {
+        return this.in(new ProcessGroup<>(new ArrayList<>(Arrays.asList(processes))));
+    }
+
+    /**
+     * Add a group of {@link Process} which will be executed concurrently after exiting a state.
+     * The group is executed after the processes added before it, and before the processes added after it.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param processes independent processes
+     * @return
+     * @see StateTransition#setProcessExecutor(java.util.concurrent.Executor)
+     * @since 2.3
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final StateBuilder<S, P> outParallel(Process<P>... processes) {
+        return this.out(new ProcessGroup<>(new ArrayList<>(Arrays.asList(processes))));
+    }
+
+    /**
+     * Add {@link AsyncProcess} which will be executed before entering a state without blocking,
+     * which is the same as {@code in()} but accepts lambda of {@link AsyncProcess}.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> inAsync(AsyncProcess<P> process) {
+        return this.in(process);
+    }
+
+    /**
+     * Add {@link AsyncProcess} which will be executed after exiting a state without blocking,
+     * which is the same as {@code out()} but accepts lambda of {@link AsyncProcess}.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @return
+     * @since 2.3
+     */
+    public StateBuilder<S, P> outAsync(AsyncProcess<P> process) {
+        return this.out(process);
+    }
+
+    /**
+     * Add {@link Process} with side effects which will be delivered through outbox after entering a state.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @return
+     * @see OutboxStateProvider
+     * @since 2.3
+     */
+    public StateBuilder<S, P> inOutbox(Process<P> process) {
+        return this.in(new OutboxProcess<>(process));
+    }
+
+    /**
+     * Add {@link Process} with side effects which will be delivered through outbox after exiting a state.
+     * Use {@code state()} method to specify a state before calling this method.
+     *
+     * @param process
+     * @return
+     * @see OutboxStateProvider
+     * @since 2.3
+     */
+    public StateBuilder<S, P> outOutbox(Process<P> process) {
+        return this.out(new OutboxProcess<>(process));
+    }
+
+    /**
+     * Compile the definition to a state transition whose transition checks and built-in triggers are dispatched
+     * by bytecode generated at runtime, as fast as hand-written {@code switch} statements after warming up.
+     * The generated class is unloaded once the state transition is no longer referenced.
+     * Use it with {@code new StateMachine<>(stateBuilder.compileToBytecode(), stateProvider)}.
+     *
+     * @return
+     * @since 2.3
+     */
+    public StateTransition<S, P> compileToBytecode() {
+        return new BytecodeStateTransition<>(this);
+    }
+
+    /**
+     * Build the state graph for static analysis, like reachability queries and validation.
+     *
+     * @return
+     * @since 2.3
+     */
+    public StateGraph<S> buildGraph() {
+        return new StateGraph<>(this.compileActionMap(), parentMap, stateMapping);
+    }
+
+    /**
+     * Create an immutable set of states for fast membership checks like {@code isStateOfIdIn()}, create it once and reuse it.
+     *
+     * @param states
+     * @return
+     * @since 2.3
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final StateSet<S> stateSet(S... states) {
+        List<S> stateList = new ArrayList<>(Arrays.asList(states));
+        return new StateSet<>(this.indexStates(stateList), stateList);
+    }
+
+    /**
+     * Create an immutable map from condition state to target state for {@code postOnState()}, create it once and reuse it.
+     *
+     * @param conditionStateMap
+     * @return
+     * @since 2.3
+     */
+    public StateMap<S> stateMap(Map<S, S> conditionStateMap) {
+        return new StateMap<>(this.indexStates(conditionStateMap.keySet()), conditionStateMap);
+    }
+
+    /**
+     * Index all states defined, and the extra states which may not be defined yet.
+     */
+    StateIndex<S> indexStates(Collection<S> extraStates) {
+        List<S> states = new ArrayList<>(extraStates);
+        actionMap.forEach((from, toMap) -> {
+            states.add(from);
+            states.addAll(toMap.keySet());
+        });
+        states.addAll(parentMap.keySet());
+        states.addAll(parentMap.values());
+        return new StateIndex<>(states);
+    }
+
     public String getMetaInfo() {
         String template = """
                 State Machine info:
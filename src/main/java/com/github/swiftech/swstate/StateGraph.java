@@ -0,0 +1,261 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static analysis of the state graph built from the actions, with precomputed reachability matrix,
+ * shortest paths and strongly connected components. The null state stands for the state before the initial state.
+ * <p>
+ * Usage:
+ * <pre>
+ *     StateGraph&lt;String&gt; graph = stateBuilder.buildGraph();
+ *     graph.validate();
+ *     graph.canReach("Payed", "Received");
+ * </pre>
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+public class StateGraph<S extends Serializable> {
+
+    private static final int NO_HOP = -1;
+
+    private final StateIndex<S> stateIndex;
+
+    // all states defined by actions and processes, excluding the null state.
+    private final Set<S> states = new LinkedHashSet<>();
+
+    // states which have IN processes.
+    private final Set<S> statesWithIn = new LinkedHashSet<>();
+
+    // states which are entered when the initial state or any state reachable from it is entered, including ancestors.
+    private final Set<S> enteredStates = new LinkedHashSet<>();
+
+    // index -> indexes of the target states.
+    private final int[][] successors;
+
+    // transitive closure, bit j of row i is set if state j is reachable from state i.
+    private final long[][] reachability;
+
+    // next state on one of the shortest paths from state i to state j.
+    private final int[][] nextHops;
+
+    private final List<Set<S>> components = new ArrayList<>();
+
+    <P extends Serializable> StateGraph(Map<S, Map<S, Action<S>>> actionMap, Map<S, S> parentMap, Mapping<S, P> stateMapping) {
+        actionMap.forEach((from, toMap) -> {
+            states.add(from);
+            states.addAll(toMap.keySet());
+        });
+        states.addAll(parentMap.keySet());
+        states.addAll(parentMap.values());
+        stateMapping.getStateMap().forEach((state, subMapping) -> {
+            states.add(state);
+            if (!subMapping.getProcesses(Mapping.StateDirection.IN).isEmpty()) {
+                statesWithIn.add(state);
+            }
+        });
+        states.remove(null);
+        statesWithIn.remove(null);
+        this.stateIndex = new StateIndex<>(states);
+
+        int size = stateIndex.size();
+        this.successors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            Map<S, Action<S>> toMap = actionMap.get(stateIndex.stateOf(i));
+            successors[i] = toMap == null ? new int[0]
+                    : toMap.keySet().stream().mapToInt(stateIndex::indexOf).toArray();
+        }
+        this.reachability = new long[size][(size + 63) >>> 6];
+        this.nextHops = new int[size][];
+        for (int i = 0; i < size; i++) {
+            this.search(i);
+        }
+        this.findComponents();
+
+        for (S state : states) {
+            if (this.canReach(null, state)) {
+                enteredStates.add(state);
+                for (S parent = parentMap.get(state); parent != null; parent = parentMap.get(parent)) {
+                    enteredStates.add(parent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth first search from the source state, to fill its row of reachability matrix and next hops.
+     */
+    private void search(int source) {
+        int[] hops = new int[stateIndex.size()];
+        Arrays.fill(hops, NO_HOP);
+        long[] row = reachability[source];
+        row[source >>> 6] |= 1L << source;
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            for (int next : successors[current]) {
+                if ((row[next >>> 6] & (1L << next)) == 0) {
+                    row[next >>> 6] |= 1L << next;
+                    hops[next] = current == source ? next : hops[current];
+                    queue.add(next);
+                }
+            }
+        }
+        nextHops[source] = hops;
+    }
+
+    /**
+     * Tarjan's algorithm to find strongly connected components, in reverse topological order.
+     */
+    private void findComponents() {
+        int size = stateIndex.size();
+        int[] order = new int[size];
+        int[] lowLink = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(order, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        int[] counter = {0};
+        for (int i = 1; i < size; i++) {
+            if (order[i] < 0 && states.contains(stateIndex.stateOf(i))) {
+                this.connect(i, order, lowLink, onStack, stack, counter);
+            }
+        }
+    }
+
+    private void connect(int v, int[] order, int[] lowLink, boolean[] onStack, Deque<Integer> stack, int[] counter) {
+        order[v] = lowLink[v] = counter[0]++;
+        stack.push(v);
+        onStack[v] = true;
+        for (int w : successors[v]) {
+            if (order[w] < 0) {
+                this.connect(w, order, lowLink, onStack, stack, counter);
+                lowLink[v] = Math.min(lowLink[v], lowLink[w]);
+            }
+            else if (onStack[w]) {
+                lowLink[v] = Math.min(lowLink[v], order[w]);
+            }
+        }
+        if (lowLink[v] == order[v]) {
+            Set<S> component = new LinkedHashSet<>();
+            int w;
+            do {
+                w = stack.pop();
+                onStack[w] = false;
+                component.add(stateIndex.stateOf(w));
+            } while (w != v);
+            components.add(Collections.unmodifiableSet(component));
+        }
+    }
+
+    /**
+     * Whether the state {@code to} can be reached from the state {@code from} by any transitions,
+     * a state can always reach itself.
+     *
+     * @param from null for the state before the initial state.
+     * @param to
+     * @return false if any of the states is unknown.
+     */
+    public boolean canReach(S from, S to) {
+        int i = stateIndex.indexOf(from);
+        int j = stateIndex.indexOf(to);
+        if (i == StateIndex.UNKNOWN_INDEX || j == StateIndex.UNKNOWN_INDEX) {
+            return false;
+        }
+        return (reachability[i][j >>> 6] & (1L << j)) != 0;
+    }
+
+    /**
+     * The next state on one of the shortest paths from the state {@code from} to the state {@code to}.
+     *
+     * @param from null for the state before the initial state.
+     * @param to
+     * @return null if the state {@code to} can't be reached or is the state {@code from}.
+     */
+    public S nextHop(S from, S to) {
+        int i = stateIndex.indexOf(from);
+        int j = stateIndex.indexOf(to);
+        if (i == StateIndex.UNKNOWN_INDEX || j == StateIndex.UNKNOWN_INDEX || nextHops[i][j] == NO_HOP) {
+            return null;
+        }
+        return stateIndex.stateOf(nextHops[i][j]);
+    }
+
+    /**
+     * One of the shortest paths from the state {@code from} to the state {@code to}.
+     *
+     * @param from null for the state before the initial state.
+     * @param to
+     * @return states after {@code from} in order, ends with {@code to}, empty if {@code to} can't be reached or is the state {@code from}.
+     */
+    public List<S> shortestPath(S from, S to) {
+        List<S> path = new ArrayList<>();
+        S current = from;
+        while ((current = this.nextHop(current, to)) != null) {
+            path.add(current);
+        }
+        return path;
+    }
+
+    /**
+     * Strongly connected components of the states, in reverse topological order,
+     * which means no transition from a component to the components before it.
+     *
+     * @return
+     */
+    public List<Set<S>> getStronglyConnectedComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * All states defined by actions, hierarchy and processes.
+     *
+     * @return
+     */
+    public Set<S> getStates() {
+        return Collections.unmodifiableSet(states);
+    }
+
+    /**
+     * States can never be entered from the initial states, a parent state is entered if any of its child states is entered.
+     *
+     * @return
+     */
+    public Set<S> getUnreachableStates() {
+        Set<S> unreachable = new LinkedHashSet<>(states);
+        unreachable.removeAll(enteredStates);
+        return unreachable;
+    }
+
+    /**
+     * Validate the state graph, fail fast if any state can't be reached from the initial states,
+     * or any IN process is defined for a state which is never entered.
+     *
+     * @throws StateException
+     */
+    public void validate() {
+        if (successors[StateIndex.NULL_INDEX].length == 0) {
+            throw new StateException("No initial state is defined");
+        }
+        Set<S> missing = new LinkedHashSet<>(statesWithIn);
+        missing.removeAll(enteredStates);
+        if (!missing.isEmpty()) {
+            throw new StateException("IN processes are defined for states which are never entered: %s".formatted(missing));
+        }
+        Set<S> unreachable = this.getUnreachableStates();
+        if (!unreachable.isEmpty()) {
+            throw new StateException("States can't be reached from the initial states: %s".formatted(unreachable));
+        }
+    }
+}
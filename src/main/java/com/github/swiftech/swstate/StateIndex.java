@@ -0,0 +1,105 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps states to dense indexes, the index 0 is reserved for the null state (before the initial state).
+ * States of an enum are indexed by their ordinals without hashing.
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+class StateIndex<S extends Serializable> {
+
+    static final int NULL_INDEX = 0;
+
+    static final int UNKNOWN_INDEX = -1;
+
+    // index -> state, the first one is null.
+    private final List<S> states;
+
+    // only for enum states.
+    private final Class<?> enumClass;
+
+    // only for non-enum states.
+    private final Map<S, Integer> indexMap;
+
+    @SuppressWarnings("unchecked")
+    StateIndex(Collection<S> allStates) {
+        Set<S> distinct = new LinkedHashSet<>(allStates);
+        distinct.remove(null);
+        Class<?> enumClass = this.detectEnumClass(distinct);
+        this.states = new ArrayList<>();
+        this.states.add(null);
+        if (enumClass != null) {
+            for (Object constant : enumClass.getEnumConstants()) {
+                this.states.add((S) constant);
+            }
+            this.enumClass = enumClass;
+            this.indexMap = null;
+        }
+        else {
+            this.states.addAll(distinct);
+            this.enumClass = null;
+            this.indexMap = new HashMap<>();
+            for (int i = 1; i < states.size(); i++) {
+                indexMap.put(states.get(i), i);
+            }
+        }
+    }
+
+    private Class<?> detectEnumClass(Set<S> states) {
+        Class<?> enumClass = null;
+        for (S state : states) {
+            if (!(state instanceof Enum<?> e)) {
+                return null;
+            }
+            if (enumClass == null) {
+                enumClass = e.getDeclaringClass();
+            }
+            else if (enumClass != e.getDeclaringClass()) {
+                return null;
+            }
+        }
+        return enumClass;
+    }
+
+    /**
+     * @param state
+     * @return {@code UNKNOWN_INDEX} if the state is not indexed.
+     */
+    int indexOf(S state) {
+        if (state == null) {
+            return NULL_INDEX;
+        }
+        if (enumClass != null) {
+            if (state instanceof Enum<?> e && e.getDeclaringClass() == enumClass) {
+                return e.ordinal() + 1;
+            }
+            return UNKNOWN_INDEX;
+        }
+        Integer index = indexMap.get(state);
+        return index == null ? UNKNOWN_INDEX : index;
+    }
+
+    S stateOf(int index) {
+        return states.get(index);
+    }
+
+    /**
+     * Count of indexes, including the null state.
+     *
+     * @return
+     */
+    int size() {
+        return states.size();
+    }
+}
@@ -1,11 +1,23 @@
 package com.github.swiftech.swstate;
 
-import com.github.swiftech.swstate.trigger.Trigger;
+import com.github.swiftech.swstate.event.Event;
+import com.github.swiftech.swstate.event.EventStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * {@link StateMachine} is different from {@link StateTransition}, the state is persisted by {@link StateProvider}.
@@ -32,21 +44,34 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
 
     private final Logger log = LoggerFactory.getLogger(StateMachine.class);
 
-    private final StateTransition<S, P> stateTransition;
+    // @since 2.3, replaced by updateDefinition() as a whole, read only once by each operation.
+    private volatile Definition<S, P> definition;
 
     private StateProvider<S> stateProvider;
 
-    private final Map<S, Map<Trigger, S>> triggerMap;
+    // @since 2.3, if true, an id without stored state is in the initial state.
+    private volatile boolean isLazyStart = false;
+
+    // @since 2.3, if true, the IN processes of the initial state are not executed for lazy started ids.
+    private volatile boolean isSkipInitialProcessForLazyStart = false;
+
+    // @since 2.3, if true, the state of every transition on the path of advanceTo() is written.
+    private volatile boolean isPersistEveryHop = false;
 
     private final String DEFAULT_ID = "DEFAULT_ID";
 
+    // @since 2.3, records every accepted input or posted target if set.
+    private EventStore<S, P> eventStore;
+
+    // @since 2.3, tracks how long ids dwell in states if set.
+    private volatile DwellTimeTracker<S> dwellTimeTracker;
+
     /**
      * Construct state machine with state builder and default state provider.
      */
     public StateMachine(StateBuilder<S, P> stateBuilder) {
-        this.stateTransition = new StateTransition<>(stateBuilder);
-        this.triggerMap = stateBuilder.triggerMap;
-        this.stateProvider = new DefaultStateProvider<>();
+        this.definition = new Definition<>(new StateTransition<>(stateBuilder), null);
+        this.setStateProvider(new DefaultStateProvider<>());
         this.printInfo(stateBuilder);
     }
 
@@ -56,23 +81,101 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @param stateProvider
      */
     public StateMachine(StateBuilder<S, P> stateBuilder, StateProvider<S> stateProvider) {
-        this.stateTransition = new StateTransition<>(stateBuilder);
-        this.triggerMap = stateBuilder.triggerMap;
-        this.stateProvider = stateProvider;
+        this.definition = new Definition<>(new StateTransition<>(stateBuilder), null);
+        this.setStateProvider(stateProvider);
         this.printInfo(stateBuilder);
     }
 
+    /**
+     * Construct state machine with customized state transition, like the one generated by swstate-codegen.
+     *
+     * @param stateTransition
+     * @param stateProvider
+     * @since 2.3
+     */
+    public StateMachine(StateTransition<S, P> stateTransition, StateProvider<S> stateProvider) {
+        this.definition = new Definition<>(stateTransition, null);
+        this.setStateProvider(stateProvider);
+    }
+
     private void printInfo(StateBuilder<S, P> stateBuilder) {
         log.debug(stateBuilder.getMetaInfo());
     }
 
     /**
      * Set user customized state provider.
+     * As of v2.3, if it is an {@link OutboxStateProvider}, the outbox processes are stored as outbox items
+     * with the state, and delivered by {@link OutboxDispatcher}.
      *
      * @param stateProvider
      */
-    public void setStateProvider(StateProvider<S> stateProvider) {
+    public synchronized void setStateProvider(StateProvider<S> stateProvider) {
         this.stateProvider = stateProvider;
+        this.definition.stateTransition.setOutboxEnabled(stateProvider instanceof OutboxStateProvider);
+    }
+
+    /**
+     * Replace the definition of states and actions atomically without stopping the state machine.
+     * Transitions in progress finish with the old definition, and the following ones use the new definition.
+     * Settings like silent, exception handler and process executor are kept, and the definition is compiled to bytecode
+     * if the current one is. The mapping for renamed states of the previous update is removed.
+     *
+     * @param stateBuilder
+     * @since 2.3
+     */
+    public void updateDefinition(StateBuilder<S, P> stateBuilder) {
+        this.updateDefinition(stateBuilder, null);
+    }
+
+    /**
+     * Replace the definition of states and actions atomically without stopping the state machine,
+     * with a mapping for renamed states.
+     * The stored states are not migrated, they are mapped when read and written back by the next transition.
+     * The definition is compiled to bytecode if the current one is.
+     *
+     * @param stateBuilder
+     * @param stateMapping maps a stored state to the state of new definition, must return the state itself if it's not renamed.
+     *                     It replaces the mapping of the previous update, so it should map the states renamed by
+     *                     previous updates as well if they may be still stored. null for no renamed states.
+     * @since 2.3
+     */
+    public synchronized void updateDefinition(StateBuilder<S, P> stateBuilder, Function<S, S> stateMapping) {
+        StateTransition<S, P> newStateTransition = this.definition.stateTransition instanceof BytecodeStateTransition
+                ? stateBuilder.compileToBytecode() : new StateTransition<>(stateBuilder);
+        this.updateDefinition(newStateTransition, stateMapping);
+        this.printInfo(stateBuilder);
+    }
+
+    /**
+     * Replace the definition by a customized state transition, like the one generated by swstate-codegen,
+     * with a mapping for renamed states, see {@code updateDefinition(StateBuilder, Function)}.
+     *
+     * @param stateTransition
+     * @param stateMapping    replaces the mapping of the previous update, null for no renamed states.
+     * @since 2.3
+     */
+    public synchronized void updateDefinition(StateTransition<S, P> stateTransition, Function<S, S> stateMapping) {
+        stateTransition.inheritSettings(this.definition.stateTransition);
+        this.definition = new Definition<>(stateTransition, stateMapping);
+    }
+
+    StateProvider<S> getStateProvider() {
+        return stateProvider;
+    }
+
+    StateTransition<S, P> getStateTransition() {
+        return definition.stateTransition;
+    }
+
+    /**
+     * Set event store to record every start, accepted input, posted target and reset of states,
+     * the recorded events can be replayed by {@link EventReplayer} to rebuild the states.
+     *
+     * @param eventStore null to stop recording.
+     * @since 2.3
+     */
+    public void setEventStore(EventStore<S, P> eventStore) {
+        this.eventStore = eventStore;
     }
 
     /**
@@ -93,6 +196,10 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @return
      */
     public boolean isState(String id, S state) {
+        Definition<S, P> definition = this.definition;
+        if (definition.stateMapping != null || isLazyStart) {
+            return Objects.equals(this.lazyState(definition.stateTransition, this.readState(definition, id)), state);
+        }
         return stateProvider.isState(id, state);
     }
 
@@ -103,7 +210,7 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @return
      */
     public boolean isStateIn(S... states) {
-        return stateProvider.isStateIn(DEFAULT_ID, states);
+        return this.isStateOfIdIn(DEFAULT_ID, states);
     }
 
     /**
@@ -113,9 +220,37 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @return
      */
     public boolean isStateOfIdIn(String id, S... states) {
+        Definition<S, P> definition = this.definition;
+        if (definition.stateMapping != null || isLazyStart) {
+            S currentState = this.lazyState(definition.stateTransition, this.readState(definition, id));
+            return currentState != null && Arrays.asList(states).contains(currentState);
+        }
         return stateProvider.isStateIn(id, states);
     }
 
+    /**
+     * Check state for default id is in the state set.
+     *
+     * @param states
+     * @return
+     * @since 2.3
+     */
+    public boolean isStateIn(StateSet<S> states) {
+        return this.isStateOfIdIn(DEFAULT_ID, states);
+    }
+
+    /**
+     * Check state for {@code id} is in the state set, the current state is read only once.
+     *
+     * @param id
+     * @param states
+     * @return
+     * @since 2.3
+     */
+    public boolean isStateOfIdIn(String id, StateSet<S> states) {
+        return states.contains(this.getCurrentState(id));
+    }
+
     /**
      * Get the current state for default id.
      *
@@ -127,12 +262,65 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
 
     /**
      * Get Current state for {@code id}.
+     * As of v2.3, it's the initial state for an id without stored state in lazy start mode.
      *
      * @param id
      * @return
      */
     public S getCurrentState(String id) {
-        return stateProvider.getCurrentState(id);
+        Definition<S, P> definition = this.definition;
+        return this.lazyState(definition.stateTransition, this.readState(definition, id));
+    }
+
+    /**
+     * Check whether the state {@code target} can still be reached from the current state of {@code id}.
+     *
+     * @param id
+     * @param target
+     * @return
+     * @since 2.3
+     */
+    public boolean canReach(String id, S target) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        return transition.getStateGraph().canReach(this.lazyState(transition, this.readState(definition, id)), target);
+    }
+
+    /**
+     * Execute the outbox process of the item, by the definition which the item is created under,
+     * or by the current definition with the state mapped if the item is deserialized.
+     *
+     * @param item
+     * @since 2.3
+     */
+    void executeOutboxItem(OutboxItem<S, P> item) {
+        Process<P> process = item.getProcess();
+        if (process != null) {
+            process.execute(item.getPayload());
+            return;
+        }
+        Definition<S, P> definition = this.definition;
+        definition.stateTransition.executeOutboxItem(item, definition.mapState(item.getState()));
+    }
+
+    /**
+     * Read the stored state of the id, which is mapped to the state of current definition.
+     *
+     * @param id
+     * @return null if no state stored.
+     */
+    private S readState(Definition<S, P> definition, String id) {
+        return definition.mapState(stateProvider.getCurrentState(id));
+    }
+
+    /**
+     * The current state for the stored state, which is the initial state if nothing stored in lazy start mode.
+     */
+    private S lazyState(StateTransition<S, P> transition, S storedState) {
+        if (storedState == null && isLazyStart) {
+            return transition.getInitialState();
+        }
+        return storedState;
     }
 
     /**
@@ -152,6 +340,8 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      */
     public void resetState(String id, S state) {
         stateProvider.setState(id, state);
+        this.track(id, state);
+        this.record(Event.Type.RESET, id, state, null, null);
     }
 
     /**
@@ -186,12 +376,22 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @param payload
      */
     public void start(String id, P payload) {
-        S currentState = this.getCurrentState(id);
+        Definition<S, P> definition = this.definition;
+        S currentState = this.readState(definition, id);
         if (currentState != null) {
             throw new StateException(String.format("State machine for id '%s' is already started.", id));
         }
-        S initialState = stateTransition.start(payload);
-        stateProvider.initializeState(id, initialState);
+        StateTransition<S, P> transition = definition.stateTransition;
+        if (isLazyStart) {
+            // nothing is stored until the first transition.
+            this.record(Event.Type.START, id, null, null, payload);
+            return;
+        }
+        S initialState = transition.getInitialState();
+        OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+        transition.startState(initialState, payload, outbox);
+        this.saveState(id, initialState, outbox.getItems(), true);
+        this.record(Event.Type.START, id, null, null, payload);
     }
 
     /**
@@ -231,12 +431,16 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @param payload
      */
     public void startStateWithPayload(String id, S initialState, P payload) {
-        S currentState = this.getCurrentState(id);
+        Definition<S, P> definition = this.definition;
+        S currentState = this.readState(definition, id);
         if (currentState != null) {
             throw new StateException(String.format("State machine for id '%s' is already started.", id));
         }
-        stateTransition.startState(initialState, payload);
-        stateProvider.initializeState(id, initialState);
+        StateTransition<S, P> transition = definition.stateTransition;
+        OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+        transition.startState(initialState, payload, outbox);
+        this.saveState(id, initialState, outbox.getItems(), true);
+        this.record(Event.Type.START, id, initialState, null, payload);
     }
 
     /**
@@ -357,13 +561,308 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @return
      */
     public void postWithPayload(String id, S toState, P payload) {
-        S currentState = this.getCurrentState(id);
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        this.doPost(transition, id, storedState, this.lazyState(transition, storedState), toState, payload, false);
+        this.record(Event.Type.POST, id, toState, null, payload);
+    }
+
+    /**
+     * Post current state to be provided state with payload for {@code id}, without blocking on {@link AsyncProcess}.
+     * The state is written when all the processes finish, by the thread which completes the last process.
+     *
+     * @param id
+     * @param toState
+     * @param payload
+     * @return completes when the state is written, fails if the transition is not allowed,
+     * or any process fails if not in silent mode.
+     * @since 2.3
+     */
+    public CompletionStage<Void> postAsync(String id, S toState, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            return CompletableFuture.failedFuture(transition.exception(String.format("State machine for '%s' is not started.", id)));
+        }
+        if (!transition.hasRoute(currentState, toState)) {
+            return CompletableFuture.failedFuture(transition.exception(
+                    String.format("Changing state from '%s' to '%s' is not allowed.", currentState, toState)));
+        }
+        if (!transition.checkGuard(currentState, toState, payload)) {
+            return CompletableFuture.failedFuture(transition.exception(
+                    "Changing state from '%s' to '%s' is rejected by the guard.".formatted(currentState, toState)));
+        }
+        return this.doPostAsync(transition, id, storedState, currentState, toState, payload)
+                .thenRun(() -> this.record(Event.Type.POST, id, toState, null, payload));
+    }
+
+    /**
+     * Accept data with payload from the client to trigger state transition for {@code id}, without blocking on {@link AsyncProcess}.
+     * The state is written when all the processes finish, by the thread which completes the last process.
+     *
+     * @param id
+     * @param data
+     * @param payload
+     * @return completes with true when the state is written, or false if data is not accepted.
+     * @since 2.3
+     */
+    public CompletionStage<Boolean> acceptAsync(String id, Object data, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            return CompletableFuture.failedFuture(transition.exception(String.format("State machine for '%s' is not started.", id)));
+        }
+        S stateTo = transition.resolveTrigger(currentState, data, payload);
+        if (stateTo == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return this.doPostAsync(transition, id, storedState, currentState, stateTo, payload)
+                .thenApply(v -> {
+                    this.record(Event.Type.ACCEPT, id, null, data, payload);
+                    return true;
+                });
+    }
+
+    /**
+     * Asynchronous {@code doPost()} with the route and guard checked by caller.
+     */
+    private CompletableFuture<Void> doPostAsync(StateTransition<S, P> transition, String id, S storedState, S currentState, S toState, P payload) {
+        boolean isLazyStarted = storedState == null;
+        OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+        CompletableFuture<Boolean> stage = isLazyStarted && !isSkipInitialProcessForLazyStart
+                ? transition.transitAsync(null, currentState, payload, outbox) : CompletableFuture.completedFuture(true);
+        return stage.thenCompose(isSucceeded -> transition.transitAsync(currentState, toState, payload, outbox))
+                .thenRun(() -> this.saveState(id, toState, outbox.getItems(), isLazyStarted));
+    }
+
+    /**
+     * Try to post current state to be provided state for {@code id}, without throwing exception
+     * for illegal transitions and failed processes.
+     *
+     * @param id
+     * @param toState
+     * @return
+     * @since 2.3
+     */
+    public TransitionResult tryPost(String id, S toState) {
+        return this.tryPostWithPayload(id, toState, null);
+    }
+
+    /**
+     * Try to post current state to be provided state with payload for {@code id}, without throwing exception
+     * for illegal transitions and failed processes.
+     *
+     * @param id
+     * @param toState
+     * @param payload
+     * @return
+     * @since 2.3
+     */
+    public TransitionResult tryPostWithPayload(String id, S toState, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            return TransitionResult.NOT_STARTED;
+        }
+        if (!transition.hasRoute(currentState, toState)) {
+            return TransitionResult.NO_ROUTE;
+        }
+        if (!transition.checkGuard(currentState, toState, payload)) {
+            return TransitionResult.REJECTED;
+        }
+        return this.tryDoPost(transition, id, storedState, currentState, toState, payload, Event.Type.POST, toState, null);
+    }
+
+    /**
+     * Transit like {@code doPost()} with the route and guard checked by caller, and record the event if the state is written.
+     * In silent mode, the state is written even if any process fails.
+     */
+    private TransitionResult tryDoPost(StateTransition<S, P> transition, String id, S storedState, S currentState, S toState, P payload,
+                                      Event.Type eventType, S eventState, Object data) {
+        boolean isSilent = transition.isSilent();
+        boolean isLazyStarted = storedState == null;
+        OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+        TransitionResult result = isLazyStarted && !isSkipInitialProcessForLazyStart
+                ? transition.tryTransit(null, currentState, payload, outbox) : TransitionResult.OK;
+        if (result.isWritable(isSilent)) {
+            TransitionResult transited = transition.tryTransit(currentState, toState, payload, outbox);
+            if (result.isOk() || !transited.isWritable(isSilent)) {
+                result = transited;
+            }
+        }
+        if (result.isWritable(isSilent)) {
+            this.saveState(id, toState, outbox.getItems(), isLazyStarted);
+            this.record(eventType, id, eventState, data, payload);
+        }
+        return result;
+    }
+
+    /**
+     * Transit from the current state which has been read by caller to the target state, and write it back.
+     * This is the only place to write state for a transition, and the state is never read again here.
+     *
+     * @param transition     the definition read by caller, which is used through the whole transition.
+     * @param id
+     * @param storedState    stored state of the id, null if it's lazy started.
+     * @param currentState   current state of the id.
+     * @param toState
+     * @param payload
+     * @param isGuardChecked true if the guard has been evaluated by caller.
+     */
+    private void doPost(StateTransition<S, P> transition, String id, S storedState, S currentState, S toState, P payload, boolean isGuardChecked) {
         if (log.isTraceEnabled()) log.trace(String.format("Current state for '%s' is '%s'", id, currentState));
         if (currentState == null) {
-            throw new StateException(String.format("State machine for '%s' is not started.", id));
+            throw transition.exception(String.format("State machine for '%s' is not started.", id));
+        }
+        boolean isLazyStarted = storedState == null;
+        // the outbox items of the initial state are included if its IN processes are deferred to this transition.
+        OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+        if (isLazyStarted && !isSkipInitialProcessForLazyStart) {
+            transition.startState(currentState, payload, outbox);
+        }
+        if (isGuardChecked) {
+            transition.transit(currentState, toState, payload, outbox);
+        }
+        else {
+            transition.post(currentState, toState, payload, outbox);
+        }
+        this.saveState(id, toState, outbox.getItems(), isLazyStarted);
+    }
+
+    /**
+     * Write the state after transition, with the outbox items reached by the transition in the same write if any.
+     */
+    @SuppressWarnings("unchecked")
+    private void saveState(String id, S toState, List<OutboxItem<S, P>> items, boolean isInitialize) {
+        if (items.isEmpty()) {
+            if (isInitialize) stateProvider.initializeState(id, toState);
+            else stateProvider.setState(id, toState);
+        }
+        else {
+            OutboxStateProvider<S, P> outboxStateProvider = (OutboxStateProvider<S, P>) stateProvider;
+            if (isInitialize) outboxStateProvider.initializeStateWithOutbox(id, toState, items);
+            else outboxStateProvider.setStateWithOutbox(id, toState, items);
+        }
+        this.track(id, toState);
+    }
+
+    private void track(String id, S state) {
+        DwellTimeTracker<S> tracker = this.dwellTimeTracker;
+        if (tracker != null && state != null) {
+            tracker.onEnter(id, state);
+        }
+    }
+
+    /**
+     * Advance the state for {@code id} to the target state through one of the shortest paths of transitions,
+     * the IN/OUT processes and guards of every transition on the path are executed in order.
+     * Only the final state is written to the state provider, unless {@code setPersistEveryHop(true)}.
+     * If any transition on the path fails, the last state reached is written and the exception is thrown.
+     *
+     * @param id
+     * @param target
+     * @param payload payload for all the transitions on the path.
+     * @return states after the current state on the path in order, empty if already in the target state.
+     * @throws StateException if the state machine is not started, or the target state can't be reached.
+     * @since 2.3
+     */
+    public List<S> advanceTo(String id, S target, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        boolean isPersistEveryHop = this.isPersistEveryHop;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            throw transition.exception(String.format("State machine for '%s' is not started.", id));
+        }
+        if (currentState.equals(target)) {
+            return Collections.emptyList();
+        }
+        List<S> path = transition.getStateGraph().shortestPath(currentState, target);
+        if (path.isEmpty()) {
+            throw transition.exception("No path from state '%s' to '%s'".formatted(currentState, target));
+        }
+        boolean isInitialize = storedState == null;
+        List<OutboxItem<S, P>> items = new ArrayList<>();
+        if (isInitialize && !isSkipInitialProcessForLazyStart) {
+            OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+            transition.startState(currentState, payload, outbox);
+            items.addAll(outbox.getItems());
+        }
+        // the states reached but not written yet.
+        List<S> hops = new ArrayList<>();
+        S reached = currentState;
+        try {
+            for (S hop : path) {
+                // the items of a hop which fails are not written.
+                OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+                transition.post(reached, hop, payload, outbox);
+                items.addAll(outbox.getItems());
+                hops.add(hop);
+                reached = hop;
+                if (isPersistEveryHop) {
+                    this.saveState(id, hop, items, isInitialize);
+                    this.record(Event.Type.POST, id, hop, null, payload);
+                    items = new ArrayList<>();
+                    hops.clear();
+                    isInitialize = false;
+                }
+            }
+        } finally {
+            // a lazily started id is written even if the first hop fails, since the IN processes of the initial state are executed.
+            if (!hops.isEmpty() || isInitialize) {
+                this.saveState(id, reached, items, isInitialize);
+                hops.forEach(hop -> this.record(Event.Type.POST, id, hop, null, payload));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Post to the target state of the first guarded action whose guard passes from the current state for default id.
+     * If no guard passes, nothing will happen.
+     *
+     * @param payload
+     * @return true if any guard passes.
+     * @since 2.3
+     */
+    public boolean postOnGuard(P payload) {
+        return this.postOnGuard(DEFAULT_ID, payload);
+    }
+
+    /**
+     * Post to the target state of the first guarded action whose guard passes from the current state for {@code id}.
+     * All the guards are evaluated against the current state which is read only once.
+     * If no guard passes, nothing will happen.
+     *
+     * @param id
+     * @param payload
+     * @return true if any guard passes.
+     * @since 2.3
+     */
+    public boolean postOnGuard(String id, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            throw transition.exception(String.format("State machine for '%s' is not started.", id));
+        }
+        S targetState = transition.resolveGuard(currentState, payload);
+        if (targetState == null) {
+            log.debug("No guard passes for current state %s".formatted(currentState));
+            return false;
         }
-        stateTransition.post(currentState, toState, payload);
-        stateProvider.setState(id, toState);
+        this.doPost(transition, id, storedState, currentState, targetState, payload, true);
+        this.record(Event.Type.POST, id, targetState, null, payload);
+        return true;
     }
 
     /**
@@ -390,8 +889,13 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @since 2.2
      */
     public void postWithPayloadOnState(String id, final S toState, final S conditionState, P payload) {
-        if (this.isState(conditionState)) {
-            this.postWithPayload(id, toState, payload);
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState != null && currentState.equals(conditionState)) {
+            this.doPost(transition, id, storedState, currentState, toState, payload, false);
+            this.record(Event.Type.POST, id, toState, null, payload);
         }
     }
 
@@ -423,14 +927,25 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @since 2.2
      */
     public void postWithPayloadOnState(String id, final S toState1, final S conditionState1, final S toState2, final S conditionState2, P payload) {
-        if (this.isState(conditionState1)) {
-            this.postWithPayload(id, toState1, payload);
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        S targetState = null;
+        if (currentState != null) {
+            if (currentState.equals(conditionState1)) {
+                targetState = toState1;
+            }
+            else if (currentState.equals(conditionState2)) {
+                targetState = toState2;
+            }
         }
-        else if (this.isState(conditionState2)) {
-            this.postWithPayload(id, toState2, payload);
+        if (targetState != null) {
+            this.doPost(transition, id, storedState, currentState, targetState, payload, false);
+            this.record(Event.Type.POST, id, targetState, null, payload);
         }
         else {
-            log.debug("No target state found for current state %s".formatted(this.getCurrentState()));
+            log.debug("No target state found for current state %s".formatted(currentState));
         }
     }
 
@@ -445,13 +960,138 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @since 2.2
      */
     public void postWithPayloadOnState(String id, Map<S, S> conditionStateMap, P payload) {
-        S targetState = conditionStateMap.get(this.getCurrentState());
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        S targetState = currentState == null ? null : conditionStateMap.get(currentState);
+        this.postToTargetState(transition, id, storedState, currentState, targetState, payload);
+    }
+
+    /**
+     * Determine the target state of the current state according to the provided conditional state mapping,
+     * and post the current state into the target state.
+     * If no state matches, nothing will happen.
+     *
+     * @param id
+     * @param conditionStateMap created by {@code stateMap()} of {@link StateBuilder}.
+     * @since 2.3
+     */
+    public void postOnState(String id, StateMap<S> conditionStateMap) {
+        this.postWithPayloadOnState(id, conditionStateMap, null);
+    }
+
+    /**
+     * Determine the target state of the current state according to the provided conditional state mapping,
+     * and post the current state carrying the payload into the target state.
+     * If no state matches, nothing will happen.
+     *
+     * @param id
+     * @param conditionStateMap created by {@code stateMap()} of {@link StateBuilder}.
+     * @param payload
+     * @since 2.3
+     */
+    public void postWithPayloadOnState(String id, StateMap<S> conditionStateMap, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        S targetState = currentState == null ? null : conditionStateMap.get(currentState);
+        this.postToTargetState(transition, id, storedState, currentState, targetState, payload);
+    }
+
+    /**
+     * Post to the target state determined by the conditional state mapping, nothing happens if it's null.
+     */
+    private void postToTargetState(StateTransition<S, P> transition, String id, S storedState, S currentState,
+                                   S targetState, P payload) {
         if (targetState != null) {
-            this.postWithPayload(id, targetState, payload);
+            this.doPost(transition, id, storedState, currentState, targetState, payload, false);
+            this.record(Event.Type.POST, id, targetState, null, payload);
         }
         else {
-            log.debug("No target state found for current state %s".formatted(this.getCurrentState()));
+            log.debug("No target state found for current state %s".formatted(currentState));
+        }
+    }
+
+    /**
+     * Transit all ids in the state {@code from} to the state {@code to} concurrently, the state provider must be
+     * an {@link IndexedStateProvider} to enumerate the ids. The ids are split into batches, each batch is transited
+     * by a fork-join task and written back to the state provider in one batch. An id is skipped if its state is
+     * changed after enumerated, and an id is failed if its transition throws exception.
+     * The batch is written by {@link StateProvider#compareAndSetStates(Map, Serializable)}, so an id changed by
+     * another transition while its processes are executed is not overwritten, but its processes have been executed.
+     * The ids with outbox items are written one by one without the check, which needs exclusive access to them.
+     * The ids without stored state in lazy start mode are not included.
+     *
+     * @param from
+     * @param to
+     * @param payload     payload for all the transitions.
+     * @param parallelism
+     * @return how many ids are transited.
+     * @since 2.3
+     */
+    public long transitionAll(S from, S to, P payload, Parallelism parallelism) {
+        if (!(stateProvider instanceof IndexedStateProvider<S> indexedStateProvider)) {
+            throw new StateException("The state provider of state machine is not an IndexedStateProvider");
+        }
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        if (!transition.hasRoute(from, to)) {
+            throw transition.exception("Changing state from '%s' to '%s' is not allowed.".formatted(from, to));
+        }
+        // take a snapshot of the ids since the index changes during the transitions.
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        List<String> page;
+        while (!(page = indexedStateProvider.idsInState(from, cursor, parallelism.getBatchSize())).isEmpty()) {
+            ids.addAll(page);
+            cursor = page.get(page.size() - 1);
         }
+        log.info("Transit %d ids from '%s' to '%s'".formatted(ids.size(), from, to));
+        return new BulkTransition(parallelism, ids.size())
+                .run(ids, batch -> this.transitBatch(definition, batch, from, to, payload));
+    }
+
+    private int transitBatch(Definition<S, P> definition, List<String> ids, S from, S to, P payload) {
+        StateTransition<S, P> transition = definition.stateTransition;
+        // id -> stored state, which is expected to be unchanged when written back.
+        Map<String, S> expectedStates = new LinkedHashMap<>();
+        int count = 0;
+        for (String id : ids) {
+            S storedState = stateProvider.getCurrentState(id);
+            S currentState = definition.mapState(storedState);
+            if (!from.equals(currentState)) {
+                continue;
+            }
+            try {
+                OutboxCollector<S, P> outbox = new OutboxCollector<>(id);
+                transition.post(currentState, to, payload, outbox);
+                if (outbox.getItems().isEmpty()) {
+                    expectedStates.put(id, storedState);
+                }
+                else {
+                    this.saveState(id, to, outbox.getItems(), false);
+                    this.record(Event.Type.POST, id, to, null, payload);
+                    count++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to transit '%s' from '%s' to '%s': %s".formatted(id, from, to, e.getMessage()));
+            }
+        }
+        if (!expectedStates.isEmpty()) {
+            List<String> setIds = stateProvider.compareAndSetStates(expectedStates, to);
+            if (setIds.size() < expectedStates.size()) {
+                log.warn("%d ids are changed concurrently and not written to '%s'"
+                        .formatted(expectedStates.size() - setIds.size(), to));
+            }
+            setIds.forEach(id -> {
+                this.track(id, to);
+                this.record(Event.Type.POST, id, to, null, payload);
+            });
+            count += setIds.size();
+        }
+        return count;
     }
 
     /**
@@ -496,30 +1136,104 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @param data
      * @param payload
      * @return true if data is accepted.
+     * @throws StateException if the state machine for the id is not started, as of v2.3.
      * @since 2.0
      */
     public boolean acceptWithPayload(String id, Object data, P payload) {
-        Map<Trigger, S> toByTriggerMap = triggerMap.get(this.getCurrentState());
-        for (Trigger trigger : toByTriggerMap.keySet()) {
-            if (trigger.accept(data, payload)) {
-                if (log.isDebugEnabled())
-                    log.debug("Accept '%s' with payload '%s'".formatted(data, Utils.payloadSummary(payload)));
-                S stateTo = toByTriggerMap.get(trigger);
-                // transit to the next state
-                this.postWithPayload(id, stateTo, payload);
-                return true;
-            }
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            throw transition.exception(String.format("State machine for '%s' is not started.", id));
+        }
+        S stateTo = transition.resolveTrigger(currentState, data, payload);
+        if (stateTo != null) {
+            if (log.isDebugEnabled())
+                log.debug("Accept '%s' with payload '%s'".formatted(data, Utils.payloadSummary(payload)));
+            // transit to the next state
+            this.doPost(transition, id, storedState, currentState, stateTo, payload, true);
+            this.record(Event.Type.ACCEPT, id, null, data, payload);
+            return true;
         }
         return false;
     }
 
+    /**
+     * Try to accept data from the client to trigger state transition for {@code id}, without throwing exception
+     * for illegal transitions and failed processes.
+     *
+     * @param id
+     * @param data
+     * @return
+     * @since 2.3
+     */
+    public TransitionResult tryAccept(String id, Object data) {
+        return this.tryAcceptWithPayload(id, data, null);
+    }
+
+    /**
+     * Try to accept data with payload from the client to trigger state transition for {@code id}, without throwing exception
+     * for illegal transitions and failed processes.
+     *
+     * @param id
+     * @param data
+     * @param payload
+     * @return
+     * @since 2.3
+     */
+    public TransitionResult tryAcceptWithPayload(String id, Object data, P payload) {
+        Definition<S, P> definition = this.definition;
+        StateTransition<S, P> transition = definition.stateTransition;
+        S storedState = this.readState(definition, id);
+        S currentState = this.lazyState(transition, storedState);
+        if (currentState == null) {
+            return TransitionResult.NOT_STARTED;
+        }
+        S stateTo = transition.resolveTrigger(currentState, data, payload);
+        if (stateTo == null) {
+            return TransitionResult.NO_TRIGGER;
+        }
+        return this.tryDoPost(transition, id, storedState, currentState, stateTo, payload, Event.Type.ACCEPT, null, data);
+    }
+
+    /**
+     * Get all guarded actions with statistics of their guards.
+     *
+     * @return
+     * @since 2.3
+     */
+    public List<GuardedAction<S, P>> getGuardedActions() {
+        return definition.stateTransition.getGuardedActions();
+    }
+
+    /**
+     * Set tracker to record how long ids dwell in states, the ids are tracked from their next written states.
+     *
+     * @param dwellTimeTracker null to stop tracking.
+     * @since 2.3
+     */
+    public void setDwellTimeTracker(DwellTimeTracker<S> dwellTimeTracker) {
+        this.dwellTimeTracker = dwellTimeTracker;
+    }
+
+    public DwellTimeTracker<S> getDwellTimeTracker() {
+        return dwellTimeTracker;
+    }
+
+    private void record(Event.Type type, String id, S state, Object data, P payload) {
+        if (eventStore != null) {
+            eventStore.append(new Event<>(type, id, state, data, payload));
+        }
+    }
+
     /**
      * Handler to be notified when an internal exception occurs.
      *
      * @param exceptionHandler
      */
-    public void setExceptionHandler(ExceptionHandler exceptionHandler) {
-        this.stateTransition.setExceptionHandler(exceptionHandler);
+    public synchronized void setExceptionHandler(ExceptionHandler exceptionHandler) {
+        this.definition.stateTransition.setExceptionHandler(exceptionHandler);
     }
 
     /**
@@ -527,8 +1241,102 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      *
      * @param silent
      */
-    public void setSilent(boolean silent) {
-        this.stateTransition.setSilent(silent);
+    public synchronized void setSilent(boolean silent) {
+        this.definition.stateTransition.setSilent(silent);
+    }
+
+    /**
+     * Set whether exceptions for illegal transitions are created without stack trace, which is much cheaper
+     * if illegal transitions are frequent and expected. Consider {@code tryPost*} and {@code tryAccept*} methods
+     * to avoid exceptions at all.
+     *
+     * @param stacklessExceptions
+     * @since 2.3
+     */
+    public synchronized void setStacklessExceptions(boolean stacklessExceptions) {
+        this.definition.stateTransition.setStacklessExceptions(stacklessExceptions);
+    }
+
+    /**
+     * Set max time for all the processes of a transition, the process running when timed out is interrupted,
+     * and it's handled as a failed process. Every synchronous process is executed by the process executor while it's set.
+     *
+     * @param transitionTimeout null for no limit.
+     * @since 2.3
+     */
+    public synchronized void setTransitionTimeout(Duration transitionTimeout) {
+        this.definition.stateTransition.setTransitionTimeout(transitionTimeout);
+    }
+
+    /**
+     * Circuit breakers of all processes, for metrics.
+     *
+     * @return
+     * @since 2.3
+     */
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return definition.stateTransition.getCircuitBreakers();
+    }
+
+    /**
+     * Bulkhead which limits concurrent transitions into the state, for metrics.
+     *
+     * @param state
+     * @return null if no limit.
+     * @since 2.3
+     */
+    public Bulkhead getBulkhead(S state) {
+        return definition.stateTransition.getBulkhead(state);
+    }
+
+    /**
+     * Set executor to execute processes in a group concurrently, the processes with timeout, and the processes after
+     * an {@link AsyncProcess} in asynchronous transitions, default is a shared cached pool of daemon threads.
+     * It must be dedicated to the processes if timeouts are used, since the processes timed out are interrupted.
+     *
+     * @param processExecutor
+     * @since 2.3
+     */
+    public synchronized void setProcessExecutor(Executor processExecutor) {
+        this.definition.stateTransition.setProcessExecutor(processExecutor);
+    }
+
+    /**
+     * If true, an id without stored state is in the initial state, {@code start()} stores nothing and
+     * the state is stored by the first transition. The IN processes of the initial state are deferred to
+     * the first transition unless {@code setSkipInitialProcessForLazyStart(true)}, and they are executed with
+     * the payload of the first transition, since the payload of {@code start()} is not stored.
+     * Only for definition with one initial state.
+     *
+     * @param lazyStart
+     * @since 2.3
+     */
+    public synchronized void setLazyStart(boolean lazyStart) {
+        if (lazyStart) {
+            // check there is exactly one initial state.
+            this.definition.stateTransition.getInitialState();
+        }
+        this.isLazyStart = lazyStart;
+    }
+
+    /**
+     * If true, the IN processes of the initial state are not executed for lazy started ids.
+     *
+     * @param skipInitialProcessForLazyStart
+     * @since 2.3
+     */
+    public void setSkipInitialProcessForLazyStart(boolean skipInitialProcessForLazyStart) {
+        this.isSkipInitialProcessForLazyStart = skipInitialProcessForLazyStart;
+    }
+
+    /**
+     * If true, {@code advanceTo()} writes the state of every transition on the path, otherwise only the final state.
+     *
+     * @param persistEveryHop
+     * @since 2.3
+     */
+    public void setPersistEveryHop(boolean persistEveryHop) {
+        this.isPersistEveryHop = persistEveryHop;
     }
 
     /**
@@ -537,8 +1345,8 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @param noInProcessForSelfCirculation
      * @since 2.2
      */
-    public void setNoInProcessForSelfCirculation(boolean noInProcessForSelfCirculation) {
-        this.stateTransition.setNoInProcessForSelfCirculation(noInProcessForSelfCirculation);
+    public synchronized void setNoInProcessForSelfCirculation(boolean noInProcessForSelfCirculation) {
+        this.definition.stateTransition.setNoInProcessForSelfCirculation(noInProcessForSelfCirculation);
     }
 
     /**
@@ -547,7 +1355,29 @@ public class StateMachine<S extends Serializable, P extends Serializable> {
      * @param noOutProcessForSelfCirculation
      * @since 2.2
      */
-    public void setNoOutProcessForSelfCirculation(boolean noOutProcessForSelfCirculation) {
-        this.stateTransition.setNoOutProcessForSelfCirculation(noOutProcessForSelfCirculation);
+    public synchronized void setNoOutProcessForSelfCirculation(boolean noOutProcessForSelfCirculation) {
+        this.definition.stateTransition.setNoOutProcessForSelfCirculation(noOutProcessForSelfCirculation);
+    }
+
+    /**
+     * The state transition and the mapping for renamed states, which are replaced together by {@code updateDefinition()}.
+     *
+     * @since 2.3
+     */
+    private static final class Definition<S extends Serializable, P extends Serializable> {
+
+        private final StateTransition<S, P> stateTransition;
+
+        // maps the stored states to the states of this definition lazily on reading, null for no renamed states.
+        private final Function<S, S> stateMapping;
+
+        private Definition(StateTransition<S, P> stateTransition, Function<S, S> stateMapping) {
+            this.stateTransition = stateTransition;
+            this.stateMapping = stateMapping;
+        }
+
+        private S mapState(S state) {
+            return state == null || stateMapping == null ? state : stateMapping.apply(state);
+        }
     }
 }
@@ -0,0 +1,129 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of state machines for many tenants. Tenants with identical definitions share one compiled
+ * definition, and the states of all tenants are stored in one shared {@link StateProvider}
+ * by the key of (tenant, id), so the memory scales with the count of distinct definitions instead of tenants.
+ * If the shared state provider is an {@link IndexedStateProvider}, so is the state provider of each tenant.
+ * <p>
+ * Two definitions are identical if they have the same states, actions, triggers and parents, and the same
+ * instances of guards, custom triggers and processes. Each tenant has its own {@link StateTransition} over the shared
+ * definition, so settings like {@code setSilent()} of a state machine apply to the tenant only,
+ * while the circuit breakers and bulkheads of the definition are shared.
+ * <p>
+ * Usage:
+ * <pre>
+ *     StateMachineRegistry&lt;String, Order&gt; registry = new StateMachineRegistry&lt;&gt;(sharedStateProvider);
+ *     registry.register("tenant-1", stateBuilder);
+ *     registry.get("tenant-1").start("order-1");
+ * </pre>
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class StateMachineRegistry<S extends Serializable, P extends Serializable> {
+
+    private final StateProvider<S> sharedStateProvider;
+
+    // tenant -> state machine
+    private final Map<String, StateMachine<S, P>> stateMachines = new ConcurrentHashMap<>();
+
+    // tenant -> key of its definition
+    private final Map<String, DefinitionKey> tenantDefinitions = new HashMap<>();
+
+    // key of definition -> shared definition
+    private final Map<DefinitionKey, SharedDefinition<S, P>> definitions = new HashMap<>();
+
+    /**
+     * @param sharedStateProvider stores the states of all tenants, must be thread-safe if tenants run concurrently.
+     */
+    public StateMachineRegistry(StateProvider<S> sharedStateProvider) {
+        this.sharedStateProvider = sharedStateProvider;
+    }
+
+    /**
+     * Register a tenant with its definition, the definition is compiled only if no identical one is registered.
+     * If the tenant is registered already, its definition is replaced and its states are kept.
+     * The state builder should not be modified after registering.
+     *
+     * @param tenant
+     * @param stateBuilder
+     * @return state machine of the tenant.
+     */
+    public synchronized StateMachine<S, P> register(String tenant, StateBuilder<S, P> stateBuilder) {
+        DefinitionKey key = new DefinitionKey(stateBuilder);
+        if (key.equals(tenantDefinitions.get(tenant))) {
+            return stateMachines.get(tenant);
+        }
+        this.unregister(tenant);
+        SharedDefinition<S, P> definition = definitions.computeIfAbsent(key,
+                k -> new SharedDefinition<>(new StateTransition<>(stateBuilder)));
+        definition.tenantCount++;
+        tenantDefinitions.put(tenant, key);
+        StateMachine<S, P> stateMachine = new StateMachine<>(new StateTransition<>(definition.stateTransition),
+                TenantStateProvider.create(tenant, sharedStateProvider));
+        stateMachines.put(tenant, stateMachine);
+        return stateMachine;
+    }
+
+    /**
+     * Remove the tenant, the states of it in the shared state provider are not removed.
+     *
+     * @param tenant
+     */
+    public synchronized void unregister(String tenant) {
+        DefinitionKey key = tenantDefinitions.remove(tenant);
+        if (key == null) {
+            return;
+        }
+        stateMachines.remove(tenant);
+        SharedDefinition<S, P> definition = definitions.get(key);
+        if (--definition.tenantCount == 0) {
+            definitions.remove(key);
+        }
+    }
+
+    /**
+     * Get state machine of the tenant.
+     *
+     * @param tenant
+     * @return null if the tenant is not registered.
+     */
+    public StateMachine<S, P> get(String tenant) {
+        return stateMachines.get(tenant);
+    }
+
+    /**
+     * How many tenants are registered.
+     *
+     * @return
+     */
+    public int getTenantCount() {
+        return stateMachines.size();
+    }
+
+    /**
+     * How many distinct definitions are compiled.
+     *
+     * @return
+     */
+    public synchronized int getDefinitionCount() {
+        return definitions.size();
+    }
+
+    private static class SharedDefinition<S extends Serializable, P extends Serializable> {
+        private final StateTransition<S, P> stateTransition;
+        private int tenantCount = 0;
+
+        private SharedDefinition(StateTransition<S, P> stateTransition) {
+            this.stateTransition = stateTransition;
+        }
+    }
+}
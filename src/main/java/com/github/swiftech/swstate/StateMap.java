@@ -0,0 +1,59 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable map from condition state to target state, which looks up the target by the index of the state.
+ * States of an enum are indexed by their ordinals without hashing, so create it once by
+ * {@link StateBuilder#stateMap(Map)} and reuse it for every conditional post.
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+public final class StateMap<S extends Serializable> {
+
+    private final StateIndex<S> stateIndex;
+
+    // index of condition state -> target state.
+    private final Object[] targets;
+
+    StateMap(StateIndex<S> stateIndex, Map<S, S> conditionStateMap) {
+        this.stateIndex = stateIndex;
+        this.targets = new Object[stateIndex.size()];
+        conditionStateMap.forEach((condition, target) -> {
+            int index = stateIndex.indexOf(condition);
+            if (index > StateIndex.NULL_INDEX) {
+                targets[index] = target;
+            }
+        });
+    }
+
+    /**
+     * @param conditionState
+     * @return the target state, null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public S get(S conditionState) {
+        int index = stateIndex.indexOf(conditionState);
+        return index > StateIndex.NULL_INDEX ? (S) targets[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<S, S> toMap() {
+        Map<S, S> map = new LinkedHashMap<>();
+        for (int i = 1; i < targets.length; i++) {
+            if (targets[i] != null) {
+                map.put(stateIndex.stateOf(i), (S) targets[i]);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "StateMap" + this.toMap();
+    }
+}
@@ -1,6 +1,10 @@
 package com.github.swiftech.swstate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * State provider let you implement your own state provider to store and retrieve states.
@@ -51,4 +55,35 @@ public interface StateProvider<S extends Serializable> {
      */
     boolean isStateIn(String id, S... states);
 
+    /**
+     * Set states of many ids in one batch, override it to write them efficiently.
+     *
+     * @param states id -> state
+     * @since 2.3
+     */
+    default void setStates(Map<String, S> states) {
+        states.forEach(this::setState);
+    }
+
+    /**
+     * Set the state of many ids in one batch, but only of the ids whose current states are still the expected ones.
+     * The default implementation checks and sets the ids one by one, which is not atomic,
+     * override it to compare and set each id atomically.
+     *
+     * @param expectedStates id -> expected current state
+     * @param state
+     * @return ids whose states are set.
+     * @since 2.3
+     */
+    default List<String> compareAndSetStates(Map<String, S> expectedStates, S state) {
+        List<String> setIds = new ArrayList<>(expectedStates.size());
+        expectedStates.forEach((id, expected) -> {
+            if (Objects.equals(this.getCurrentState(id), expected)) {
+                this.setState(id, state);
+                setIds.add(id);
+            }
+        });
+        return setIds;
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of states, which tests membership by one bit of the index of the state.
+ * States of an enum are indexed by their ordinals without hashing, so create it once by
+ * {@link StateBuilder#stateSet(Serializable[])} and reuse it for every check.
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @since 2.3
+ */
+public final class StateSet<S extends Serializable> {
+
+    private final StateIndex<S> stateIndex;
+
+    private final long[] bits;
+
+    StateSet(StateIndex<S> stateIndex, Collection<S> states) {
+        this.stateIndex = stateIndex;
+        this.bits = new long[(stateIndex.size() + 63) >>> 6];
+        for (S state : states) {
+            int index = stateIndex.indexOf(state);
+            if (index > StateIndex.NULL_INDEX) {
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+    }
+
+    /**
+     * @param state
+     * @return false for null state.
+     */
+    public boolean contains(S state) {
+        int index = stateIndex.indexOf(state);
+        return index > StateIndex.NULL_INDEX && (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public Set<S> toSet() {
+        Set<S> states = new LinkedHashSet<>();
+        for (int i = 1; i < stateIndex.size(); i++) {
+            if ((bits[i >>> 6] & (1L << i)) != 0) {
+                states.add(stateIndex.stateOf(i));
+            }
+        }
+        return states;
+    }
+
+    @Override
+    public String toString() {
+        return "StateSet" + this.toSet();
+    }
+}
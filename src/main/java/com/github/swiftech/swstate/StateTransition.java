@@ -1,12 +1,26 @@
 package com.github.swiftech.swstate;
 
+import com.github.swiftech.swstate.trigger.Trigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.github.swiftech.swstate.Mapping.StateDirection;
 
 /**
  * Executes processes when state in or out.
@@ -22,14 +36,58 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
 
     private final Logger log = LoggerFactory.getLogger(StateTransition.class);
 
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private static final long NO_TIMEOUT = -1;
+
+    // @since 2.3, default executor of processes executed concurrently, threads are created on demand and reused,
+    // since processes are likely to block on I/O which would starve the common fork-join pool.
+    static final Executor DEFAULT_PROCESS_EXECUTOR = createDefaultProcessExecutor();
+
     // state from -> state to -> action
     protected Map<S, Map<S, Action<S>>> actionMap;
 
-    // mapping for states and actions.
+    // mapping for states and actions, as of v2.3 it's an immutable copy of the mapping in state builder.
     protected Mapping<S, P> stateMapping;
 
+    // @since 2.3, state from -> trigger -> state to, including inherited triggers.
+    protected Map<S, Map<Trigger, S>> triggerMap;
+
+    // @since 2.3, state from -> guarded actions in the order of definition.
+    private final Map<S, List<GuardedAction<S, P>>> guardIndex;
+
+    // @since 2.3, state from -> state to -> states to exit and enter, only for transitions of hierarchical states.
+    private final Map<S, Map<S, Boundary<S>>> boundaryMap;
+
+    // @since 2.3, if true, exceptions for illegal transitions are created without stack trace.
+    private boolean isStacklessExceptions = false;
+
+    // @since 2.3, max time for all processes of a transition, null for no limit.
+    private Duration transitionTimeout;
+
+    // @since 2.3, circuit breakers of all bounded processes.
+    private final List<CircuitBreaker> circuitBreakers;
+
+    // @since 2.3, whether any bounded process has timeout.
+    private final boolean hasProcessTimeouts;
+
+    // @since 2.3, index of states with bulkheads, null if no bulkheads.
+    private final StateIndex<S> bulkheadIndex;
+
+    // @since 2.3, index of state -> bulkhead.
+    private final Bulkhead[] bulkheads;
+
+    // @since 2.3, built on first use since most state machines never query it, shared with the tenant views.
+    private final StateGraphHolder<S> stateGraphHolder;
+
+    // @since 2.3, the only initial state, null if there are none or more than one.
+    private final S initialState;
+
     private ExceptionHandler exceptionHandler;
 
+    // @since 2.3, executor to execute processes in a group concurrently.
+    private Executor processExecutor = DEFAULT_PROCESS_EXECUTOR;
+
     // silent if exception in state processes happens.
     // if false, a {@link StateException} throws.
     private boolean isSilent = true;
@@ -40,14 +98,147 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
     // @since 2.2, if true, the OUT process will not be executed for self-circulation state transition.
     private boolean isNoOutProcessForSelfCirculation = false;
 
+    // @since 2.3, if true, outbox processes are not executed but collected as outbox items.
+    private boolean isOutboxEnabled = false;
+
+    // @since 2.3, if true, the processes are executed by dispatchIn()/dispatchOut() instead of being looked up.
+    private final boolean isDirectDispatch;
+
     /**
      * Construct state transition with state builder.
      *
      * @param stateBuilder
      */
     public StateTransition(StateBuilder<S, P> stateBuilder) {
-        this.actionMap = stateBuilder.actionMap;
-        this.stateMapping = stateBuilder.stateMapping;
+        this(stateBuilder, false);
+    }
+
+    /**
+     * Construct state transition with state builder, the processes are executed by {@link #dispatchIn(Serializable, Serializable)}
+     * and {@link #dispatchOut(Serializable, Serializable)} directly if {@code isDirectDispatch} is true, except when
+     * the transition timeout is set, then the processes registered in the state builder are executed instead.
+     *
+     * @param stateBuilder
+     * @param isDirectDispatch
+     * @since 2.3
+     */
+    protected StateTransition(StateBuilder<S, P> stateBuilder, boolean isDirectDispatch) {
+        this.isDirectDispatch = isDirectDispatch;
+        this.actionMap = stateBuilder.compileActionMap();
+        this.triggerMap = stateBuilder.compileTriggerMap();
+        this.stateMapping = stateBuilder.stateMapping.immutableCopy();
+        this.boundaryMap = new HashMap<>();
+        if (!stateBuilder.parentMap.isEmpty()) {
+            this.compileBoundaries(stateBuilder);
+        }
+        this.guardIndex = new HashMap<>();
+        this.compileGuards();
+        Map<S, Action<S>> initialActions = actionMap.get(null);
+        this.initialState = initialActions == null || initialActions.size() != 1
+                ? null : initialActions.values().iterator().next().getStateTo();
+        Map<S, S> parentMap = new HashMap<>(stateBuilder.parentMap);
+        this.stateGraphHolder = new StateGraphHolder<>(() -> new StateGraph<>(actionMap, parentMap, stateMapping));
+        List<BoundedProcess<P>> boundedProcesses = this.collectBoundedProcesses();
+        this.circuitBreakers = boundedProcesses.stream().map(BoundedProcess::getCircuitBreaker)
+                .filter(Objects::nonNull).distinct().toList();
+        this.hasProcessTimeouts = boundedProcesses.stream().anyMatch(p -> p.getTimeout() != null);
+        if (stateBuilder.bulkheadMap.isEmpty()) {
+            this.bulkheadIndex = null;
+            this.bulkheads = null;
+        }
+        else {
+            this.bulkheadIndex = new StateIndex<>(stateBuilder.bulkheadMap.keySet());
+            this.bulkheads = new Bulkhead[bulkheadIndex.size()];
+            // the bulkheads in the builder are configurations, the permits are not shared with other definitions.
+            stateBuilder.bulkheadMap.forEach((state, bulkhead) -> bulkheads[bulkheadIndex.indexOf(state)] = new Bulkhead(
+                    bulkhead.getMaxConcurrency(), bulkhead.getPolicy(), bulkhead.getMaxQueueLength(), bulkhead.getMaxWait()));
+        }
+    }
+
+    /**
+     * Construct state transition which shares the compiled definition of another one, with its own settings.
+     *
+     * @param definition
+     * @since 2.3
+     */
+    StateTransition(StateTransition<S, P> definition) {
+        this.actionMap = definition.actionMap;
+        this.triggerMap = definition.triggerMap;
+        this.stateMapping = definition.stateMapping;
+        this.boundaryMap = definition.boundaryMap;
+        this.guardIndex = definition.guardIndex;
+        this.initialState = definition.initialState;
+        this.stateGraphHolder = definition.stateGraphHolder;
+        this.circuitBreakers = definition.circuitBreakers;
+        this.hasProcessTimeouts = definition.hasProcessTimeouts;
+        this.bulkheadIndex = definition.bulkheadIndex;
+        this.bulkheads = definition.bulkheads;
+        // the dispatch methods are not inherited, the processes are looked up instead.
+        this.isDirectDispatch = false;
+    }
+
+    private List<BoundedProcess<P>> collectBoundedProcesses() {
+        List<BoundedProcess<P>> boundedProcesses = new ArrayList<>();
+        Deque<Process<P>> processes = new ArrayDeque<>();
+        for (Mapping.SubMapping<P> subMapping : stateMapping.getStateMap().values()) {
+            processes.addAll(subMapping.getProcesses(StateDirection.IN));
+            processes.addAll(subMapping.getProcesses(StateDirection.OUT));
+        }
+        while (!processes.isEmpty()) {
+            Process<P> process = processes.poll();
+            if (process instanceof BoundedProcess<P> boundedProcess) {
+                boundedProcesses.add(boundedProcess);
+                processes.add(boundedProcess.getProcess());
+            }
+            else if (process instanceof ProcessGroup<P> processGroup) {
+                processes.addAll(processGroup.getProcesses());
+            }
+        }
+        return boundedProcesses;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compileGuards() {
+        actionMap.forEach((from, toMap) -> {
+            for (Action<S> action : toMap.values()) {
+                if (action instanceof GuardedAction) {
+                    guardIndex.computeIfAbsent(from, k -> new ArrayList<>()).add((GuardedAction<S, P>) action);
+                }
+            }
+        });
+    }
+
+    /**
+     * Pre-compute the states to exit and enter for each transition of hierarchical states.
+     * States are exited from the 'from' state up to the closest common ancestor (exclusive),
+     * and entered from below the closest common ancestor down to the 'to' state.
+     */
+    private void compileBoundaries(StateBuilder<S, P> stateBuilder) {
+        for (S from : actionMap.keySet()) {
+            List<S> fromAncestors = from == null ? Collections.emptyList() : stateBuilder.getAncestors(from);
+            for (S to : actionMap.get(from).keySet()) {
+                List<S> toAncestors = stateBuilder.getAncestors(to);
+                if (fromAncestors.isEmpty() && toAncestors.isEmpty()) {
+                    continue;
+                }
+                S common = toAncestors.stream().filter(fromAncestors::contains).findFirst().orElse(null);
+                List<S> exits = new ArrayList<>();
+                if (from != null) {
+                    exits.add(from);
+                    for (S ancestor : fromAncestors) {
+                        if (ancestor.equals(common)) break;
+                        exits.add(ancestor);
+                    }
+                }
+                List<S> enters = new ArrayList<>();
+                enters.add(to);
+                for (S ancestor : toAncestors) {
+                    if (ancestor.equals(common)) break;
+                    enters.add(0, ancestor);
+                }
+                boundaryMap.computeIfAbsent(from, k -> new HashMap<>()).put(to, new Boundary<>(exits, enters));
+            }
+        }
     }
 
     /**
@@ -66,6 +257,21 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
      * @return the initial state
      */
     public S start(P payload) {
+        S stateTo = this.getInitialState();
+        this.doPost(null, stateTo, payload, null);
+        return stateTo;
+    }
+
+    /**
+     * Get the only initial state.
+     *
+     * @return the initial state
+     * @since 2.3
+     */
+    S getInitialState() {
+        if (initialState != null) {
+            return initialState;
+        }
         Map<S, Action<S>> actionMap = this.actionMap.get(null);
         if (actionMap == null || actionMap.isEmpty()) {
             throw new StateException("StateTransition is not properly built, no initial actions.");
@@ -73,10 +279,7 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
         if (actionMap.size() > 1) {
             throw new StateException("More than one initial state, use startState() instead.");
         }
-        Optional<Action<S>> optAction = actionMap.values().stream().findFirst();
-        S stateTo = optAction.get().getStateTo();
-        optAction.ifPresent(sAction -> this.doPost(null, stateTo, payload));
-        return stateTo;
+        return actionMap.values().iterator().next().getStateTo();
     }
 
     /**
@@ -87,7 +290,7 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
      */
     public void startState(final S state) {
         if (log.isDebugEnabled()) log.debug(String.format("Start state at '%s'", state));
-        this.doPost(null, state, null);
+        this.doPost(null, state, null, null);
     }
 
     /**
@@ -98,8 +301,20 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
      * @return
      */
     public void startState(final S state, P payload) {
+        this.startState(state, payload, null);
+    }
+
+    /**
+     * Start the state transition with specified initial state and payload, and collect the outbox items.
+     *
+     * @param state
+     * @param payload
+     * @param outbox  null to skip the outbox processes without collecting.
+     * @since 2.3
+     */
+    void startState(final S state, P payload, OutboxCollector<S, P> outbox) {
         if (log.isDebugEnabled()) log.debug(String.format("Start state at '%s' with payload", state));
-        this.doPost(null, state, payload);
+        this.doPost(null, state, payload, outbox);
     }
 
     /**
@@ -111,7 +326,7 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
      */
     public void post(final S from, final S to) {
         if (log.isDebugEnabled()) log.debug(String.format("Try to change state from '%s' to '%s'", from, to));
-        this.doPost(from, to, null);
+        this.doPost(from, to, null, null);
     }
 
     /**
@@ -123,14 +338,168 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
      * @return
      */
     public void post(final S from, final S to, P payload) {
-        Map<S, Action<S>> toMap = this.actionMap.get(from);
-        if (toMap == null)
-            throw new StateException("No state transitions from '%s' have been defined.".formatted(from));
-        Action<S> action = toMap.get(to);
-        if (log.isDebugEnabled())
+        this.post(from, to, payload, null);
+    }
+
+    /**
+     * Post from one specified state to new state with payload, and collect the outbox items.
+     *
+     * @param from
+     * @param to
+     * @param payload
+     * @param outbox  null to skip the outbox processes without collecting.
+     * @since 2.3
+     */
+    void post(final S from, final S to, P payload, OutboxCollector<S, P> outbox) {
+        if (!this.checkGuard(from, to, payload)) {
+            throw this.exception("Changing state from '%s' to '%s' is rejected by the guard.".formatted(from, to));
+        }
+        this.transit(from, to, payload, outbox);
+    }
+
+    /**
+     * Try to post from one specified state to new state with payload, without throwing exception
+     * for illegal transitions and failed processes.
+     *
+     * @param from
+     * @param to
+     * @param payload
+     * @return
+     * @since 2.3
+     */
+    public TransitionResult tryPost(final S from, final S to, P payload) {
+        if (!this.hasRoute(from, to)) {
+            return TransitionResult.NO_ROUTE;
+        }
+        if (!this.checkGuard(from, to, payload)) {
+            return TransitionResult.REJECTED;
+        }
+        return this.tryTransit(from, to, payload, null);
+    }
+
+    /**
+     * Post from one specified state to new state with payload without evaluating the guard,
+     * the route should have been checked by caller.
+     *
+     * @param from
+     * @param to
+     * @param payload
+     * @param outbox  null to skip the outbox processes without collecting.
+     * @return {@code PROCESS_FAILED} if any process fails, whether in silent mode or not.
+     * @since 2.3
+     */
+    TransitionResult tryTransit(final S from, final S to, P payload, OutboxCollector<S, P> outbox) {
+        try {
+            return this.doPost(from, to, payload, outbox) ? TransitionResult.OK : TransitionResult.PROCESS_FAILED;
+        } catch (OverloadedException e) {
+            return TransitionResult.OVERLOADED;
+        } catch (StateException e) {
+            return TransitionResult.PROCESS_FAILED;
+        }
+    }
+
+    /**
+     * Post from one specified state to new state with payload without evaluating the guard,
+     * which should have been evaluated by caller.
+     *
+     * @param from
+     * @param to
+     * @param payload
+     * @param outbox  null to skip the outbox processes without collecting.
+     * @since 2.3
+     */
+    void transit(final S from, final S to, P payload, OutboxCollector<S, P> outbox) {
+        if (log.isDebugEnabled()) {
+            Action<S> action = this.getAction(from, to);
             log.debug(String.format("%s: '%s'(%s) -> '%s'", action == null ? "null" : action.getName(),
                     from, Utils.payloadSummary(payload), to));
-        this.doPost(from, to, payload);
+        }
+        this.doPost(from, to, payload, outbox);
+    }
+
+    private Action<S> getAction(S from, S to) {
+        Map<S, Action<S>> toMap = this.actionMap.get(from);
+        if (toMap == null)
+            throw this.exception("No state transitions from '%s' have been defined.".formatted(from));
+        return toMap.get(to);
+    }
+
+    /**
+     * Whether the guard of action between two states passes with the payload.
+     *
+     * @param from
+     * @param to
+     * @param payload
+     * @return true if the action has no guard or the guard passes.
+     * @since 2.3
+     */
+    public boolean checkGuard(S from, S to, P payload) {
+        if (guardIndex.isEmpty()) {
+            return true;
+        }
+        List<GuardedAction<S, P>> guardedActions = guardIndex.get(from);
+        if (guardedActions != null) {
+            for (GuardedAction<S, P> guardedAction : guardedActions) {
+                if (Objects.equals(guardedAction.getStateTo(), to)) {
+                    return guardedAction.test(payload);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolve the target state of the first trigger which accepts the data from the current state,
+     * and its action is allowed by the guard if guarded.
+     *
+     * @param from
+     * @param data
+     * @param payload
+     * @return null if no trigger accepts the data.
+     * @since 2.3
+     */
+    public S resolveTrigger(S from, Object data, P payload) {
+        Map<Trigger, S> toByTriggerMap = triggerMap.get(from);
+        if (toByTriggerMap == null) {
+            return null;
+        }
+        for (Map.Entry<Trigger, S> entry : toByTriggerMap.entrySet()) {
+            if (entry.getKey().accept(data, payload) && this.checkGuard(from, entry.getValue(), payload)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the target state of the first guarded action whose guard passes from the current state,
+     * in the order of definition.
+     *
+     * @param from
+     * @param payload
+     * @return null if no guard passes.
+     * @since 2.3
+     */
+    public S resolveGuard(S from, P payload) {
+        List<GuardedAction<S, P>> guardedActions = guardIndex.get(from);
+        if (guardedActions != null) {
+            for (GuardedAction<S, P> guardedAction : guardedActions) {
+                if (guardedAction.test(payload)) {
+                    return guardedAction.getStateTo();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all guarded actions with statistics of their guards.
+     *
+     * @return
+     * @since 2.3
+     */
+    public List<GuardedAction<S, P>> getGuardedActions() {
+        return guardIndex.values().stream().flatMap(List::stream).distinct().toList();
     }
 
     /**
@@ -139,29 +508,45 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
      * @param from
      * @param to
      * @param payload
+     * @param outbox  null to skip the outbox processes without collecting.
+     * @return false if any process fails in silent mode.
      */
-    private void doPost(S from, S to, P payload) {
+    private boolean doPost(S from, S to, P payload, OutboxCollector<S, P> outbox) {
         // If no any actions initialized before, you can't change state.
         if (!this.hasRoute(from, to)) {
-            throw new RuntimeException(String.format("Changing state from '%s' to '%s' is not allowed.", from, to));
+            throw this.exception(String.format("Changing state from '%s' to '%s' is not allowed.", from, to));
+        }
+        Bulkhead bulkhead = this.getBulkhead(to);
+        if (bulkhead == null) {
+            return this.execTransition(from, to, payload, outbox);
+        }
+        if (!bulkhead.acquire()) {
+            throw this.overloaded(to);
         }
+        try {
+            return this.execTransition(from, to, payload, outbox);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Execute the OUT processes of states exited and IN processes of states entered.
+     *
+     * @return false if any process fails in silent mode.
+     */
+    private boolean execTransition(S from, S to, P payload, OutboxCollector<S, P> outbox) {
+        boolean isSucceeded = true;
+        long deadline = this.deadline();
+        Boundary<S> boundary = this.getBoundary(from, to);
 
         if (isNoOutProcessForSelfCirculation && from == to) {
             log.info("Ignore executing OUT process from state %s to state %s".formatted(from, to));
         }
         else {
-            // Handle OUT 'from' state
-            if (from != null) {
-                List<Process<P>> outProcesses = stateMapping.getOut(from);
-                if (outProcesses == null || outProcesses.isEmpty()) {
-                    if (log.isTraceEnabled())
-                        log.trace(String.format("No actions to execute for exiting state '%s'", from));
-                }
-                else {
-                    if (log.isDebugEnabled())
-                        log.debug(String.format("Execute %d actions for exiting state '%s' ", outProcesses.size(), from));
-                    execProcesses(outProcesses, payload);
-                }
+            // Handle OUT 'from' state and its ancestors which are exited
+            for (S state : this.getExits(from, boundary)) {
+                isSucceeded &= this.execOut(state, payload, deadline, outbox);
             }
         }
 
@@ -169,39 +554,493 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
             log.info("Ignore executing IN process from state %s to state %s".formatted(from, to));
         }
         else {
-            // Handle IN 'to' state
-            List<Process<P>> inProcesses = stateMapping.getIn(to);
-            if (inProcesses == null || inProcesses.isEmpty()) {
-                if (log.isTraceEnabled()) log.trace(String.format("No actions to execute for entering state '%s'", to));
-            }
-            else {
-                if (log.isDebugEnabled())
-                    log.debug(String.format("Execute %d actions for entering state '%s' ", inProcesses.size(), to));
-                execProcesses(inProcesses, payload);
+            // Handle IN 'to' state and its ancestors which are entered
+            for (S state : this.getEnters(to, boundary)) {
+                isSucceeded &= this.execIn(state, payload, deadline, outbox);
             }
         }
+        return isSucceeded;
+    }
+
+    /**
+     * Get the states to exit and enter for the transition, which is overridden by the state transitions indexing
+     * the boundaries.
+     *
+     * @param from
+     * @param to
+     * @return null if neither state has ancestors.
+     * @since 2.3
+     */
+    Boundary<S> getBoundary(S from, S to) {
+        if (boundaryMap.isEmpty()) {
+            return null;
+        }
+        Map<S, Boundary<S>> boundaries = boundaryMap.get(from);
+        return boundaries == null ? null : boundaries.get(to);
+    }
+
+    private List<S> getExits(S from, Boundary<S> boundary) {
+        if (boundary != null) {
+            return boundary.exits;
+        }
+        return from == null ? Collections.emptyList() : Collections.singletonList(from);
+    }
+
+    private List<S> getEnters(S to, Boundary<S> boundary) {
+        return boundary == null ? Collections.singletonList(to) : boundary.enters;
+    }
+
+    /**
+     * Execute the outbox process referenced by the outbox item in this definition.
+     *
+     * @param item
+     * @param state the state of the item in this definition.
+     * @since 2.3
+     */
+    void executeOutboxItem(OutboxItem<S, P> item, S state) {
+        List<Process<P>> processes = this.getProcesses(state, item.getDirection());
+        Process<P> process = item.getIndex() < processes.size() ? processes.get(item.getIndex()) : null;
+        if (item.getGroupIndex() >= 0) {
+            List<Process<P>> members = process instanceof ProcessGroup<P> processGroup ? processGroup.getProcesses() : List.of();
+            process = item.getGroupIndex() < members.size() ? members.get(item.getGroupIndex()) : null;
+        }
+        if (!(process instanceof OutboxProcess)) {
+            throw new StateException("No outbox process found for item " + item);
+        }
+        process.execute(item.getPayload());
+    }
+
+    private boolean execOut(S from, P payload, long deadline, OutboxCollector<S, P> outbox) {
+        if (isDirectDispatch && deadline == NO_DEADLINE) {
+            return this.dispatch(from, StateDirection.OUT, payload);
+        }
+        List<Process<P>> outProcesses = this.getProcesses(from, StateDirection.OUT);
+        if (outProcesses == null || outProcesses.isEmpty()) {
+            if (log.isTraceEnabled())
+                log.trace(String.format("No actions to execute for exiting state '%s'", from));
+            return true;
+        }
+        else {
+            if (log.isDebugEnabled())
+                log.debug(String.format("Execute %d actions for exiting state '%s' ", outProcesses.size(), from));
+            return execProcesses(from, StateDirection.OUT, outProcesses, payload, deadline, outbox);
+        }
+    }
 
+    private boolean execIn(S to, P payload, long deadline, OutboxCollector<S, P> outbox) {
+        if (isDirectDispatch && deadline == NO_DEADLINE) {
+            return this.dispatch(to, StateDirection.IN, payload);
+        }
+        List<Process<P>> inProcesses = this.getProcesses(to, StateDirection.IN);
+        if (inProcesses == null || inProcesses.isEmpty()) {
+            if (log.isTraceEnabled()) log.trace(String.format("No actions to execute for entering state '%s'", to));
+            return true;
+        }
+        else {
+            if (log.isDebugEnabled())
+                log.debug(String.format("Execute %d actions for entering state '%s' ", inProcesses.size(), to));
+            return execProcesses(to, StateDirection.IN, inProcesses, payload, deadline, outbox);
+        }
     }
 
-    private void execProcesses(List<Process<P>> processes, P payload) {
+    /**
+     * @return false if any process fails in silent mode.
+     */
+    private boolean execProcesses(S state, StateDirection direction, List<Process<P>> processes, P payload, long deadline,
+                                  OutboxCollector<S, P> outbox) {
         // All mapped processes for one state
-        for (Process<P> process : processes) {
+        for (int i = 0; i < processes.size(); i++) {
+            Process<P> process = processes.get(i);
+            if (this.collectOutbox(state, direction, i, process, payload, outbox)) {
+                continue; // delivered by outbox later
+            }
             // processes execution, if exception caught, will break the execution processing.
+            try {
+                this.execProcess(process, payload, deadline);
+            } catch (Exception e) {
+                return this.onProcessFailure(e); // Prevent all other processes to be executed
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the process fails in silent mode.
+     */
+    private boolean dispatch(S state, StateDirection direction, P payload) {
+        try {
+            if (direction == StateDirection.IN) {
+                this.dispatchIn(state, payload);
+            }
+            else {
+                this.dispatchOut(state, payload);
+            }
+            return true;
+        } catch (Exception e) {
+            return this.onProcessFailure(e);
+        }
+    }
+
+    /**
+     * @return false in silent mode, otherwise throws exception.
+     */
+    private boolean onProcessFailure(Exception e) {
+        log.error("Failed to execute process", e);
+        if (exceptionHandler != null) {
+            exceptionHandler.onException(new StateException("Failed to execute process", e));
+        }
+        if (isSilent) {
+            return false;
+        }
+        else {
+            throw new StateException("Failed to execute process", e);
+        }
+    }
+
+    /**
+     * Execute the IN processes of the state directly, which is overridden by the generated state transitions
+     * to call the handler by a switch statement if constructed with direct dispatching.
+     *
+     * @param state
+     * @param payload
+     * @since 2.3
+     */
+    protected void dispatchIn(S state, P payload) {
+        throw new UnsupportedOperationException("Direct dispatching is not implemented");
+    }
+
+    /**
+     * Execute the OUT processes of the state directly, which is overridden by the generated state transitions
+     * to call the handler by a switch statement if constructed with direct dispatching.
+     *
+     * @param state
+     * @param payload
+     * @since 2.3
+     */
+    protected void dispatchOut(S state, P payload) {
+        throw new UnsupportedOperationException("Direct dispatching is not implemented");
+    }
+
+    /**
+     * Get the processes executed when entering or exiting the state, which is overridden by the state transitions
+     * indexing the processes.
+     *
+     * @param state
+     * @param direction
+     * @return
+     * @since 2.3
+     */
+    protected List<Process<P>> getProcesses(S state, StateDirection direction) {
+        return direction == StateDirection.IN ? stateMapping.getIn(state) : stateMapping.getOut(state);
+    }
+
+    /**
+     * Collect the outbox item for the outbox process, or for the outbox processes in the group if outbox is enabled.
+     * The outbox processes in a group are not executed by the group, the other processes in it are.
+     *
+     * @return true if the process is an outbox process which is not executed.
+     */
+    private boolean collectOutbox(S state, StateDirection direction, int index, Process<P> process, P payload,
+                                  OutboxCollector<S, P> outbox) {
+        if (!isOutboxEnabled) {
+            return false;
+        }
+        if (process instanceof OutboxProcess) {
+            if (outbox != null) outbox.add(state, direction, index, -1, process, payload);
+            return true;
+        }
+        if (outbox != null && process instanceof ProcessGroup<P> processGroup) {
+            List<Process<P>> members = processGroup.getProcesses();
+            for (int j = 0; j < members.size(); j++) {
+                if (members.get(j) instanceof OutboxProcess) {
+                    outbox.add(state, direction, index, j, members.get(j), payload);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Execute the process and wait for it to finish, which is bounded by its timeout, the deadline of the transition,
+     * and its circuit breaker. A process group is executed concurrently.
+     */
+    private void execProcess(Process<P> process, P payload, long deadline) throws Exception {
+        if (deadline == NO_DEADLINE && !(process instanceof ProcessGroup) && !(process instanceof BoundedProcess)) {
+            process.execute(payload);
+            return;
+        }
+        try {
+            this.execProcessAsync(process, payload, deadline, false).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new StateException(cause);
+        }
+    }
+
+    /**
+     * Start the process bounded by its timeout, the deadline of the transition, and its circuit breaker.
+     * A synchronous process is executed in the calling thread, unless it has a timeout or it's executed concurrently.
+     *
+     * @param isConcurrent true to execute a synchronous process by the process executor.
+     */
+    private CompletableFuture<Void> execProcessAsync(Process<P> process, P payload, long deadline, boolean isConcurrent) {
+        Duration timeout = null;
+        CircuitBreaker circuitBreaker = null;
+        if (process instanceof BoundedProcess<P> boundedProcess) {
+            timeout = boundedProcess.getTimeout();
+            circuitBreaker = boundedProcess.getCircuitBreaker();
+            process = boundedProcess.getProcess();
+        }
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new StateException("Circuit breaker '%s' is open".formatted(circuitBreaker.getName())));
+        }
+        long timeoutNanos = this.timeoutOf(timeout, deadline);
+        CompletableFuture<Void> future;
+        if (process instanceof AsyncProcess<P> asyncProcess) {
+            future = this.execAsyncProcess(asyncProcess, payload).copy();
+        }
+        else if (process instanceof ProcessGroup<P> processGroup) {
+            future = this.execProcessGroupAsync(processGroup, payload, deadline);
+        }
+        else if (isConcurrent || timeoutNanos != NO_TIMEOUT) {
+            future = this.submitProcess(process, payload);
+        }
+        else {
             try {
                 process.execute(payload);
+                future = CompletableFuture.completedFuture(null);
             } catch (Exception e) {
-                log.error("Failed to execute process", e);
+                future = CompletableFuture.failedFuture(e);
+            }
+        }
+        if (timeoutNanos != NO_TIMEOUT) {
+            future = future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        if (circuitBreaker != null) {
+            CircuitBreaker breaker = circuitBreaker;
+            future = future.whenComplete((v, e) -> {
+                if (e == null) breaker.onSuccess();
+                else breaker.onFailure();
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Execute the synchronous process by the process executor,
+     * the process is interrupted or never started if the returned future times out.
+     */
+    private CompletableFuture<Void> submitProcess(Process<P> process, P payload) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                process.execute(payload);
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, null);
+        future.whenComplete((v, e) -> {
+            if (e instanceof TimeoutException) task.cancel(true);
+        });
+        try {
+            processExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Deadline of a transition starting now in {@code System.nanoTime()}.
+     */
+    private long deadline() {
+        Duration timeout = this.transitionTimeout;
+        return timeout == null ? NO_DEADLINE : System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Timeout in nanoseconds of a process, which is no more than the time remaining to the deadline.
+     */
+    private long timeoutOf(Duration timeout, long deadline) {
+        long nanos = timeout == null ? NO_TIMEOUT : timeout.toNanos();
+        if (deadline != NO_DEADLINE) {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            nanos = nanos == NO_TIMEOUT ? remaining : Math.min(nanos, remaining);
+        }
+        return nanos;
+    }
+
+    /**
+     * Start all processes in the group concurrently, {@link AsyncProcess} is started without occupying the executor.
+     * If any of them fails, the returned future fails with the first failure and others suppressed.
+     */
+    private CompletableFuture<Void> execProcessGroupAsync(ProcessGroup<P> processGroup, P payload, long deadline) {
+        List<Process<P>> processes = processGroup.getProcesses();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(processes.size());
+        for (Process<P> process : processes) {
+            if (isOutboxEnabled && process instanceof OutboxProcess) {
+                continue; // delivered by outbox later
+            }
+            futures.add(this.execProcessAsync(process, payload, deadline, true));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((v, e) -> {
+            if (e == null) {
+                return null;
+            }
+            Exception failure = null;
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException ce) {
+                    Throwable cause = ce.getCause() == null ? ce : ce.getCause();
+                    if (failure == null) {
+                        failure = cause instanceof Exception ? (Exception) cause : new StateException(cause);
+                    }
+                    else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+            throw new CompletionException(failure);
+        });
+    }
+
+    private CompletableFuture<Void> execAsyncProcess(AsyncProcess<P> process, P payload) {
+        try {
+            return process.executeAsync(payload).toCompletableFuture();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Post from one specified state to new state with payload without blocking on {@link AsyncProcess},
+     * the processes are chained in order, and the groups are executed concurrently.
+     *
+     * @param from
+     * @param to
+     * @param payload
+     * @return completes when all the processes finish, fails if the transition is not allowed,
+     * or any process fails if not in silent mode.
+     * @since 2.3
+     */
+    public CompletionStage<Void> postAsync(final S from, final S to, P payload) {
+        try {
+            Action<S> action = this.getAction(from, to);
+            if (action instanceof GuardedAction && !this.checkGuard(from, to, payload)) {
+                throw this.exception("Changing state from '%s' to '%s' is rejected by the guard.".formatted(from, to));
+            }
+            return this.transitAsync(from, to, payload, null).thenApply(isSucceeded -> null);
+        } catch (StateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Asynchronous {@code tryTransit()}, the route should have been checked by caller.
+     *
+     * @since 2.3
+     */
+    CompletionStage<TransitionResult> tryTransitAsync(final S from, final S to, P payload) {
+        return this.transitAsync(from, to, payload, null).handle((isSucceeded, e) -> {
+            if (e == null) {
+                return isSucceeded ? TransitionResult.OK : TransitionResult.PROCESS_FAILED;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            return cause instanceof OverloadedException ? TransitionResult.OVERLOADED : TransitionResult.PROCESS_FAILED;
+        });
+    }
+
+    /**
+     * Asynchronous {@code doPost()} without evaluating the guard.
+     *
+     * @param outbox null to skip the outbox processes without collecting.
+     * @return completes with false if any process fails in silent mode.
+     * @throws StateException if the transition is not allowed.
+     * @since 2.3
+     */
+    CompletableFuture<Boolean> transitAsync(S from, S to, P payload, OutboxCollector<S, P> outbox) {
+        if (!this.hasRoute(from, to)) {
+            throw this.exception(String.format("Changing state from '%s' to '%s' is not allowed.", from, to));
+        }
+        Bulkhead bulkhead = this.getBulkhead(to);
+        if (bulkhead == null) {
+            return this.execTransitionAsync(from, to, payload, outbox);
+        }
+        return bulkhead.acquireAsync(processExecutor).thenCompose(isAdmitted -> {
+            if (!isAdmitted) {
+                throw this.overloaded(to);
+            }
+            return this.execTransitionAsync(from, to, payload, outbox).whenComplete((isSucceeded, e) -> bulkhead.release());
+        });
+    }
+
+    private CompletableFuture<Boolean> execTransitionAsync(S from, S to, P payload, OutboxCollector<S, P> outbox) {
+        CompletableFuture<Boolean> stage = CompletableFuture.completedFuture(true);
+        long deadline = this.deadline();
+        Boundary<S> boundary = this.getBoundary(from, to);
+        if (!(isNoOutProcessForSelfCirculation && from == to)) {
+            for (S state : this.getExits(from, boundary)) {
+                stage = stage.thenCompose(isSucceeded -> this.execProcessesAsync(state, StateDirection.OUT, this.getProcesses(state, StateDirection.OUT), payload, deadline, outbox)
+                        .thenApply(isAllSucceeded -> isSucceeded && isAllSucceeded));
+            }
+        }
+        if (!(isNoInProcessForSelfCirculation && from == to)) {
+            for (S state : this.getEnters(to, boundary)) {
+                stage = stage.thenCompose(isSucceeded -> this.execProcessesAsync(state, StateDirection.IN, this.getProcesses(state, StateDirection.IN), payload, deadline, outbox)
+                        .thenApply(isAllSucceeded -> isSucceeded && isAllSucceeded));
+            }
+        }
+        return stage;
+    }
+
+    /**
+     * Execute the processes one by one without blocking, with the same failure handling as {@code execProcesses()}.
+     *
+     * @return completes with false if any process fails in silent mode.
+     */
+    private CompletableFuture<Boolean> execProcessesAsync(S state, StateDirection direction, List<Process<P>> processes,
+                                                          P payload, long deadline, OutboxCollector<S, P> outbox) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        this.execProcessesAsync(state, direction, processes, 0, payload, deadline, outbox, result);
+        return result;
+    }
+
+    private void execProcessesAsync(S state, StateDirection direction, List<Process<P>> processes, int index, P payload,
+                                    long deadline, OutboxCollector<S, P> outbox, CompletableFuture<Boolean> result) {
+        for (int i = index; i < processes.size(); i++) {
+            Process<P> process = processes.get(i);
+            if (this.collectOutbox(state, direction, i, process, payload, outbox)) {
+                continue; // delivered by outbox later
+            }
+            CompletableFuture<Void> future = this.execProcessAsync(process, payload, deadline, false);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                continue;
+            }
+            int next = i + 1;
+            // resumed by the process executor, not the thread completing the async process, like an I/O thread.
+            future.whenCompleteAsync((v, e) -> {
+                if (e == null) {
+                    this.execProcessesAsync(state, direction, processes, next, payload, deadline, outbox, result);
+                    return;
+                }
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error("Failed to execute process", cause);
                 if (exceptionHandler != null) {
-                    exceptionHandler.onException(new StateException("Failed to execute process", e));
+                    exceptionHandler.onException(new StateException("Failed to execute process", cause));
                 }
                 if (isSilent) {
-                    break; // Prevent all other processes to be executed
+                    result.complete(false); // Prevent all other processes to be executed
                 }
                 else {
-                    throw new StateException("Failed to execute process", e);
+                    result.completeExceptionally(new StateException("Failed to execute process", cause));
                 }
-            }
+            }, processExecutor);
+            return;
         }
+        result.complete(true);
     }
 
     /**
@@ -221,6 +1060,119 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
         return false;
     }
 
+    /**
+     * Static analysis of the state graph, with precomputed reachability and shortest paths.
+     *
+     * @return
+     * @since 2.3
+     */
+    public StateGraph<S> getStateGraph() {
+        return stateGraphHolder.get();
+    }
+
+    /**
+     * State graph built lazily on first use, shared by the state transitions of the same definition.
+     */
+    private static class StateGraphHolder<S extends Serializable> {
+
+        private final Supplier<StateGraph<S>> factory;
+
+        private volatile StateGraph<S> stateGraph;
+
+        private StateGraphHolder(Supplier<StateGraph<S>> factory) {
+            this.factory = factory;
+        }
+
+        private StateGraph<S> get() {
+            StateGraph<S> graph = stateGraph;
+            if (graph == null) {
+                synchronized (this) {
+                    graph = stateGraph;
+                    if (graph == null) {
+                        stateGraph = graph = factory.get();
+                    }
+                }
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * States to exit and enter in order for a transition between hierarchical states.
+     */
+    static class Boundary<S> {
+        private final List<S> exits;
+        private final List<S> enters;
+
+        private Boundary(List<S> exits, List<S> enters) {
+            this.exits = exits;
+            this.enters = enters;
+        }
+    }
+
+    /**
+     * Copy settings from the state transition of the old definition.
+     *
+     * @param other
+     * @since 2.3
+     */
+    void inheritSettings(StateTransition<S, P> other) {
+        this.exceptionHandler = other.exceptionHandler;
+        this.processExecutor = other.processExecutor;
+        this.isSilent = other.isSilent;
+        this.isNoInProcessForSelfCirculation = other.isNoInProcessForSelfCirculation;
+        this.isNoOutProcessForSelfCirculation = other.isNoOutProcessForSelfCirculation;
+        this.isOutboxEnabled = other.isOutboxEnabled;
+        this.isStacklessExceptions = other.isStacklessExceptions;
+        this.transitionTimeout = other.transitionTimeout;
+    }
+
+    /**
+     * Create exception for illegal transitions, without stack trace if {@code setStacklessExceptions(true)}.
+     *
+     * @param message
+     * @return
+     * @since 2.3
+     */
+    StateException exception(String message) {
+        return isStacklessExceptions ? new StateException(message, null, false, false) : new StateException(message);
+    }
+
+    boolean isSilent() {
+        return isSilent;
+    }
+
+    private StateException overloaded(S state) {
+        return new OverloadedException("Too many concurrent transitions into state '%s'".formatted(state), !isStacklessExceptions);
+    }
+
+    /**
+     * Thrown if a transition is rejected by the bulkhead of the target state.
+     */
+    private static class OverloadedException extends StateException {
+
+        private static final long serialVersionUID = 1L;
+
+        private OverloadedException(String message, boolean writableStackTrace) {
+            super(message, null, false, writableStackTrace);
+        }
+    }
+
+    /**
+     * Bulkhead which limits concurrent transitions into the state, for metrics.
+     *
+     * @param state
+     * @return null if no limit.
+     * @since 2.3
+     */
+    public Bulkhead getBulkhead(S state) {
+        if (bulkheads == null) {
+            return null;
+        }
+        int index = bulkheadIndex.indexOf(state);
+        return index == StateIndex.UNKNOWN_INDEX ? null : bulkheads[index];
+    }
+
     /**
      * Handler to be notified when an internal exception occurs.
      *
@@ -239,6 +1191,76 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
         isSilent = silent;
     }
 
+    /**
+     * if true, exceptions for illegal transitions are created without stack trace, which is much cheaper
+     * if illegal transitions are frequent and expected.
+     *
+     * @param stacklessExceptions
+     * @since 2.3
+     */
+    public void setStacklessExceptions(boolean stacklessExceptions) {
+        isStacklessExceptions = stacklessExceptions;
+    }
+
+    /**
+     * Set max time for all the processes of a transition, the process running when timed out is interrupted,
+     * and it's handled as a failed process. To bound them, every synchronous process is executed by the process executor
+     * instead of the calling thread while the timeout is set, which costs a thread hop per process.
+     *
+     * @param transitionTimeout null for no limit.
+     * @throws StateException if the process executor is the common fork-join pool.
+     * @since 2.3
+     */
+    public void setTransitionTimeout(Duration transitionTimeout) {
+        this.checkProcessExecutor(this.processExecutor, transitionTimeout);
+        this.transitionTimeout = transitionTimeout;
+    }
+
+    /**
+     * Circuit breakers of all processes, for metrics.
+     *
+     * @return
+     * @since 2.3
+     */
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * if true, outbox processes are not executed by the transition, but collected as outbox items
+     * by {@link OutboxCollector} when they are reached, which is set by {@link StateMachine} with {@link OutboxStateProvider}.
+     *
+     * @param outboxEnabled
+     * @since 2.3
+     */
+    void setOutboxEnabled(boolean outboxEnabled) {
+        isOutboxEnabled = outboxEnabled;
+    }
+
+    /**
+     * Set executor to execute processes in a group concurrently, the processes with timeout, and the processes after
+     * an {@link AsyncProcess} in asynchronous transitions, default is a shared cached pool of daemon threads, which is unbounded.
+     * For JDK 21+, a virtual thread per task executor is a good choice for processes blocking on I/O.
+     * The processes timed out are interrupted, so the executor must be dedicated to the processes if timeouts are used.
+     *
+     * @param processExecutor
+     * @throws StateException if it's the common fork-join pool while timeouts are used.
+     * @since 2.3
+     */
+    public void setProcessExecutor(Executor processExecutor) {
+        this.checkProcessExecutor(processExecutor, this.transitionTimeout);
+        this.processExecutor = processExecutor;
+    }
+
+    /**
+     * Interrupting the threads of the common pool which are shared by the whole JVM breaks other tasks.
+     */
+    private void checkProcessExecutor(Executor executor, Duration transitionTimeout) {
+        if (executor == ForkJoinPool.commonPool() && (transitionTimeout != null || hasProcessTimeouts)) {
+            throw new StateException("The processes timed out are interrupted, which needs a dedicated process executor instead of the common pool");
+        }
+    }
+
     /**
      * if true, the IN process will not be executed for self-circulation state transition.
      *
@@ -258,4 +1280,13 @@ public class StateTransition<S extends Serializable, P extends Serializable> {
     public void setNoOutProcessForSelfCirculation(boolean noOutProcessForSelfCirculation) {
         isNoOutProcessForSelfCirculation = noOutProcessForSelfCirculation;
     }
+
+    private static Executor createDefaultProcessExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "swstate-process-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
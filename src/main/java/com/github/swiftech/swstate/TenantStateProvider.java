@@ -0,0 +1,161 @@
+package com.github.swiftech.swstate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * View of a shared state provider for one tenant, the states are stored by the key of (tenant, id).
+ *
+ * @param <S> type of State
+ * @author swiftech
+ * @see StateMachineRegistry
+ * @since 2.3
+ */
+class TenantStateProvider<S extends Serializable> implements StateProvider<S> {
+
+    private final String prefix;
+
+    private final StateProvider<S> sharedStateProvider;
+
+    TenantStateProvider(String tenant, StateProvider<S> sharedStateProvider) {
+        this.prefix = prefixOf(tenant);
+        this.sharedStateProvider = sharedStateProvider;
+    }
+
+    /**
+     * Create the view of the tenant, which is an {@link IndexedStateProvider} if the shared state provider is.
+     *
+     * @param tenant
+     * @param sharedStateProvider
+     * @param <S>
+     * @return
+     */
+    static <S extends Serializable> TenantStateProvider<S> create(String tenant, StateProvider<S> sharedStateProvider) {
+        if (sharedStateProvider instanceof IndexedStateProvider<S> indexedStateProvider) {
+            return new Indexed<>(tenant, indexedStateProvider);
+        }
+        return new TenantStateProvider<>(tenant, sharedStateProvider);
+    }
+
+    private static String prefixOf(String tenant) {
+        // the length makes the key unambiguous for any tenant and id.
+        return tenant.length() + ":" + tenant + ":";
+    }
+
+    private String key(String id) {
+        return prefix + id;
+    }
+
+    @Override
+    public S getCurrentState(String id) {
+        return sharedStateProvider.getCurrentState(key(id));
+    }
+
+    @Override
+    public void initializeState(String id, S state) {
+        sharedStateProvider.initializeState(key(id), state);
+    }
+
+    @Override
+    public void setState(String id, S state) {
+        sharedStateProvider.setState(key(id), state);
+    }
+
+    @Override
+    public void setStates(Map<String, S> states) {
+        Map<String, S> keyedStates = new LinkedHashMap<>();
+        states.forEach((id, state) -> keyedStates.put(key(id), state));
+        sharedStateProvider.setStates(keyedStates);
+    }
+
+    @Override
+    public List<String> compareAndSetStates(Map<String, S> expectedStates, S state) {
+        Map<String, S> keyedStates = new LinkedHashMap<>();
+        expectedStates.forEach((id, expected) -> keyedStates.put(key(id), expected));
+        List<String> setIds = new ArrayList<>();
+        for (String key : sharedStateProvider.compareAndSetStates(keyedStates, state)) {
+            setIds.add(key.substring(prefix.length()));
+        }
+        return setIds;
+    }
+
+    @Override
+    public boolean isState(String id, S state) {
+        return sharedStateProvider.isState(key(id), state);
+    }
+
+    @Override
+    public boolean isStateIn(String id, S... states) {
+        return sharedStateProvider.isStateIn(key(id), states);
+    }
+
+    /**
+     * View of a shared {@link IndexedStateProvider} for one tenant. The keys of a tenant are contiguous in ascending order
+     * since they share the prefix, so the ids are listed from the prefix until a key of another tenant.
+     */
+    static class Indexed<S extends Serializable> extends TenantStateProvider<S> implements IndexedStateProvider<S> {
+
+        private static final int PAGE_SIZE = 1000;
+
+        private final String prefix;
+
+        private final IndexedStateProvider<S> sharedStateProvider;
+
+        Indexed(String tenant, IndexedStateProvider<S> sharedStateProvider) {
+            super(tenant, sharedStateProvider);
+            this.prefix = prefixOf(tenant);
+            this.sharedStateProvider = sharedStateProvider;
+        }
+
+        /**
+         * Count by listing the ids of the tenant, which takes time proportional to them.
+         *
+         * @return
+         */
+        @Override
+        public Map<S, Integer> countByState() {
+            Map<S, Integer> counts = new HashMap<>();
+            for (S state : sharedStateProvider.countByState().keySet()) {
+                int[] count = {0};
+                this.forEachInState(state, id -> count[0]++);
+                if (count[0] > 0) counts.put(state, count[0]);
+            }
+            return counts;
+        }
+
+        @Override
+        public List<String> idsInState(S state, String cursor, int limit) {
+            List<String> page = new ArrayList<>();
+            if (limit <= 0) {
+                return page;
+            }
+            // the key of the empty id is the prefix itself, which is not after the prefix.
+            if (cursor == null && sharedStateProvider.isState(prefix, state)) {
+                page.add("");
+            }
+            String key = cursor == null ? prefix : prefix + cursor;
+            for (String k : sharedStateProvider.idsInState(state, key, limit - page.size())) {
+                if (!k.startsWith(prefix)) {
+                    break;
+                }
+                page.add(k.substring(prefix.length()));
+            }
+            return page;
+        }
+
+        @Override
+        public void forEachInState(S state, Consumer<String> action) {
+            String cursor = null;
+            List<String> page;
+            while (!(page = this.idsInState(state, cursor, PAGE_SIZE)).isEmpty()) {
+                page.forEach(action);
+                cursor = page.get(page.size() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.github.swiftech.swstate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+/**
+ * Queues transitions of {@link StateMachine} to be executed asynchronously by an executor.
+ * Transitions of the same id are executed one by one in the order of submission, and transitions of different ids concurrently.
+ * <p>
+ * Ids with pending transitions wait in priority lanes, the higher lanes are drained first, and an id which has waited
+ * longer than the max wait is served before the higher lanes to avoid starvation. The lane of an id is the highest
+ * priority of its pending transitions, since an urgent transition still has to wait for the earlier ones of the same id.
+ * An id moved to a higher lane leaves a stale ticket in the lower lane, which is dropped when it reaches the head,
+ * so no lane is searched while the lock is held.
+ * <p>
+ * In coalescing mode, a post to the same target state as the last pending post of the id is merged into it,
+ * since it would only re-run the processes of self-circulation, the merged post is executed with the last payload,
+ * or the payloads combined by the combiner when it's executed.
+ * <p>
+ * Usage:
+ * <pre>
+ *     TransitionQueue&lt;String, Order&gt; queue = new TransitionQueue&lt;&gt;(stateMachine, executor);
+ *     queue.setCoalescing(true);
+ *     queue.post("order-1", "Payed", order).thenAccept(result -> ...);
+ *     queue.post("order-2", "Canceled", order, TransitionQueue.Priority.HIGH);
+ * </pre>
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class TransitionQueue<S extends Serializable, P extends Serializable> {
+
+    /**
+     * Priority of queued transitions, from the highest to the lowest.
+     */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Logger log = LoggerFactory.getLogger(TransitionQueue.class);
+
+    private final StateMachine<S, P> stateMachine;
+
+    private final Executor executor;
+
+    // guards the pendings and lanes.
+    private final Object lock = new Object();
+
+    // id -> pending transitions of the id, exists while any transition of the id is pending or executing.
+    private final Map<String, Pending<S, P>> pendings = new HashMap<>();
+
+    // one lane for each priority, indexed by the ordinal.
+    private final List<Lane<S, P>> lanes = new ArrayList<>(PRIORITIES.length);
+
+    private volatile boolean isCoalescing = false;
+
+    private volatile BinaryOperator<P> combiner;
+
+    private volatile long maxWaitNanos = Duration.ofSeconds(1).toNanos();
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * Construct queue which executes transitions by the same dedicated pool of daemon threads as the default
+     * process executor of {@link StateTransition}, instead of the common fork-join pool, since the synchronous
+     * transitions block on their processes.
+     *
+     * @param stateMachine
+     */
+    public TransitionQueue(StateMachine<S, P> stateMachine) {
+        this(stateMachine, StateTransition.DEFAULT_PROCESS_EXECUTOR);
+    }
+
+    /**
+     * @param stateMachine
+     * @param executor     to execute transitions.
+     */
+    public TransitionQueue(StateMachine<S, P> stateMachine, Executor executor) {
+        this.stateMachine = stateMachine;
+        this.executor = executor;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            lanes.add(new Lane<>());
+        }
+    }
+
+    private Lane<S, P> lane(Priority priority) {
+        return lanes.get(priority.ordinal());
+    }
+
+    /**
+     * Queue a post of the id to the target state with normal priority.
+     *
+     * @param id
+     * @param toState
+     * @param payload
+     * @return completes with the result of the transition, which is shared by the posts merged in coalescing mode.
+     */
+    public CompletionStage<TransitionResult> post(String id, S toState, P payload) {
+        return this.post(id, toState, payload, Priority.NORMAL);
+    }
+
+    /**
+     * Queue a post of the id to the target state.
+     *
+     * @param id
+     * @param toState
+     * @param payload
+     * @param priority
+     * @return completes with the result of the transition, which is shared by the posts merged in coalescing mode.
+     */
+    public CompletionStage<TransitionResult> post(String id, S toState, P payload, Priority priority) {
+        return this.submit(id, new Task<>(toState, null, payload, priority));
+    }
+
+    /**
+     * Queue an input of the id to trigger transition with normal priority, the target state is resolved when it's executed.
+     *
+     * @param id
+     * @param data
+     * @param payload
+     * @return completes with the result of the transition.
+     */
+    public CompletionStage<TransitionResult> accept(String id, Object data, P payload) {
+        return this.accept(id, data, payload, Priority.NORMAL);
+    }
+
+    /**
+     * Queue an input of the id to trigger transition, the target state is resolved when it's executed.
+     *
+     * @param id
+     * @param data
+     * @param payload
+     * @param priority
+     * @return completes with the result of the transition.
+     */
+    public CompletionStage<TransitionResult> accept(String id, Object data, P payload, Priority priority) {
+        return this.submit(id, new Task<>(null, data, payload, priority));
+    }
+
+    private CompletionStage<TransitionResult> submit(String id, Task<S, P> task) {
+        submittedCount.increment();
+        boolean isReady;
+        synchronized (lock) {
+            Pending<S, P> pending = pendings.computeIfAbsent(id, Pending::new);
+            Task<S, P> last = pending.tasks.peekLast();
+            if (isCoalescing && last != null && last.isCoalescible(task)) {
+                // combined when executed, out of the lock.
+                if (combiner == null) {
+                    last.payloads.clear();
+                }
+                last.payloads.add(task.payloads.get(0));
+                if (task.priority.compareTo(last.priority) < 0) {
+                    this.lane(last.priority).depth--;
+                    this.lane(task.priority).depth++;
+                    last.priority = task.priority;
+                }
+                this.promote(pending, task.priority);
+                coalescedCount.increment();
+                return last.future;
+            }
+            pending.tasks.add(task);
+            this.lane(task.priority).depth++;
+            isReady = pending.ticket == null && !pending.isExecuting;
+            if (isReady) {
+                this.enqueue(pending, task.priority);
+            }
+            else {
+                this.promote(pending, task.priority);
+            }
+        }
+        if (isReady) {
+            executor.execute(this::executeNext);
+        }
+        return task.future;
+    }
+
+    private void enqueue(Pending<S, P> pending, Priority priority) {
+        pending.ticket = new Ticket<>(pending, priority, System.nanoTime());
+        this.lane(priority).tickets.add(pending.ticket);
+    }
+
+    /**
+     * Move the id waiting in a lower lane to the lane of the priority, the time it has waited is kept.
+     * The ticket in the lower lane turns stale instead of being removed.
+     */
+    private void promote(Pending<S, P> pending, Priority priority) {
+        Ticket<S, P> ticket = pending.ticket;
+        if (ticket != null && priority.compareTo(ticket.priority) < 0) {
+            pending.ticket = new Ticket<>(pending, priority, ticket.readyTime);
+            this.lane(priority).tickets.add(pending.ticket);
+        }
+    }
+
+    /**
+     * Take the id from the highest lane, unless any id has waited longer than the max wait.
+     * There is always an id ready since every execution is scheduled for an id entering a lane.
+     */
+    private Pending<S, P> takeNext() {
+        long now = System.nanoTime();
+        ArrayDeque<Ticket<S, P>> taken = null;
+        ArrayDeque<Ticket<S, P>> starved = null;
+        for (Lane<S, P> lane : lanes) {
+            ArrayDeque<Ticket<S, P>> tickets = lane.tickets;
+            Ticket<S, P> head = tickets.peek();
+            while (head != null && head.isStale()) {
+                tickets.poll();
+                head = tickets.peek();
+            }
+            if (head == null) {
+                continue;
+            }
+            if (taken == null) {
+                taken = tickets;
+            }
+            if (now - head.readyTime > maxWaitNanos && (starved == null || head.readyTime < starved.peek().readyTime)) {
+                starved = tickets;
+            }
+        }
+        Pending<S, P> pending = (starved != null ? starved : taken).poll().pending;
+        pending.ticket = null;
+        pending.isExecuting = true;
+        return pending;
+    }
+
+    /**
+     * Execute the first pending transition of the next id, and put the id back to a lane if it has more.
+     */
+    private void executeNext() {
+        Pending<S, P> pending;
+        Task<S, P> task;
+        synchronized (lock) {
+            pending = this.takeNext();
+            task = pending.tasks.poll();
+            this.lane(task.priority).depth--;
+        }
+        Lane<S, P> lane = this.lane(task.priority);
+        lane.waitNanos.add(System.nanoTime() - task.submitTime);
+        try {
+            P payload = task.combinePayloads(combiner);
+            TransitionResult result = task.toState != null
+                    ? stateMachine.tryPostWithPayload(pending.id, task.toState, payload)
+                    : stateMachine.tryAcceptWithPayload(pending.id, task.data, payload);
+            task.future.complete(result);
+        } catch (Exception e) {
+            log.warn("Failed to execute queued transition for '%s'".formatted(pending.id), e);
+            task.future.completeExceptionally(e);
+        }
+        lane.executedCount.increment();
+        boolean isReady;
+        synchronized (lock) {
+            pending.isExecuting = false;
+            isReady = !pending.tasks.isEmpty();
+            if (isReady) {
+                this.enqueue(pending, pending.highestPriority());
+            }
+            else {
+                pendings.remove(pending.id);
+            }
+        }
+        if (isReady) {
+            executor.execute(this::executeNext);
+        }
+    }
+
+    /**
+     * Set whether to merge a post into the last pending post of the same id to the same target state, default is false.
+     *
+     * @param coalescing
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.isCoalescing = coalescing;
+    }
+
+    /**
+     * Combiner of the payloads of merged posts, the earlier one is the first argument.
+     * The last payload is kept if it's not set.
+     *
+     * @param combiner
+     */
+    public void setCombiner(BinaryOperator<P> combiner) {
+        this.combiner = combiner;
+    }
+
+    /**
+     * Set max time an id waits in a lane before it's served ahead of the higher lanes, default is 1 second.
+     *
+     * @param maxWait
+     */
+    public void setMaxWait(Duration maxWait) {
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * How many ids have pending or executing transitions.
+     *
+     * @return
+     */
+    public int getPendingIdCount() {
+        synchronized (lock) {
+            return pendings.size();
+        }
+    }
+
+    /**
+     * How many transitions of the priority are pending.
+     *
+     * @param priority
+     * @return
+     */
+    public int getLaneDepth(Priority priority) {
+        synchronized (lock) {
+            return this.lane(priority).depth;
+        }
+    }
+
+    /**
+     * Average time the executed transitions of the priority waited from submission to execution.
+     *
+     * @param priority
+     * @return
+     */
+    public Duration getAverageWait(Priority priority) {
+        Lane<S, P> lane = this.lane(priority);
+        long count = lane.executedCount.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(lane.waitNanos.sum() / count);
+    }
+
+    /**
+     * How many transitions have been submitted, including the merged ones.
+     *
+     * @return
+     */
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    /**
+     * How many transitions have been merged into pending ones in coalescing mode.
+     *
+     * @return
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * How many transitions have been executed.
+     *
+     * @return
+     */
+    public long getExecutedCount() {
+        long count = 0;
+        for (Lane<S, P> lane : lanes) {
+            count += lane.executedCount.sum();
+        }
+        return count;
+    }
+
+    /**
+     * How many transitions of the priority have been executed.
+     *
+     * @param priority
+     * @return
+     */
+    public long getExecutedCount(Priority priority) {
+        return this.lane(priority).executedCount.sum();
+    }
+
+    /**
+     * Pending transitions of an id.
+     */
+    private static class Pending<S extends Serializable, P extends Serializable> {
+
+        private final String id;
+
+        private final ArrayDeque<Task<S, P>> tasks = new ArrayDeque<>();
+
+        // the ticket in the lane it's waiting in, null if it's executing or has no pending transitions.
+        private Ticket<S, P> ticket;
+
+        private boolean isExecuting;
+
+        private Pending(String id) {
+            this.id = id;
+        }
+
+        private Priority highestPriority() {
+            Priority highest = Priority.LOW;
+            for (Task<S, P> task : tasks) {
+                if (task.priority.compareTo(highest) < 0) {
+                    highest = task.priority;
+                }
+            }
+            return highest;
+        }
+    }
+
+    /**
+     * Ids ready to execute with the same priority.
+     */
+    private static class Lane<S extends Serializable, P extends Serializable> {
+
+        // in the order of arrival, including the stale ones.
+        private final ArrayDeque<Ticket<S, P>> tickets = new ArrayDeque<>();
+
+        // pending transitions of the priority.
+        private int depth;
+
+        private final LongAdder waitNanos = new LongAdder();
+
+        private final LongAdder executedCount = new LongAdder();
+    }
+
+    /**
+     * Place of an id in a lane.
+     */
+    private static class Ticket<S extends Serializable, P extends Serializable> {
+
+        private final Pending<S, P> pending;
+
+        private final Priority priority;
+
+        private final long readyTime;
+
+        private Ticket(Pending<S, P> pending, Priority priority, long readyTime) {
+            this.pending = pending;
+            this.priority = priority;
+            this.readyTime = readyTime;
+        }
+
+        /**
+         * Stale if the id has moved to a higher lane, or has been taken from it.
+         */
+        private boolean isStale() {
+            return pending.ticket != this;
+        }
+    }
+
+    private static class Task<S extends Serializable, P extends Serializable> {
+
+        // null for an input to trigger.
+        private final S toState;
+
+        private final Object data;
+
+        // payloads of the merged posts in order.
+        private final List<P> payloads = new ArrayList<>(1);
+
+        private Priority priority;
+
+        private final long submitTime = System.nanoTime();
+
+        private final CompletableFuture<TransitionResult> future = new CompletableFuture<>();
+
+        private Task(S toState, Object data, P payload, Priority priority) {
+            this.toState = toState;
+            this.data = data;
+            this.payloads.add(payload);
+            this.priority = priority;
+        }
+
+        /**
+         * @param combiner null to keep the last payload.
+         */
+        private P combinePayloads(BinaryOperator<P> combiner) {
+            P payload = payloads.get(0);
+            for (int i = 1; i < payloads.size(); i++) {
+                payload = combiner == null ? payloads.get(i) : combiner.apply(payload, payloads.get(i));
+            }
+            return payload;
+        }
+
+        /**
+         * Only posts to the same target state can be merged, the target of an input depends on the state when executed.
+         */
+        private boolean isCoalescible(Task<S, P> next) {
+            return toState != null && Objects.equals(toState, next.toState);
+        }
+    }
+}
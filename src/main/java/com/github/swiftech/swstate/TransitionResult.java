@@ -0,0 +1,62 @@
+package com.github.swiftech.swstate;
+
+/**
+ * Result of {@code tryPost*} and {@code tryAccept*} methods, which are returned instead of throwing exceptions.
+ *
+ * @author swiftech
+ * @since 2.3
+ */
+public enum TransitionResult {
+
+    /**
+     * The state is transited.
+     */
+    OK,
+
+    /**
+     * The state machine for the id is not started.
+     */
+    NOT_STARTED,
+
+    /**
+     * No action from the current state to the target state.
+     */
+    NO_ROUTE,
+
+    /**
+     * The action from the current state to the target state is rejected by its guard.
+     */
+    REJECTED,
+
+    /**
+     * No trigger of the current state accepts the data.
+     */
+    NO_TRIGGER,
+
+    /**
+     * Any IN/OUT process fails, the state is transited anyway in silent mode, otherwise it's not.
+     */
+    PROCESS_FAILED,
+
+    /**
+     * The max concurrency of transitions into the target state is reached, and the transition is rejected.
+     */
+    OVERLOADED,
+
+    /**
+     * The state is changed concurrently after read, only by {@link AsyncStateMachine}.
+     * The state is not written, but the processes of the transition may have been executed.
+     */
+    CONFLICT;
+
+    public boolean isOk() {
+        return this == OK;
+    }
+
+    /**
+     * Whether the state should be written after the transition, which is also true for failed processes in silent mode.
+     */
+    boolean isWritable(boolean isSilent) {
+        return this == OK || (this == PROCESS_FAILED && isSilent);
+    }
+}
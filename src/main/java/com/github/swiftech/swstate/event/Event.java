@@ -0,0 +1,83 @@
+package com.github.swiftech.swstate.event;
+
+import java.io.Serializable;
+
+/**
+ * An event records one input accepted by, or one state posted to, the state machine for an id.
+ * The events of an id in order are enough to rebuild the state of it by {@code EventReplayer}.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class Event<S extends Serializable, P extends Serializable> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Type of the event.
+     */
+    public enum Type {
+        START, // started from the initial state, or from a specified state
+        POST, // posted to a target state
+        ACCEPT, // accepted input data which triggered a transition
+        RESET // reset to a state no matter what the state is
+    }
+
+    private final Type type;
+
+    private final String id;
+
+    /**
+     * Target state for POST and RESET, the specified initial state for START (null for the default initial state).
+     */
+    private final S state;
+
+    /**
+     * Input data for ACCEPT, it must be serializable if the event store persists events.
+     */
+    private final Object data;
+
+    private final P payload;
+
+    private final long timestamp;
+
+    public Event(Type type, String id, S state, Object data, P payload) {
+        this.type = type;
+        this.id = id;
+        this.state = state;
+        this.data = data;
+        this.payload = payload;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public S getState() {
+        return state;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public P getPayload() {
+        return payload;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "%s '%s' (%s)".formatted(type, id, type == Type.ACCEPT ? data : state);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.swiftech.swstate.event;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+/**
+ * Event store let you implement your own storage to record events of state machine.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @see FileEventStore
+ * @since 2.3
+ */
+public interface EventStore<S extends Serializable, P extends Serializable> {
+
+    /**
+     * Append an event to the end of the store.
+     *
+     * @param event
+     */
+    void append(Event<S, P> event);
+
+    /**
+     * Iterate all events in the order they were appended.
+     *
+     * @param consumer
+     */
+    void forEach(Consumer<Event<S, P>> consumer);
+
+}
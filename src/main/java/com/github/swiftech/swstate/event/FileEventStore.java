@@ -0,0 +1,78 @@
+package com.github.swiftech.swstate.event;
+
+import com.github.swiftech.swstate.StateException;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Default event store that appends events to a local file.
+ * Each event is serialized and written with its length ahead, the file is flushed after each appending.
+ *
+ * @param <S> type of State
+ * @param <P> type of Payload
+ * @author swiftech
+ * @since 2.3
+ */
+public class FileEventStore<S extends Serializable, P extends Serializable> implements EventStore<S, P>, Closeable {
+
+    private final Path file;
+
+    private final DataOutputStream out;
+
+    public FileEventStore(Path file) {
+        this.file = file;
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)));
+        } catch (IOException e) {
+            throw new StateException("Failed to open event store file: " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void append(Event<S, P> event) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(event);
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new StateException("Failed to append event: " + event, e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized void forEach(Consumer<Event<S, P>> consumer) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile())))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] buf = new byte[length];
+                in.readFully(buf);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(buf))) {
+                    consumer.accept((Event<S, P>) ois.readObject());
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new StateException("Failed to read events from file: " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
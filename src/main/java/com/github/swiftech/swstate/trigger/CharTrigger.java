@@ -14,6 +14,14 @@ public class CharTrigger implements Trigger {
 
     @Override
     public boolean accept(Object data, Object payload) {
-        return character == data;
+        return character.equals(data);
+    }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public Character getCharacter() {
+        return character;
     }
 }
@@ -16,4 +16,12 @@ public class DoubleTrigger implements Trigger {
     public boolean accept(Object data, Object payload) {
         return aDouble.equals(data);
     }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public Double getDouble() {
+        return aDouble;
+    }
 }
@@ -16,4 +16,12 @@ public class FloatTrigger implements Trigger {
     public boolean accept(Object data, Object payload) {
         return aFloat.equals(data);
     }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public Float getFloat() {
+        return aFloat;
+    }
 }
@@ -16,4 +16,12 @@ public class IntTrigger implements Trigger {
     public boolean accept(Object data, Object payload) {
         return integer.equals(data);
     }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public Integer getInteger() {
+        return integer;
+    }
 }
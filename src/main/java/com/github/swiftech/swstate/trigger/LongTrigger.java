@@ -16,4 +16,12 @@ public class LongTrigger implements Trigger {
     public boolean accept(Object data, Object payload) {
         return l.equals(data);
     }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public Long getLong() {
+        return l;
+    }
 }
@@ -16,4 +16,12 @@ public class ObjectTrigger implements Trigger {
     public boolean accept(Object data, Object payload) {
         return object.equals(data);
     }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public Object getObject() {
+        return object;
+    }
 }
@@ -16,4 +16,12 @@ public class StringTrigger implements Trigger {
     public boolean accept(Object data, Object payload) {
         return text.equals(data);
     }
+
+    /**
+     * @return
+     * @since 2.3
+     */
+    public String getText() {
+        return text;
+    }
 }
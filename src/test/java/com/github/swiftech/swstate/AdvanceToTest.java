@@ -0,0 +1,87 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class AdvanceToTest extends BaseStateTest {
+
+    private final List<String> processes = new ArrayList<>();
+
+    private final List<String> writes = new ArrayList<>();
+
+    private StateMachine<String, Integer> createStateMachine() {
+        StateBuilder<String, Integer> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED)
+                .action("cancel", CREATED, CANCELED)
+                .action("ship", PAYED, SHIPPED, amount -> amount != null && amount > 0)
+                .action("receive", SHIPPED, RECEIVED)
+                .state(PAYED).in(payload -> processes.add("in payed")).out(payload -> processes.add("out payed"))
+                .state(SHIPPED).in(payload -> processes.add("in shipped"))
+                .state(RECEIVED).in(payload -> processes.add("in received"));
+        return new StateMachine<>(stateBuilder, new DefaultStateProvider<>() {
+            @Override
+            public void setState(String id, String state) {
+                writes.add(state);
+                super.setState(id, state);
+            }
+        });
+    }
+
+    @Test
+    public void advanceTo() {
+        StateMachine<String, Integer> sm = createStateMachine();
+        sm.start("order-1");
+        Assertions.assertEquals(List.of(PAYED, SHIPPED, RECEIVED), sm.advanceTo("order-1", RECEIVED, 1));
+        Assertions.assertEquals(RECEIVED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(List.of("in payed", "out payed", "in shipped", "in received"), processes);
+        Assertions.assertEquals(List.of(RECEIVED), writes);
+        Assertions.assertTrue(sm.advanceTo("order-1", RECEIVED, 1).isEmpty());
+        Assertions.assertThrows(StateException.class, () -> sm.advanceTo("order-1", PAYED, 1));
+        Assertions.assertThrows(StateException.class, () -> sm.advanceTo("order-2", PAYED, 1));
+    }
+
+    @Test
+    public void persistEveryHop() {
+        StateMachine<String, Integer> sm = createStateMachine();
+        sm.setPersistEveryHop(true);
+        sm.start("order-1");
+        sm.advanceTo("order-1", RECEIVED, 1);
+        Assertions.assertEquals(List.of(PAYED, SHIPPED, RECEIVED), writes);
+    }
+
+    @Test
+    public void rejectedByGuard() {
+        StateMachine<String, Integer> sm = createStateMachine();
+        sm.start("order-1");
+        Assertions.assertThrows(StateException.class, () -> sm.advanceTo("order-1", RECEIVED, 0));
+        // the state reached before the rejected transition is written
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(List.of(PAYED), writes);
+    }
+
+    @Test
+    public void lazyStartFailedAtFirstHop() {
+        StateBuilder<String, Integer> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, amount -> amount != null && amount > 0)
+                .state(CREATED).in(payload -> processes.add("in created"));
+        StateMachine<String, Integer> sm = new StateMachine<>(stateBuilder);
+        sm.setLazyStart(true);
+        Assertions.assertThrows(StateException.class, () -> sm.advanceTo("order-1", PAYED, 0));
+        // the initial state is written since its IN processes are executed
+        Assertions.assertEquals(List.of("in created"), processes);
+        Assertions.assertEquals(CREATED, sm.getStateProvider().getCurrentState("order-1"));
+        sm.advanceTo("order-1", PAYED, 1);
+        Assertions.assertEquals(List.of("in created"), processes);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class AsyncProcessTest extends BaseStateTest {
+
+    private final List<String> processes = new CopyOnWriteArrayList<>();
+
+    private CompletableFuture<Void> later(String name) {
+        return CompletableFuture.runAsync(() -> processes.add(name),
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+    }
+
+    private StateBuilder<String, String> createBuilder() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(CREATED).outAsync(payload -> later("out created"))
+                .state(PAYED).in(payload -> processes.add("in payed 1"))
+                .inAsync(payload -> later("in payed 2"))
+                .inParallel(payload -> later("in payed 3").join(), (AsyncProcess<String>) payload -> later("in payed 4"))
+                .in(payload -> processes.add("in payed 5"))
+                .state(SHIPPED).inAsync(payload -> CompletableFuture.failedFuture(new RuntimeException("force exception")))
+                .inAsync(payload -> later("in shipped"));
+        return stateBuilder;
+    }
+
+    @Test
+    public void postAsync() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        sm.start("order-1");
+        CompletableFuture<Void> future = sm.postAsync("order-1", PAYED, null).toCompletableFuture();
+        Assertions.assertFalse(future.isDone());
+        future.join();
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(List.of("out created", "in payed 1", "in payed 2"), processes.subList(0, 3));
+        Assertions.assertTrue(processes.subList(3, 5).containsAll(List.of("in payed 3", "in payed 4")));
+        Assertions.assertEquals("in payed 5", processes.get(5));
+
+        // failures
+        AtomicInteger exceptions = new AtomicInteger();
+        sm.setExceptionHandler(e -> exceptions.incrementAndGet());
+        sm.setSilent(false);
+        CompletableFuture<Void> failed = sm.postAsync("order-1", SHIPPED, null).toCompletableFuture();
+        CompletionException e = Assertions.assertThrows(CompletionException.class, failed::join);
+        Assertions.assertInstanceOf(StateException.class, e.getCause());
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        sm.setSilent(true);
+        sm.postAsync("order-1", SHIPPED, null).toCompletableFuture().join();
+        Assertions.assertEquals(SHIPPED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(2, exceptions.get());
+        Assertions.assertFalse(processes.contains("in shipped"));
+        Assertions.assertThrows(CompletionException.class, () -> sm.postAsync("order-1", PAYED, null).toCompletableFuture().join());
+    }
+
+    @Test
+    public void resumedByProcessExecutor() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(PAYED).inAsync(payload -> later("in payed 1"))
+                .in(payload -> processes.add(Thread.currentThread().getName()));
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "process-executor"));
+        try {
+            sm.setProcessExecutor(executor);
+            sm.start("order-1");
+            sm.postAsync("order-1", PAYED, null).toCompletableFuture().join();
+            // not the thread of the delayed executor which completes the async process
+            Assertions.assertEquals(List.of("in payed 1", "process-executor"), processes);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void acceptAsync() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        sm.start("order-1");
+        Assertions.assertFalse(sm.acceptAsync("order-1", 'x', null).toCompletableFuture().join());
+        Assertions.assertTrue(sm.acceptAsync("order-1", 'p', null).toCompletableFuture().join());
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(6, processes.size());
+    }
+
+    @Test
+    public void blocking() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        sm.start("order-1");
+        sm.post("order-1", PAYED);
+        Assertions.assertEquals(6, processes.size());
+    }
+
+    @Test
+    public void asyncStateMachine() {
+        AsyncStateMachine<String, String> sm = new AsyncStateMachine<>(createBuilder(),
+                AsyncStateProvider.fromSync(new DefaultStateProvider<>(), Runnable::run));
+        sm.setExecutor(Runnable::run);
+        Assertions.assertEquals(TransitionResult.OK, sm.start("order-1", null).toCompletableFuture().join());
+        Assertions.assertEquals(TransitionResult.OK, sm.post("order-1", PAYED, null).toCompletableFuture().join());
+        Assertions.assertEquals(6, processes.size());
+        Assertions.assertEquals(TransitionResult.PROCESS_FAILED, sm.post("order-1", SHIPPED, null).toCompletableFuture().join());
+        Assertions.assertEquals(SHIPPED, sm.getCurrentState("order-1").toCompletableFuture().join());
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class AsyncStateMachineTest extends BaseStateTest {
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    private StateBuilder<String, String> createBuilder() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(PAYED).in(payload -> processed.incrementAndGet());
+        return stateBuilder;
+    }
+
+    @Test
+    public void asyncStateMachine() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncStateProvider<String> stateProvider = AsyncStateProvider.fromSync(new DefaultStateProvider<>(), executor);
+            AsyncStateMachine<String, String> sm = new AsyncStateMachine<>(createBuilder(), stateProvider);
+            Assertions.assertEquals(TransitionResult.NOT_STARTED, sm.post("order-1", PAYED, null).toCompletableFuture().join());
+            Assertions.assertEquals(TransitionResult.OK, sm.start("order-1", null).toCompletableFuture().join());
+            Assertions.assertEquals(TransitionResult.CONFLICT, sm.start("order-1", null).toCompletableFuture().join());
+            Assertions.assertEquals(TransitionResult.NO_TRIGGER, sm.accept("order-1", 'x', null).toCompletableFuture().join());
+            Assertions.assertEquals(TransitionResult.OK, sm.accept("order-1", 'p', null).toCompletableFuture().join());
+            Assertions.assertEquals(PAYED, sm.getCurrentState("order-1").toCompletableFuture().join());
+            Assertions.assertEquals(TransitionResult.NO_ROUTE, sm.post("order-1", CANCELED, null).toCompletableFuture().join());
+            Assertions.assertEquals(PAYED, stateProvider.toSync().getCurrentState("order-1"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentPosts() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            AsyncStateMachine<String, String> sm = new AsyncStateMachine<>(createBuilder(),
+                    AsyncStateProvider.fromSync(new DefaultStateProvider<>(), executor));
+            sm.start("order-1", null).toCompletableFuture().join();
+            List<CompletableFuture<TransitionResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(sm.post("order-1", PAYED, null).toCompletableFuture());
+            }
+            long ok = futures.stream().map(CompletableFuture::join).filter(TransitionResult::isOk).count();
+            // only one transition is written, the others are rejected or in conflict.
+            Assertions.assertEquals(1, ok);
+            Assertions.assertTrue(processed.get() >= 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void changedConcurrently() {
+        DefaultStateProvider<String> syncProvider = new DefaultStateProvider<>();
+        AtomicBoolean isChanging = new AtomicBoolean();
+        AsyncStateProvider<String> stateProvider = new AsyncStateProviderAdapter<>(syncProvider, Runnable::run) {
+            @Override
+            public CompletionStage<String> getCurrentState(String id) {
+                CompletionStage<String> state = super.getCurrentState(id);
+                // another transition writes between the read and the compare-and-set.
+                if (isChanging.compareAndSet(true, false)) {
+                    syncProvider.setState(id, CANCELED);
+                }
+                return state;
+            }
+        };
+        AsyncStateMachine<String, String> sm = new AsyncStateMachine<>(createBuilder(), stateProvider);
+        sm.start("order-1", null).toCompletableFuture().join();
+        isChanging.set(true);
+        Assertions.assertEquals(TransitionResult.CONFLICT, sm.post("order-1", PAYED, null).toCompletableFuture().join());
+        // the processes have been executed, but the state is not overwritten.
+        Assertions.assertEquals(1, processed.get());
+        Assertions.assertEquals(CANCELED, syncProvider.getCurrentState("order-1"));
+    }
+
+    @Test
+    public void toSync() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncStateProvider<String> asyncStateProvider = new AsyncStateProviderAdapter<>(new DefaultStateProvider<>(), executor) {
+                @Override
+                public StateProvider<String> toSync() {
+                    return new BlockingStateProvider<>(this);
+                }
+            };
+            StateMachine<String, String> sm = new StateMachine<>(createBuilder(), asyncStateProvider.toSync());
+            sm.start("order-1");
+            sm.accept("order-1", 'p');
+            Assertions.assertTrue(sm.isStateOfIdIn("order-1", CANCELED, PAYED));
+            Assertions.assertEquals(PAYED, asyncStateProvider.getCurrentState("order-1").toCompletableFuture().join());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
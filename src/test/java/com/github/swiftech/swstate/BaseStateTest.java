@@ -2,6 +2,8 @@ package com.github.swiftech.swstate;
 
 import com.github.swiftech.swstate.trigger.Trigger;
 
+import java.io.Serializable;
+
 import static com.github.swiftech.swstate.TestConstants.*;
 
 /**
@@ -56,6 +58,21 @@ public class BaseStateTest {
         return stateBuilder;
     }
 
+    /**
+     * create a builder for testing which takes order state processing:
+     * Created -('p')-> Payed -('s')-> Shipped, and Created -('c')-> Canceled.
+     *
+     * @return StateBuilder for testing.
+     */
+    protected <P extends Serializable> StateBuilder<String, P> createOrderStateBuilder() {
+        StateBuilder<String, P> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, stateBuilder.triggerBuilder().c('p').build())
+                .action("ship", PAYED, SHIPPED, stateBuilder.triggerBuilder().c('s').build())
+                .action("cancel", CREATED, CANCELED, stateBuilder.triggerBuilder().c('c').build());
+        return stateBuilder;
+    }
+
     protected void waitUntil(int second) {
         try {
             Thread.sleep(second * 1000);
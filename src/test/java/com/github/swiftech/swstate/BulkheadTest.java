@@ -0,0 +1,175 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class BulkheadTest extends BaseStateTest {
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private final AtomicInteger inProcess = new AtomicInteger();
+
+    private final AtomicInteger maxInProcess = new AtomicInteger();
+
+    private StateMachine<String, String> createStateMachine(Bulkhead.Policy policy) {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(PAYED).maxConcurrency(1, policy)
+                .in(payload -> {
+                    maxInProcess.accumulateAndGet(inProcess.incrementAndGet(), Math::max);
+                    entered.countDown();
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    inProcess.decrementAndGet();
+                });
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        sm.start("order-1");
+        sm.start("order-2");
+        return sm;
+    }
+
+    @Test
+    public void bulkheadPerDefinition() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(PAYED).maxConcurrency(1, Bulkhead.Policy.REJECT);
+        StateMachine<String, String> sm1 = new StateMachine<>(stateBuilder);
+        StateMachine<String, String> sm2 = new StateMachine<>(stateBuilder);
+        Assertions.assertNotSame(sm1.getBulkhead(PAYED), sm2.getBulkhead(PAYED));
+        Assertions.assertEquals(1, sm2.getBulkhead(PAYED).getMaxConcurrency());
+        Assertions.assertEquals(Bulkhead.Policy.REJECT, sm2.getBulkhead(PAYED).getPolicy());
+    }
+
+    @Test
+    public void reject() throws InterruptedException {
+        StateMachine<String, String> sm = createStateMachine(Bulkhead.Policy.REJECT);
+        Thread first = new Thread(() -> sm.post("order-1", PAYED));
+        first.start();
+        entered.await();
+        Assertions.assertEquals(TransitionResult.OVERLOADED, sm.tryPost("order-2", PAYED));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-2"));
+        // rejected even in silent mode
+        Assertions.assertThrows(StateException.class, () -> sm.post("order-2", PAYED));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-2"));
+        released.countDown();
+        first.join();
+
+        Bulkhead bulkhead = sm.getBulkhead(PAYED);
+        Assertions.assertEquals(2, bulkhead.getRejectedCount());
+        Assertions.assertEquals(0, bulkhead.getInFlight());
+        Assertions.assertNull(sm.getBulkhead(CREATED));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(TransitionResult.OK, sm.tryPost("order-2", PAYED));
+    }
+
+    @Test
+    public void queue() throws InterruptedException {
+        StateMachine<String, String> sm = createStateMachine(Bulkhead.Policy.QUEUE);
+        Bulkhead bulkhead = sm.getBulkhead(PAYED);
+        Thread first = new Thread(() -> sm.post("order-1", PAYED));
+        first.start();
+        entered.await();
+        Thread second = new Thread(() -> sm.post("order-2", PAYED));
+        second.start();
+        while (bulkhead.getQueueLength() == 0) {
+            Thread.onSpinWait();
+        }
+        released.countDown();
+        first.join();
+        second.join();
+
+        Assertions.assertEquals(1, maxInProcess.get());
+        Assertions.assertEquals(1, bulkhead.getQueuedCount());
+        Assertions.assertEquals(0, bulkhead.getRejectedCount());
+        Assertions.assertEquals(0, bulkhead.getInFlight());
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-2"));
+    }
+
+    @Test
+    public void boundedQueue() throws Exception {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(PAYED).maxConcurrency(1, 1, Duration.ofMillis(100))
+                .in(payload -> {
+                    entered.countDown();
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        for (int i = 1; i <= 3; i++) {
+            sm.start("order-" + i);
+        }
+        Bulkhead bulkhead = sm.getBulkhead(PAYED);
+        Thread first = new Thread(() -> sm.post("order-1", PAYED));
+        first.start();
+        entered.await();
+        CompletableFuture<TransitionResult> second = CompletableFuture.supplyAsync(() -> sm.tryPost("order-2", PAYED));
+        while (bulkhead.getQueueLength() == 0) {
+            Thread.onSpinWait();
+        }
+        // the queue is full
+        Assertions.assertEquals(TransitionResult.OVERLOADED, sm.tryPost("order-3", PAYED));
+        // waited too long
+        Assertions.assertEquals(TransitionResult.OVERLOADED, second.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, bulkhead.getQueueLength());
+        Assertions.assertEquals(2, bulkhead.getRejectedCount());
+        released.countDown();
+        first.join();
+        Assertions.assertEquals(0, bulkhead.getInFlight());
+        Assertions.assertEquals(TransitionResult.OK, sm.tryPost("order-2", PAYED));
+    }
+
+    @Test
+    public void async() {
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(PAYED).maxConcurrency(1, Bulkhead.Policy.REJECT)
+                .inAsync(payload -> pending);
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        sm.start("order-1");
+        sm.start("order-2");
+        CompletableFuture<Void> first = sm.postAsync("order-1", PAYED, null).toCompletableFuture();
+        CompletableFuture<Void> second = sm.postAsync("order-2", PAYED, null).toCompletableFuture();
+        CompletionException e = Assertions.assertThrows(CompletionException.class, second::join);
+        Assertions.assertInstanceOf(StateException.class, e.getCause());
+        pending.complete(null);
+        first.join();
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-2"));
+        Assertions.assertEquals(0, sm.getBulkhead(PAYED).getInFlight());
+
+        CompletableFuture<Void> blocking = new CompletableFuture<>();
+        StateBuilder<String, String> asyncBuilder = createOrderStateBuilder();
+        asyncBuilder.state(PAYED).maxConcurrency(1, Bulkhead.Policy.REJECT)
+                .inAsync(payload -> blocking);
+        AsyncStateMachine<String, String> asm = new AsyncStateMachine<>(asyncBuilder,
+                AsyncStateProvider.fromSync(new DefaultStateProvider<>(), Runnable::run));
+        asm.setExecutor(Runnable::run);
+        asm.start("order-1", null).toCompletableFuture().join();
+        asm.start("order-2", null).toCompletableFuture().join();
+        CompletableFuture<TransitionResult> admitted = asm.post("order-1", PAYED, null).toCompletableFuture();
+        Assertions.assertEquals(TransitionResult.OVERLOADED, asm.post("order-2", PAYED, null).toCompletableFuture().join());
+        blocking.complete(null);
+        Assertions.assertEquals(TransitionResult.OK, admitted.join());
+        Assertions.assertEquals(CREATED, asm.getCurrentState("order-2").toCompletableFuture().join());
+    }
+}
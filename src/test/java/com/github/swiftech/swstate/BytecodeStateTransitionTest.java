@@ -0,0 +1,100 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class BytecodeStateTransitionTest extends BaseStateTest {
+
+    enum Order {
+        CREATED, PAYED, SHIPPED, CANCELED, UNUSED
+    }
+
+    private StateBuilder<Order, String> createEnumStateBuilder() {
+        StateBuilder<Order, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(Order.CREATED)
+                .action("pay", Order.CREATED, Order.PAYED, stateBuilder.triggerBuilder().c('p').s("pay").i(1).build())
+                .action("cancel", Order.CREATED, Order.CANCELED, stateBuilder.triggerBuilder().c('c', '\'').l(1L, Long.MAX_VALUE).build())
+                .action("ship", Order.PAYED, Order.SHIPPED, stateBuilder.triggerBuilder().s("ship", "\u4e2d\n").i(100000).build())
+                .action("refund", Order.PAYED, Order.CANCELED, stateBuilder.triggerBuilder().s("ship").i(-2).build())
+                .action("payed", Order.PAYED, Order.PAYED);
+        return stateBuilder;
+    }
+
+    @Test
+    public void testSameAsStateTransition() {
+        StateTransition<Order, String> expected = new StateTransition<>(createEnumStateBuilder());
+        StateTransition<Order, String> compiled = createEnumStateBuilder().compileToBytecode();
+        List<Order> states = new ArrayList<>(List.of(Order.values()));
+        states.add(null);
+        List<Object> inputs = List.of('p', 'c', '\'', 'x', "pay", "ship", "\u4e2d\n", "none", 1, -2, 100000, 7,
+                1L, Long.MAX_VALUE, 2L, 1.0f, new Object());
+        for (Order from : states) {
+            for (Order to : states) {
+                Assertions.assertEquals(expected.hasRoute(from, to), compiled.hasRoute(from, to), from + " -> " + to);
+            }
+            for (Object input : inputs) {
+                Assertions.assertEquals(expected.resolveTrigger(from, input, null),
+                        compiled.resolveTrigger(from, input, null), from + " by " + input);
+            }
+            Assertions.assertNull(compiled.resolveTrigger(from, null, null));
+        }
+        // built-in triggers are inlined
+        Dispatcher dispatcher = ((BytecodeStateTransition<Order, String>) compiled).getDispatcher();
+        Assertions.assertEquals(Dispatcher.NONE, dispatcher.resolve(Order.CREATED.ordinal() + 1, 'x'));
+        Assertions.assertEquals(Order.PAYED.ordinal() + 1, dispatcher.resolve(Order.CREATED.ordinal() + 1, "pay"));
+    }
+
+    @Test
+    public void testStateMachine() {
+        // string states with custom and float triggers fall back to the triggers.
+        StateMachine<String, String> sm = new StateMachine<>(createTestStateBuilder().compileToBytecode(), new DefaultStateProvider<>());
+        sm.start();
+        Assertions.assertTrue(sm.accept(200));
+        Assertions.assertEquals(s2, sm.getCurrentState());
+        Assertions.assertTrue(sm.accept('b'));
+        Assertions.assertEquals(s1, sm.getCurrentState());
+        Assertions.assertTrue(sm.accept('A'));
+        Assertions.assertTrue(sm.accept(3.0f));
+        Assertions.assertEquals(s3, sm.getCurrentState());
+        sm.post(s1);
+        Assertions.assertEquals(s1, sm.getCurrentState());
+        Assertions.assertThrows(RuntimeException.class, () -> sm.post(s4));
+    }
+
+    @Test
+    public void testGuard() {
+        StateBuilder<String, Integer> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(s1)
+                .action("small", s1, s2, amount -> amount < 100, stateBuilder.triggerBuilder().c('p').build())
+                .action("large", s1, s3, amount -> amount >= 100, stateBuilder.triggerBuilder().c('p').build());
+        StateTransition<String, Integer> compiled = stateBuilder.compileToBytecode();
+        Assertions.assertEquals(s2, compiled.resolveTrigger(s1, 'p', 10));
+        Assertions.assertEquals(s3, compiled.resolveTrigger(s1, 'p', 1000));
+    }
+
+    @Test
+    public void testUnloading() throws InterruptedException {
+        WeakReference<Class<?>> ref = new WeakReference<>(this.compileDispatcherClass());
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assertions.assertNull(ref.get());
+    }
+
+    private Class<?> compileDispatcherClass() {
+        StateTransition<Order, String> compiled = createEnumStateBuilder().compileToBytecode();
+        Assertions.assertTrue(compiled.hasRoute(Order.CREATED, Order.PAYED));
+        return ((BytecodeStateTransition<Order, String>) compiled).getDispatcher().getClass();
+    }
+}
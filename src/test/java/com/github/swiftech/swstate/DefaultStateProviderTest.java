@@ -3,6 +3,10 @@ package com.github.swiftech.swstate;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static com.github.swiftech.swstate.TestConstants.*;
 
 /**
@@ -26,4 +30,28 @@ class DefaultStateProviderTest {
         Assertions.assertTrue(provider.isStateIn("state-2", s2, s3));
     }
 
+    @Test
+    void queryByState() {
+        DefaultStateProvider<String> provider = new DefaultStateProvider<>();
+        for (int i = 0; i < 10; i++) {
+            provider.initializeState("id-" + i, s1);
+        }
+        provider.setState("id-3", s2);
+        provider.setState("id-5", s2);
+        provider.setState("id-5", s3);
+        Assertions.assertEquals(Map.of(s1, 8, s2, 1, s3, 1), provider.countByState());
+
+        Assertions.assertEquals(List.of("id-0", "id-1", "id-2"), provider.idsInState(s1, null, 3));
+        Assertions.assertEquals(List.of("id-4", "id-6", "id-7"), provider.idsInState(s1, "id-2", 3));
+        Assertions.assertEquals(List.of("id-8", "id-9"), provider.idsInState(s1, "id-7", 3));
+        Assertions.assertTrue(provider.idsInState(s1, "id-9", 3).isEmpty());
+        Assertions.assertTrue(provider.idsInState(s4, null, 3).isEmpty());
+
+        List<String> ids = new ArrayList<>();
+        provider.forEachInState(s2, ids::add);
+        Assertions.assertEquals(List.of("id-3"), ids);
+        provider.setState("id-3", s1);
+        Assertions.assertFalse(provider.countByState().containsKey(s2));
+    }
+
 }
\ No newline at end of file
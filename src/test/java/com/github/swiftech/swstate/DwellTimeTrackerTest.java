@@ -0,0 +1,76 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class DwellTimeTrackerTest extends BaseStateTest {
+
+    @Test
+    public void dwellTime() throws InterruptedException {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.action("refresh", PAYED, PAYED);
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        DwellTimeTracker<String> tracker = new DwellTimeTracker<>(stateBuilder);
+        sm.setDwellTimeTracker(tracker);
+        sm.start("order-1");
+        sm.start("order-2");
+        Thread.sleep(20);
+        sm.post("order-1", PAYED);
+        Thread.sleep(20);
+        // self-circulation doesn't leave the state
+        sm.post("order-1", PAYED);
+        Thread.sleep(20);
+        sm.post("order-1", SHIPPED);
+
+        DwellTimeTracker.Histogram created = tracker.getHistogram(CREATED);
+        Assertions.assertEquals(1, created.getCount());
+        Assertions.assertTrue(created.getMean().toMillis() >= 20);
+        DwellTimeTracker.Histogram payed = tracker.getHistogram(PAYED);
+        Assertions.assertEquals(1, payed.getCount());
+        Assertions.assertTrue(payed.getMax().toMillis() >= 40);
+        Assertions.assertEquals(payed.getMax(), payed.getPercentile(0.99));
+        Assertions.assertEquals(0, tracker.getHistogram(SHIPPED).getCount());
+        Assertions.assertNull(tracker.getHistogram("Unknown"));
+
+        Assertions.assertEquals(List.of("order-2"), tracker.stuckIds(CREATED, Duration.ofMillis(50)));
+        Assertions.assertTrue(tracker.stuckIds(CREATED, Duration.ofHours(1)).isEmpty());
+        Assertions.assertTrue(tracker.getDwellTime("order-2").toMillis() >= 60);
+        Assertions.assertNull(tracker.getDwellTime("order-3"));
+        // not tracked in the final state
+        Assertions.assertNull(tracker.getDwellTime("order-1"));
+        Assertions.assertEquals(1, tracker.getTrackedCount());
+
+        sm.resetState("order-2", SHIPPED);
+        Assertions.assertEquals(2, created.getCount());
+        Assertions.assertEquals(0, tracker.getTrackedCount());
+        sm.start("order-3");
+        Assertions.assertEquals(1, tracker.getTrackedCount());
+        tracker.remove("order-3");
+        Assertions.assertEquals(0, tracker.getTrackedCount());
+    }
+
+    @Test
+    public void histogram() {
+        DwellTimeTracker.Histogram histogram = new DwellTimeTracker.Histogram();
+        Assertions.assertEquals(Duration.ZERO, histogram.getPercentile(0.5));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        Assertions.assertEquals(100, histogram.getCount());
+        Assertions.assertEquals(Duration.ofNanos(50_500_000), histogram.getMean());
+        Assertions.assertEquals(Duration.ofMillis(100), histogram.getMax());
+        // the upper bound of the bucket is at most twice the value
+        long p50 = histogram.getPercentile(0.5).toNanos();
+        Assertions.assertTrue(p50 >= 50_000_000 && p50 < 100_000_000, "p50: " + p50);
+        Assertions.assertEquals(Duration.ofMillis(100), histogram.getPercentile(1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.swiftech.swstate;
+
+import com.github.swiftech.swstate.event.FileEventStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class EventReplayerTest extends BaseStateTest {
+
+    @Test
+    public void replay() throws IOException {
+        Path file = Files.createTempFile("swstate-events", ".log");
+        try (FileEventStore<String, String> eventStore = new FileEventStore<>(file)) {
+            StateMachine<String, String> sm = new StateMachine<>(super.createTestStateBuilder());
+            sm.setEventStore(eventStore);
+            for (int i = 0; i < 100; i++) {
+                String id = "issue-" + i;
+                sm.start(id);
+                sm.post(id, s2);
+                if (i % 2 == 0) {
+                    sm.post(id, s3);
+                }
+            }
+
+            DefaultStateProvider<String> provider = new DefaultStateProvider<>();
+            EventReplayer<String, String> replayer = new EventReplayer<>(provider);
+            replayer.setParallelism(4);
+            Assertions.assertEquals(100, replayer.replay(eventStore, super.createTestStateBuilder()));
+            for (int i = 0; i < 100; i++) {
+                String id = "issue-" + i;
+                Assertions.assertEquals(sm.getCurrentState(id), provider.getCurrentState(id));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void replayWithChangedDefinition() throws IOException {
+        Path file = Files.createTempFile("swstate-events", ".log");
+        try (FileEventStore<String, String> eventStore = new FileEventStore<>(file)) {
+            StateMachine<String, String> sm = new StateMachine<>(super.createTestStateBuilder());
+            sm.setEventStore(eventStore);
+            sm.start();
+            sm.accept('a');
+            sm.accept('c');
+            Assertions.assertEquals(s3, sm.getCurrentState());
+
+            // input 'c' is no longer accepted for state s2 in the new definition.
+            AtomicInteger inCount = new AtomicInteger();
+            StateBuilder<String, String> newBuilder = new StateBuilder<>();
+            newBuilder.initialize(s1)
+                    .action("Fix Issue", s1, s2, newBuilder.triggerBuilder().c('a').build())
+                    .action("Test Pass", s2, s3, newBuilder.triggerBuilder().c('x').build())
+                    .state(s2).in(payload -> inCount.incrementAndGet());
+
+            DefaultStateProvider<String> provider = new DefaultStateProvider<>();
+            EventReplayer<String, String> replayer = new EventReplayer<>(provider);
+            replayer.replay(eventStore, newBuilder);
+            Assertions.assertEquals(s2, new StateMachine<>(newBuilder, provider).getCurrentState());
+            Assertions.assertEquals(0, inCount.get());
+
+            replayer = new EventReplayer<>(new DefaultStateProvider<>());
+            replayer.setProcessEnabled(true);
+            replayer.replay(eventStore, newBuilder);
+            Assertions.assertEquals(1, inCount.get());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
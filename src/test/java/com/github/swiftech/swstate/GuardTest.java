@@ -0,0 +1,72 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class GuardTest extends BaseStateTest {
+
+    static final String REVIEW = "Review";
+
+    private StateBuilder<String, Integer> createStateBuilder() {
+        StateBuilder<String, Integer> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, amount -> amount != null && amount < 1000,
+                        stateBuilder.triggerBuilder().c('p').build())
+                .action("review", CREATED, REVIEW, amount -> amount != null && amount >= 1000,
+                        stateBuilder.triggerBuilder().c('p').build())
+                .action("cancel", CREATED, CANCELED);
+        return stateBuilder;
+    }
+
+    @Test
+    public void post() {
+        StateMachine<String, Integer> sm = new StateMachine<>(createStateBuilder());
+        sm.start("order-1");
+        Assertions.assertThrows(StateException.class, () -> sm.postWithPayload("order-1", PAYED, 5000));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-1"));
+        sm.postWithPayload("order-1", PAYED, 10);
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+
+        // action without guard
+        sm.start("order-2");
+        sm.post("order-2", CANCELED);
+        Assertions.assertEquals(CANCELED, sm.getCurrentState("order-2"));
+    }
+
+    @Test
+    public void postOnGuard() {
+        StateMachine<String, Integer> sm = new StateMachine<>(createStateBuilder());
+        sm.start("order-1");
+        Assertions.assertTrue(sm.postOnGuard("order-1", 5000));
+        Assertions.assertEquals(REVIEW, sm.getCurrentState("order-1"));
+        Assertions.assertFalse(sm.postOnGuard("order-1", 5000));
+
+        sm.start("order-2");
+        Assertions.assertFalse(sm.postOnGuard("order-2", null));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-2"));
+    }
+
+    @Test
+    public void acceptWithGuard() {
+        StateMachine<String, Integer> sm = new StateMachine<>(createStateBuilder());
+        sm.start();
+        Assertions.assertTrue(sm.acceptWithPayload('p', 2000));
+        Assertions.assertEquals(REVIEW, sm.getCurrentState());
+
+        for (GuardedAction<String, Integer> guardedAction : sm.getGuardedActions()) {
+            Assertions.assertEquals(1, guardedAction.getEvaluatedCount());
+            if (guardedAction.getStateTo().equals(REVIEW)) {
+                Assertions.assertEquals(1.0, guardedAction.getHitRate());
+            }
+            else {
+                Assertions.assertEquals(0, guardedAction.getPassedCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class HierarchicalStateTest extends BaseStateTest {
+
+    static final String PRE_SHIPPING = "PreShipping";
+
+    private final List<String> processed = new ArrayList<>();
+
+    private StateBuilder<String, String> createStateBuilder() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, stateBuilder.triggerBuilder().c('p').build())
+                .action("cancel", PRE_SHIPPING, CANCELED, stateBuilder.triggerBuilder().c('c').build())
+                .state(PRE_SHIPPING)
+                .in(payload -> processed.add("IN " + PRE_SHIPPING))
+                .out(payload -> processed.add("OUT " + PRE_SHIPPING))
+                .state(CREATED).parent(PRE_SHIPPING)
+                .in(payload -> processed.add("IN " + CREATED))
+                .out(payload -> processed.add("OUT " + CREATED))
+                .state(PAYED).parent(PRE_SHIPPING)
+                .in(payload -> processed.add("IN " + PAYED))
+                .out(payload -> processed.add("OUT " + PAYED))
+                .state(CANCELED)
+                .in(payload -> processed.add("IN " + CANCELED));
+        return stateBuilder;
+    }
+
+    @Test
+    public void inheritedActions() {
+        StateTransition<String, String> transition = new StateTransition<>(createStateBuilder());
+        Assertions.assertTrue(transition.hasRoute(CREATED, CANCELED));
+        Assertions.assertTrue(transition.hasRoute(PAYED, CANCELED));
+        Assertions.assertFalse(transition.hasRoute(CANCELED, PAYED));
+    }
+
+    @Test
+    public void processesAtBoundaries() {
+        this.assertProcessesAtBoundaries(new StateMachine<>(createStateBuilder()));
+    }
+
+    @Test
+    public void processesAtBoundariesCompiled() {
+        this.assertProcessesAtBoundaries(new StateMachine<>(createStateBuilder().compileToBytecode(), new DefaultStateProvider<>()));
+    }
+
+    private void assertProcessesAtBoundaries(StateMachine<String, String> sm) {
+        sm.start();
+        Assertions.assertEquals(List.of("IN " + PRE_SHIPPING, "IN " + CREATED), processed);
+
+        processed.clear();
+        sm.accept('p');
+        Assertions.assertEquals(PAYED, sm.getCurrentState());
+        Assertions.assertEquals(List.of("OUT " + CREATED, "IN " + PAYED), processed);
+
+        processed.clear();
+        sm.accept('c');
+        Assertions.assertEquals(CANCELED, sm.getCurrentState());
+        Assertions.assertEquals(List.of("OUT " + PAYED, "OUT " + PRE_SHIPPING, "IN " + CANCELED), processed);
+    }
+
+    @Test
+    public void circularHierarchy() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.state(CREATED).parent(PRE_SHIPPING);
+        Assertions.assertThrows(StateException.class, () -> stateBuilder.state(PRE_SHIPPING).parent(CREATED));
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class LazyStartTest extends BaseStateTest {
+
+    private final List<String> processes = new ArrayList<>();
+
+    private StateBuilder<String, String> createBuilder() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(CREATED).in(payload -> processes.add("in created " + payload))
+                .out(payload -> processes.add("out created " + payload))
+                .state(PAYED).in(payload -> processes.add("in payed " + payload));
+        return stateBuilder;
+    }
+
+    @Test
+    public void lazyStart() {
+        int[] writes = {0};
+        DefaultStateProvider<String> stateProvider = new DefaultStateProvider<>() {
+            @Override
+            public void initializeState(String id, String state) {
+                writes[0]++;
+                super.initializeState(id, state);
+            }
+
+            @Override
+            public void setState(String id, String state) {
+                writes[0]++;
+                super.setState(id, state);
+            }
+        };
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder(), stateProvider);
+        sm.setLazyStart(true);
+        sm.start("order-1");
+        Assertions.assertEquals(0, writes[0]);
+        Assertions.assertTrue(processes.isEmpty());
+        // never started ids are in initial state too
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-2"));
+        Assertions.assertTrue(sm.isState("order-2", CREATED));
+        Assertions.assertTrue(sm.isStateOfIdIn("order-2", PAYED, CREATED));
+
+        Assertions.assertTrue(sm.acceptWithPayload("order-1", 'p', "a"));
+        Assertions.assertEquals(List.of("in created a", "out created a", "in payed a"), processes);
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(1, writes[0]);
+        Assertions.assertThrows(StateException.class, () -> sm.start("order-1"));
+
+        sm.postWithPayloadOnState("order-2", CANCELED, CREATED, "b");
+        Assertions.assertEquals(CANCELED, sm.getCurrentState("order-2"));
+    }
+
+    @Test
+    public void skipInitialProcess() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        sm.setLazyStart(true);
+        sm.setSkipInitialProcessForLazyStart(true);
+        sm.postWithPayload("order-1", PAYED, "a");
+        Assertions.assertEquals(List.of("out created a", "in payed a"), processes);
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+    }
+
+    @Test
+    public void notLazy() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        Assertions.assertNull(sm.getCurrentState("order-1"));
+        Assertions.assertThrows(StateException.class, () -> sm.accept("order-1", 'p'));
+
+        StateBuilder<String, String> multiple = createBuilder();
+        multiple.initialize(PAYED);
+        Assertions.assertThrows(StateException.class, () -> new StateMachine<>(multiple).setLazyStart(true));
+    }
+}
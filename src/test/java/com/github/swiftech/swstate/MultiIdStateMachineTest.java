@@ -0,0 +1,103 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * Test state machine with multiple ids, every call reads the state of its own id exactly once.
+ *
+ * @author swiftech
+ * @since 2.3
+ */
+public class MultiIdStateMachineTest extends BaseStateTest {
+
+    private CountingStateProvider provider;
+
+    private StateMachine<String, String> sm;
+
+    @BeforeEach
+    public void setup() {
+        provider = new CountingStateProvider();
+        sm = new StateMachine<>(super.createTestStateBuilder(), provider);
+        sm.start("issue-1");
+        sm.start("issue-2");
+        sm.post("issue-2", s2);
+        provider.reads = 0;
+    }
+
+    @Test
+    public void post() {
+        sm.post("issue-1", s2);
+        Assertions.assertEquals(1, provider.reads);
+        Assertions.assertEquals(s2, provider.getCurrentState("issue-1"));
+    }
+
+    @Test
+    public void accept() {
+        // 2 is only accepted in state s2
+        Assertions.assertTrue(sm.accept("issue-2", 2));
+        Assertions.assertEquals(1, provider.reads);
+        Assertions.assertFalse(sm.accept("issue-1", 2));
+        Assertions.assertEquals(2, provider.reads);
+        Assertions.assertEquals(s1, provider.getCurrentState("issue-2"));
+        Assertions.assertEquals(s1, provider.getCurrentState("issue-1"));
+
+        // no triggers for state s4
+        sm.resetState("issue-2", s4);
+        Assertions.assertFalse(sm.accept("issue-2", 'x'));
+        Assertions.assertThrows(StateException.class, () -> sm.accept("not-started", 'a'));
+    }
+
+    @Test
+    public void postOnState() {
+        sm.postOnState("issue-2", s3, s2);
+        Assertions.assertEquals(1, provider.reads);
+        Assertions.assertEquals(s3, provider.getCurrentState("issue-2"));
+
+        provider.reads = 0;
+        sm.postOnState("issue-1", s3, s2);
+        Assertions.assertEquals(1, provider.reads);
+        Assertions.assertEquals(s1, provider.getCurrentState("issue-1"));
+
+        provider.reads = 0;
+        sm.postOnState("issue-1", s3, s2, s2, s1);
+        Assertions.assertEquals(1, provider.reads);
+        Assertions.assertEquals(s2, provider.getCurrentState("issue-1"));
+
+        provider.reads = 0;
+        sm.postOnState("issue-1", Map.of(s1, s2, s2, s3));
+        Assertions.assertEquals(1, provider.reads);
+        Assertions.assertEquals(s3, provider.getCurrentState("issue-1"));
+    }
+
+    /**
+     * Count how many times states are read from the provider.
+     */
+    static class CountingStateProvider extends DefaultStateProvider<String> {
+
+        int reads = 0;
+
+        @Override
+        public String getCurrentState(String id) {
+            reads++;
+            return super.getCurrentState(id);
+        }
+
+        @Override
+        public boolean isState(String id, String state) {
+            reads++;
+            return super.isState(id, state);
+        }
+
+        @Override
+        public boolean isStateIn(String id, String... states) {
+            reads++;
+            return super.isStateIn(id, states);
+        }
+    }
+}
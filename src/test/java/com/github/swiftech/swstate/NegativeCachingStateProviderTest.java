@@ -0,0 +1,104 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class NegativeCachingStateProviderTest extends BaseStateTest {
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private final DefaultStateProvider<String> slowProvider = new DefaultStateProvider<>() {
+        @Override
+        public String getCurrentState(String id) {
+            reads.incrementAndGet();
+            return super.getCurrentState(id);
+        }
+    };
+
+    @Test
+    public void start() {
+        slowProvider.initializeState("order-0", CREATED);
+        NegativeCachingStateProvider<String> provider = new NegativeCachingStateProvider<>(slowProvider, 100, 0.01);
+        StateMachine<String, String> sm = new StateMachine<>(createOrderStateBuilder(), provider);
+        // passed through before seeded
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-0"));
+        Assertions.assertEquals(1, provider.getPassedCount());
+        provider.seed();
+
+        reads.set(0);
+        for (int i = 1; i <= 1000; i++) {
+            sm.start("order-" + i);
+        }
+        // most of the reads for new ids are answered locally, even if the filter grows
+        Assertions.assertTrue(reads.get() < 50, "reads: " + reads.get());
+        Assertions.assertEquals(1000 - reads.get(), provider.getNegativeCount());
+        Assertions.assertThrows(StateException.class, () -> sm.start("order-0"));
+        Assertions.assertThrows(StateException.class, () -> sm.start("order-1000"));
+
+        sm.post("order-1", PAYED);
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertTrue(sm.isStateOfIdIn("order-1", CREATED, PAYED));
+        Assertions.assertNull(sm.getCurrentState("order-1001"));
+        Assertions.assertFalse(sm.isState("order-1001", CREATED));
+        Assertions.assertEquals(TransitionResult.NOT_STARTED, sm.tryPost("order-1001", PAYED));
+    }
+
+    @Test
+    public void seedWithIds() {
+        slowProvider.initializeState("order-1", CREATED);
+        NegativeCachingStateProvider<String> provider = new NegativeCachingStateProvider<>(slowProvider, 100, 0.01);
+        provider.seed(List.of("order-1"));
+        Assertions.assertEquals(CREATED, provider.getCurrentState("order-1"));
+        Assertions.assertThrows(StateException.class,
+                () -> new NegativeCachingStateProvider<>(new TenantStateProvider<>("t", slowProvider), 100, 0.01).seed());
+    }
+
+    @Test
+    public void decoratedInterfaces() {
+        NegativeCachingStateProvider<String> provider = NegativeCachingStateProvider.create(slowProvider, 100, 0.01);
+        provider.seed();
+        StateMachine<String, String> sm = new StateMachine<>(createOrderStateBuilder(), provider);
+        sm.start("order-1");
+        sm.start("order-2");
+        // still indexed for bulk transitions
+        Assertions.assertEquals(2, sm.transitionAll(CREATED, PAYED, null, Parallelism.of(1)));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-2"));
+        Assertions.assertFalse(NegativeCachingStateProvider.create(new TenantStateProvider<>("t", slowProvider), 100, 0.01) instanceof IndexedStateProvider);
+        // the outbox would be hidden
+        Assertions.assertThrows(StateException.class,
+                () -> NegativeCachingStateProvider.create(new DefaultOutboxStateProvider<String, String>(), 100, 0.01));
+    }
+
+    @Test
+    public void bloomFilter() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.add("id-" + i);
+        }
+        Assertions.assertTrue(bloomFilter.getSegmentCount() > 1);
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(bloomFilter.mightContain("id-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (bloomFilter.mightContain("id-" + i)) falsePositives++;
+        }
+        Assertions.assertTrue(falsePositives < 2000, "false positives: " + falsePositives);
+
+        // rewriting the same ids doesn't grow the filter
+        int segments = bloomFilter.getSegmentCount();
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.add("id-" + i);
+        }
+        Assertions.assertEquals(segments, bloomFilter.getSegmentCount());
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class OutboxTest {
+
+    @Test
+    public void deliver() {
+        List<String> processed = new ArrayList<>();
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize("Created")
+                .action("pay", "Created", "Payed")
+                .state("Payed")
+                .in(payload -> processed.add("inline " + payload))
+                .inOutbox(payload -> processed.add("outbox " + payload));
+        DefaultOutboxStateProvider<String, String> provider = new DefaultOutboxStateProvider<>();
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder, provider);
+        OutboxDispatcher<String, String> dispatcher = new OutboxDispatcher<>(sm);
+
+        sm.start("order-1");
+        sm.postWithPayload("order-1", "Payed", "order-1");
+        Assertions.assertEquals("Payed", sm.getCurrentState("order-1"));
+        Assertions.assertEquals(List.of("inline order-1"), processed);
+        Assertions.assertEquals(1, provider.getOutboxSize());
+
+        Assertions.assertEquals(1, dispatcher.dispatch());
+        Assertions.assertEquals(List.of("inline order-1", "outbox order-1"), processed);
+        Assertions.assertEquals(0, provider.getOutboxSize());
+
+        // executed inline without outbox state provider
+        processed.clear();
+        StateMachine<String, String> sm2 = new StateMachine<>(stateBuilder);
+        sm2.start();
+        sm2.postWithPayload("Payed", "order-2");
+        Assertions.assertEquals(List.of("inline order-2", "outbox order-2"), processed);
+    }
+
+    @Test
+    public void retry() {
+        AtomicInteger attempts = new AtomicInteger();
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize("Created")
+                .action("pay", "Created", "Payed")
+                .state("Payed")
+                .inOutbox(payload -> {
+                    attempts.incrementAndGet();
+                    throw new RuntimeException("force exception");
+                });
+        DefaultOutboxStateProvider<String, String> provider = new DefaultOutboxStateProvider<>();
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder, provider);
+        OutboxDispatcher<String, String> dispatcher = new OutboxDispatcher<>(sm);
+        dispatcher.setMaxAttempts(3);
+        dispatcher.setBackoff(0, 0);
+        List<StateException> givenUp = new ArrayList<>();
+        dispatcher.setExceptionHandler(givenUp::add);
+
+        sm.start("order-1");
+        sm.post("order-1", "Payed");
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch();
+        }
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals(1, givenUp.size());
+        Assertions.assertEquals(0, provider.getOutboxSize());
+    }
+
+    @Test
+    public void reachedOnly() {
+        List<String> processed = new ArrayList<>();
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize("Created")
+                .action("pay", "Created", "Payed")
+                .state("Created")
+                .outOutbox(payload -> processed.add("outbox out"))
+                .state("Payed")
+                .in(payload -> {
+                    throw new RuntimeException("force exception");
+                })
+                .inOutbox(payload -> processed.add("outbox in"));
+        DefaultOutboxStateProvider<String, String> provider = new DefaultOutboxStateProvider<>();
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder, provider);
+        OutboxDispatcher<String, String> dispatcher = new OutboxDispatcher<>(sm);
+
+        // in silent mode the state is written, without the outbox process after the failed one
+        sm.start("order-1");
+        sm.post("order-1", "Payed");
+        Assertions.assertEquals("Payed", sm.getCurrentState("order-1"));
+        Assertions.assertEquals(1, provider.getOutboxSize());
+        dispatcher.dispatch();
+        Assertions.assertEquals(List.of("outbox out"), processed);
+    }
+
+    @Test
+    public void inGroup() {
+        List<String> processed = new ArrayList<>();
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize("Created")
+                .action("pay", "Created", "Payed")
+                .state("Payed")
+                .inParallel(payload -> processed.add("inline"), new OutboxProcess<>(payload -> processed.add("outbox")));
+        DefaultOutboxStateProvider<String, String> provider = new DefaultOutboxStateProvider<>();
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder, provider);
+        OutboxDispatcher<String, String> dispatcher = new OutboxDispatcher<>(sm);
+
+        sm.start("order-1");
+        sm.post("order-1", "Payed");
+        Assertions.assertEquals(List.of("inline"), processed);
+        Assertions.assertEquals(1, provider.getOutboxSize());
+        Assertions.assertEquals(1, dispatcher.dispatch());
+        Assertions.assertEquals(List.of("inline", "outbox"), processed);
+    }
+
+    @Test
+    public void updateDefinition() {
+        List<String> processed = new ArrayList<>();
+        StateBuilder<String, String> v1 = new StateBuilder<>();
+        v1.initialize("Created")
+                .action("pay", "Created", "Payed")
+                .state("Payed")
+                .inOutbox(payload -> processed.add("v1"));
+        DefaultOutboxStateProvider<String, String> provider = new DefaultOutboxStateProvider<>();
+        StateMachine<String, String> sm = new StateMachine<>(v1, provider);
+        OutboxDispatcher<String, String> dispatcher = new OutboxDispatcher<>(sm);
+        sm.start("order-1");
+        sm.post("order-1", "Payed");
+
+        // the item is delivered by the process of the definition it's created under
+        StateBuilder<String, String> v2 = new StateBuilder<>();
+        v2.initialize("Created")
+                .action("pay", "Created", "Paid")
+                .state("Paid")
+                .inOutbox(payload -> processed.add("v2"));
+        sm.updateDefinition(v2, state -> "Payed".equals(state) ? "Paid" : state);
+        Assertions.assertEquals(1, dispatcher.dispatch());
+        Assertions.assertEquals(List.of("v1"), processed);
+
+        // a deserialized item is resolved by the current definition with the state mapped
+        processed.clear();
+        sm.executeOutboxItem(new OutboxItem<>("order-1", "Payed", Mapping.StateDirection.IN, 0, null));
+        Assertions.assertEquals(List.of("v2"), processed);
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class ProcessTimeoutTest extends BaseStateTest {
+
+    private final List<String> processes = new CopyOnWriteArrayList<>();
+
+    private final List<Throwable> exceptions = new CopyOnWriteArrayList<>();
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private StateMachine<String, String> createStateMachine(Process<String> slowProcess, CircuitBreaker circuitBreaker) {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.action("reset", PAYED, CREATED)
+                .state(PAYED).in(slowProcess, Duration.ofMillis(50), circuitBreaker)
+                .in(payload -> processes.add("in payed"));
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        sm.setExceptionHandler(e -> exceptions.add(e.getCause()));
+        return sm;
+    }
+
+    @Test
+    public void timeout() {
+        StateMachine<String, String> sm = createStateMachine(payload -> sleep(1000), null);
+        sm.start("order-1");
+        long begin = System.nanoTime();
+        sm.post("order-1", PAYED);
+        Assertions.assertTrue(System.nanoTime() - begin < 500_000_000L);
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        // the processes after the timed out one are not executed like other failures
+        Assertions.assertTrue(processes.isEmpty());
+        Assertions.assertInstanceOf(TimeoutException.class, exceptions.get(0));
+
+        sm.setSilent(false);
+        sm.post("order-1", CREATED);
+        Assertions.assertThrows(StateException.class, () -> sm.post("order-1", PAYED));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-1"));
+    }
+
+    @Test
+    public void interrupted() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        StateMachine<String, String> sm = createStateMachine(payload -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, null);
+        sm.start("order-1");
+        sm.post("order-1", PAYED);
+        // the timed out process is cancelled instead of left running
+        Assertions.assertTrue(interrupted.await(500, TimeUnit.MILLISECONDS));
+        Assertions.assertThrows(StateException.class, () -> sm.setProcessExecutor(ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void asyncTimeout() {
+        CompletableFuture<Void> never = new CompletableFuture<>();
+        StateMachine<String, String> sm = createStateMachine((AsyncProcess<String>) payload -> never, null);
+        sm.start("order-1");
+        sm.postAsync("order-1", PAYED, null).toCompletableFuture().join();
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertInstanceOf(TimeoutException.class, exceptions.get(0));
+        // the future of the process is not completed by the timeout
+        Assertions.assertFalse(never.isDone());
+    }
+
+    @Test
+    public void transitionTimeout() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.state(CREATED).out(payload -> sleep(30))
+                .state(PAYED).in(payload -> sleep(30))
+                .in(payload -> processes.add("in payed"));
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        sm.setExceptionHandler(e -> exceptions.add(e.getCause()));
+        sm.setTransitionTimeout(Duration.ofMillis(45));
+        sm.start("order-1");
+        sm.post("order-1", PAYED);
+        Assertions.assertInstanceOf(TimeoutException.class, exceptions.get(0));
+        Assertions.assertTrue(processes.isEmpty());
+    }
+
+    @Test
+    public void circuitBreaker() {
+        AtomicBoolean isFailing = new AtomicBoolean(true);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("payment", 0.5, 4, Duration.ofMillis(100));
+        StateMachine<String, String> sm = createStateMachine(payload -> {
+            if (isFailing.get()) throw new RuntimeException("force exception");
+        }, circuitBreaker);
+        Assertions.assertEquals(List.of(circuitBreaker), sm.getCircuitBreakers());
+        sm.start("order-1");
+        for (int i = 0; i < 4; i++) {
+            sm.post("order-1", PAYED);
+            sm.post("order-1", CREATED);
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assertions.assertEquals(4, circuitBreaker.getFailureCount());
+        sm.post("order-1", PAYED);
+        Assertions.assertEquals(1, circuitBreaker.getRejectedCount());
+        Assertions.assertEquals(5, exceptions.size());
+        Assertions.assertTrue(exceptions.get(4).getMessage().contains("payment"));
+
+        // trial after the open duration
+        sleep(150);
+        isFailing.set(false);
+        sm.post("order-1", CREATED);
+        sm.post("order-1", PAYED);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assertions.assertEquals(1, circuitBreaker.getSuccessCount());
+        Assertions.assertEquals(List.of("in payed"), processes);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class StateGraphTest extends BaseStateTest {
+
+    static final String RETURNED = "Returned";
+
+    private StateBuilder<String, String> createBuilder() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.action("return", SHIPPED, RETURNED)
+                .action("reship", RETURNED, SHIPPED)
+                .action("receive", SHIPPED, RECEIVED);
+        return stateBuilder;
+    }
+
+    @Test
+    public void reachability() {
+        StateGraph<String> graph = createBuilder().buildGraph();
+        graph.validate();
+        Assertions.assertTrue(graph.canReach(null, RECEIVED));
+        Assertions.assertTrue(graph.canReach(CREATED, RECEIVED));
+        Assertions.assertTrue(graph.canReach(RETURNED, RECEIVED));
+        Assertions.assertTrue(graph.canReach(PAYED, PAYED));
+        Assertions.assertFalse(graph.canReach(CANCELED, RECEIVED));
+        Assertions.assertFalse(graph.canReach(SHIPPED, PAYED));
+        Assertions.assertFalse(graph.canReach(CREATED, "Unknown"));
+
+        Assertions.assertEquals(List.of(PAYED, SHIPPED, RECEIVED), graph.shortestPath(CREATED, RECEIVED));
+        Assertions.assertEquals(List.of(CREATED), graph.shortestPath(null, CREATED));
+        Assertions.assertTrue(graph.shortestPath(CANCELED, RECEIVED).isEmpty());
+        Assertions.assertEquals(SHIPPED, graph.nextHop(RETURNED, RECEIVED));
+        Assertions.assertNull(graph.nextHop(RECEIVED, RECEIVED));
+
+        List<Set<String>> components = graph.getStronglyConnectedComponents();
+        Assertions.assertEquals(5, components.size());
+        Assertions.assertTrue(components.contains(Set.of(SHIPPED, RETURNED)));
+        // reverse topological order
+        Assertions.assertEquals(Set.of(CREATED), components.get(components.size() - 1));
+    }
+
+    @Test
+    public void validate() {
+        StateBuilder<String, String> stateBuilder = createBuilder();
+        stateBuilder.action("refund", "Refunding", "Refunded");
+        StateGraph<String> graph = stateBuilder.buildGraph();
+        Assertions.assertEquals(Set.of("Refunding", "Refunded"), graph.getUnreachableStates());
+        Assertions.assertThrows(StateException.class, graph::validate);
+
+        StateBuilder<String, String> withProcess = createBuilder();
+        withProcess.state("Recieved").in(payload -> {
+        });
+        StateException e = Assertions.assertThrows(StateException.class, () -> withProcess.buildGraph().validate());
+        Assertions.assertTrue(e.getMessage().contains("Recieved"));
+
+        Assertions.assertThrows(StateException.class, () -> new StateBuilder<String, String>()
+                .action("pay", CREATED, PAYED).buildGraph().validate());
+    }
+
+    @Test
+    public void hierarchy() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED)
+                .action("cancel", "Active", CANCELED)
+                .state(CREATED).parent("Active")
+                .state(PAYED).parent("Active")
+                .state("Active").in(payload -> {
+                });
+        StateGraph<String> graph = stateBuilder.buildGraph();
+        graph.validate();
+        Assertions.assertTrue(graph.canReach(PAYED, CANCELED));
+    }
+
+    @Test
+    public void canReachById() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        sm.start("order-1");
+        sm.post("order-1", CANCELED);
+        sm.start("order-2");
+        Assertions.assertFalse(sm.canReach("order-1", RECEIVED));
+        Assertions.assertTrue(sm.canReach("order-2", RECEIVED));
+        // an id not started yet is before the initial state
+        Assertions.assertTrue(sm.canReach("order-3", RECEIVED));
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class StateMachineRegistryTest extends BaseStateTest {
+
+    private static final Process<String> shipping = payload -> System.out.println("shipping " + payload);
+
+    private StateBuilder<String, String> createBuilder(boolean withShipping) {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, stateBuilder.triggerBuilder().c('p').s("pay").build());
+        if (withShipping) {
+            stateBuilder.action("ship", PAYED, SHIPPED, stateBuilder.triggerBuilder().c('s').build())
+                    .state(SHIPPED).in(shipping);
+        }
+        return stateBuilder;
+    }
+
+    @Test
+    public void register() {
+        StateMachineRegistry<String, String> registry = new StateMachineRegistry<>(new DefaultStateProvider<>());
+        for (int i = 0; i < 100; i++) {
+            registry.register("tenant-" + i, createBuilder(i % 2 == 0));
+        }
+        Assertions.assertEquals(100, registry.getTenantCount());
+        Assertions.assertEquals(2, registry.getDefinitionCount());
+        Assertions.assertSame(registry.get("tenant-0").getStateTransition().actionMap, registry.get("tenant-2").getStateTransition().actionMap);
+        // the state graph is built once on first use and shared by the tenants of the definition.
+        Assertions.assertSame(registry.get("tenant-0").getStateTransition().getStateGraph(), registry.get("tenant-2").getStateTransition().getStateGraph());
+        Assertions.assertNotSame(registry.get("tenant-0").getStateTransition().actionMap, registry.get("tenant-1").getStateTransition().actionMap);
+        // settings of a tenant don't affect others sharing the definition
+        registry.get("tenant-0").setSilent(false);
+        Assertions.assertTrue(registry.get("tenant-2").getStateTransition().isSilent());
+
+        // a different process makes a different definition
+        StateBuilder<String, String> other = createBuilder(false);
+        other.state(PAYED).in(payload -> {
+        });
+        registry.register("tenant-other", other);
+        Assertions.assertEquals(3, registry.getDefinitionCount());
+        registry.unregister("tenant-other");
+        Assertions.assertEquals(2, registry.getDefinitionCount());
+    }
+
+    @Test
+    public void isolateTenants() {
+        DefaultStateProvider<String> sharedStateProvider = new DefaultStateProvider<>();
+        StateMachineRegistry<String, String> registry = new StateMachineRegistry<>(sharedStateProvider);
+        StateMachine<String, String> sm0 = registry.register("t", createBuilder(true));
+        StateMachine<String, String> sm1 = registry.register("t:", createBuilder(true));
+        sm0.start(":order");
+        sm1.start("order");
+        sm0.accept(":order", 'p');
+        Assertions.assertEquals(PAYED, sm0.getCurrentState(":order"));
+        Assertions.assertEquals(CREATED, sm1.getCurrentState("order"));
+        sm1.accept("order", "pay");
+        sm1.accept("order", 's');
+        Assertions.assertEquals(SHIPPED, sm1.getCurrentState("order"));
+        Assertions.assertEquals(PAYED, sm0.getCurrentState(":order"));
+
+        // states are kept if the definition of tenant is replaced
+        StateMachine<String, String> replaced = registry.register("t", createBuilder(false));
+        Assertions.assertNotSame(sm0, replaced);
+        Assertions.assertEquals(PAYED, replaced.getCurrentState(":order"));
+        Assertions.assertSame(replaced, registry.register("t", createBuilder(false)));
+    }
+
+    @Test
+    public void indexedTenants() {
+        StateMachineRegistry<String, String> registry = new StateMachineRegistry<>(new DefaultStateProvider<>());
+        StateMachine<String, String> sm0 = registry.register("t", createBuilder(true));
+        StateMachine<String, String> sm1 = registry.register("t2", createBuilder(true));
+        for (int i = 0; i < 5; i++) {
+            sm0.start("order-" + i);
+            sm1.start("order-" + i);
+        }
+        sm0.start("");
+        sm1.accept("order-0", 'p');
+        Assertions.assertEquals(6, sm0.transitionAll(CREATED, PAYED, null, Parallelism.of(2).batchSize(2)));
+        IndexedStateProvider<String> provider0 = (IndexedStateProvider<String>) sm0.getStateProvider();
+        IndexedStateProvider<String> provider1 = (IndexedStateProvider<String>) sm1.getStateProvider();
+        Assertions.assertEquals(Map.of(PAYED, 6), provider0.countByState());
+        Assertions.assertEquals(Map.of(CREATED, 4, PAYED, 1), provider1.countByState());
+        Assertions.assertEquals(List.of("", "order-0", "order-1"), provider0.idsInState(PAYED, null, 3));
+        Assertions.assertEquals(List.of("order-2"), provider0.idsInState(PAYED, "order-1", 1));
+    }
+}
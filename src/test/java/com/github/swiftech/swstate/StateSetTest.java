@@ -0,0 +1,82 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class StateSetTest {
+
+    enum Order {
+        CREATED, PAYED, SHIPPED, CANCELED
+    }
+
+    private StateBuilder<Order, String> createBuilder() {
+        StateBuilder<Order, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(Order.CREATED)
+                .action("pay", Order.CREATED, Order.PAYED)
+                .action("ship", Order.PAYED, Order.SHIPPED)
+                .action("cancel", Order.CREATED, Order.CANCELED)
+                .action("refund", Order.PAYED, Order.CANCELED);
+        return stateBuilder;
+    }
+
+    @Test
+    public void stateSet() {
+        StateBuilder<Order, String> stateBuilder = createBuilder();
+        StateSet<Order> cancelable = stateBuilder.stateSet(Order.CREATED, Order.PAYED);
+        Assertions.assertTrue(cancelable.contains(Order.CREATED));
+        Assertions.assertFalse(cancelable.contains(Order.SHIPPED));
+        Assertions.assertFalse(cancelable.contains(null));
+        Assertions.assertEquals(Set.of(Order.CREATED, Order.PAYED), cancelable.toSet());
+
+        StateMachine<Order, String> sm = new StateMachine<>(stateBuilder);
+        Assertions.assertFalse(sm.isStateOfIdIn("order-1", cancelable));
+        sm.start("order-1");
+        Assertions.assertTrue(sm.isStateOfIdIn("order-1", cancelable));
+        sm.post("order-1", Order.PAYED);
+        sm.post("order-1", Order.SHIPPED);
+        Assertions.assertFalse(sm.isStateOfIdIn("order-1", cancelable));
+    }
+
+    @Test
+    public void stateMap() {
+        StateBuilder<Order, String> stateBuilder = createBuilder();
+        StateMap<Order> next = stateBuilder.stateMap(Map.of(Order.CREATED, Order.PAYED, Order.PAYED, Order.SHIPPED));
+        Assertions.assertEquals(Order.SHIPPED, next.get(Order.PAYED));
+        Assertions.assertNull(next.get(Order.SHIPPED));
+        Assertions.assertEquals(2, next.toMap().size());
+
+        StateMachine<Order, String> sm = new StateMachine<>(stateBuilder);
+        sm.start("order-1");
+        sm.postOnState("order-1", next);
+        Assertions.assertEquals(Order.PAYED, sm.getCurrentState("order-1"));
+        sm.postWithPayloadOnState("order-1", next, "payload");
+        Assertions.assertEquals(Order.SHIPPED, sm.getCurrentState("order-1"));
+        // no state matches
+        sm.postOnState("order-1", next);
+        Assertions.assertEquals(Order.SHIPPED, sm.getCurrentState("order-1"));
+    }
+
+    @Test
+    public void nonEnumStates() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize("Created")
+                .action("pay", "Created", "Payed");
+        // a state not defined yet is also indexed
+        StateSet<String> states = stateBuilder.stateSet("Payed", "Archived");
+        Assertions.assertTrue(states.contains("Archived"));
+        Assertions.assertFalse(states.contains("Created"));
+        Assertions.assertFalse(states.contains("Unknown"));
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        sm.start("order-1");
+        sm.postOnState("order-1", stateBuilder.stateMap(Map.of("Created", "Payed")));
+        Assertions.assertTrue(sm.isStateOfIdIn("order-1", states));
+        Assertions.assertTrue(sm.isStateOfIdIn("order-1", "Created", "Payed"));
+    }
+}
@@ -4,6 +4,13 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author swiftech
  */
@@ -124,4 +131,48 @@ class StateTransitionTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParallelProcesses() {
+        List<String> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        Process<String> waitEachOther = payload -> {
+            latch.countDown();
+            try {
+                // never finish if the processes in group are executed one by one.
+                if (!latch.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("not concurrent");
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            processed.add("parallel");
+        };
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize("A")
+                .action("a-b", "A", "B")
+                .state("B")
+                .in(payload -> processed.add("first"))
+                .inParallel(waitEachOther, waitEachOther)
+                .in(payload -> processed.add("last"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        StateTransition<String, String> transition = new StateTransition<>(stateBuilder);
+        transition.setSilent(false);
+        transition.setProcessExecutor(executor);
+        transition.post("A", "B", "hello");
+        Assertions.assertEquals(List.of("first", "parallel", "parallel", "last"), processed);
+
+        // failure in group stops the following processes
+        processed.clear();
+        stateBuilder.state("A")
+                .inParallel(payload -> processed.add("parallel"), payload -> {
+                    throw new RuntimeException("force exception");
+                })
+                .in(payload -> processed.add("last"));
+        stateBuilder.action("b-a", "B", "A");
+        StateTransition<String, String> transition2 = new StateTransition<>(stateBuilder);
+        transition2.setSilent(false);
+        transition2.setProcessExecutor(executor);
+        Assertions.assertThrows(StateException.class, () -> transition2.post("B", "A", "hello"));
+        Assertions.assertFalse(processed.contains("last"));
+        executor.shutdown();
+    }
+
+}
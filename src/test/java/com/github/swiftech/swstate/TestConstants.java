@@ -18,6 +18,13 @@ public class TestConstants {
 
     public static final String[] stateSequence = new String[]{s2, s1, s2, s3, s1, s4};
 
+    // states of order processing
+    public static final String CREATED = "Created";
+    public static final String PAYED = "Payed";
+    public static final String SHIPPED = "Shipped";
+    public static final String RECEIVED = "Received";
+    public static final String CANCELED = "Canceled";
+
     /**
      * Choose a state randomly in all pre-defined stats.
      *
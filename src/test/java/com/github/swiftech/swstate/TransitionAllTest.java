@@ -0,0 +1,94 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class TransitionAllTest extends BaseStateTest {
+
+    private final AtomicInteger evaluated = new AtomicInteger();
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    private StateMachine<String, String> createStateMachine() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED)
+                .action("cancel", CREATED, CANCELED, payload -> evaluated.incrementAndGet() % 10 != 0)
+                .state(CANCELED).in(payload -> processed.incrementAndGet());
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        for (int i = 0; i < 100; i++) {
+            sm.start("order-" + i);
+        }
+        return sm;
+    }
+
+    @Test
+    public void transitionAll() {
+        StateMachine<String, String> sm = createStateMachine();
+        sm.post("order-0", PAYED);
+        AtomicLong lastDone = new AtomicLong();
+        long count = sm.transitionAll(CREATED, CANCELED, null,
+                Parallelism.of(4).batchSize(7).onProgress((done, total) -> {
+                    Assertions.assertEquals(99, total);
+                    lastDone.accumulateAndGet(done, Math::max);
+                }));
+        Assertions.assertEquals(99, lastDone.get());
+        Assertions.assertEquals(99, evaluated.get());
+        // every 10th id is rejected by the guard and stays in its state.
+        Assertions.assertEquals(90, count);
+        Assertions.assertEquals(90, processed.get());
+        IndexedStateProvider<String> stateProvider = (IndexedStateProvider<String>) sm.getStateProvider();
+        Assertions.assertEquals(Map.of(PAYED, 1, CREATED, 9, CANCELED, 90), stateProvider.countByState());
+    }
+
+    @Test
+    public void changedConcurrently() {
+        DefaultStateProvider<String> stateProvider = new DefaultStateProvider<>() {
+            @Override
+            public List<String> compareAndSetStates(Map<String, String> expectedStates, String state) {
+                // another transition writes while the batch is transited.
+                if (expectedStates.containsKey("order-3")) {
+                    this.setState("order-3", PAYED);
+                }
+                return super.compareAndSetStates(expectedStates, state);
+            }
+        };
+        StateMachine<String, String> sm = new StateMachine<>(createOrderStateBuilder(), stateProvider);
+        for (int i = 0; i < 10; i++) {
+            sm.start("order-" + i);
+        }
+        long count = sm.transitionAll(CREATED, CANCELED, null, Parallelism.of(2).batchSize(3));
+        Assertions.assertEquals(9, count);
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-3"));
+        Assertions.assertEquals(Map.of(PAYED, 1, CANCELED, 9), stateProvider.countByState());
+    }
+
+    @Test
+    public void throttle() {
+        StateMachine<String, String> sm = createStateMachine();
+        long begin = System.nanoTime();
+        long count = sm.transitionAll(CREATED, PAYED, null, Parallelism.of(4).batchSize(10).throttle(500));
+        long elapsed = (System.nanoTime() - begin) / 1000000;
+        Assertions.assertEquals(100, count);
+        // 100 transitions at 500/s take 200ms at least, except the first batch.
+        Assertions.assertTrue(elapsed >= 150, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void noRoute() {
+        StateMachine<String, String> sm = createStateMachine();
+        Assertions.assertThrows(StateException.class,
+                () -> sm.transitionAll(PAYED, CANCELED, null, Parallelism.of(2)));
+    }
+}
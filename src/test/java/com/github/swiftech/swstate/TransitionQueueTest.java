@@ -0,0 +1,157 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class TransitionQueueTest extends BaseStateTest {
+
+    private final List<String> processes = new CopyOnWriteArrayList<>();
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    private StateMachine<String, String> createStateMachine() {
+        StateBuilder<String, String> stateBuilder = createOrderStateBuilder();
+        stateBuilder.action("refresh", PAYED, PAYED)
+                .state(PAYED).in(payload -> processes.add("in payed " + payload));
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        sm.start("order-1");
+        sm.start("order-2");
+        return sm;
+    }
+
+    private void runAll() {
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+    }
+
+    @Test
+    public void ordering() {
+        StateMachine<String, String> sm = createStateMachine();
+        TransitionQueue<String, String> queue = new TransitionQueue<>(sm, scheduled::add);
+        CompletableFuture<TransitionResult> r1 = queue.accept("order-1", 'p', "1").toCompletableFuture();
+        CompletableFuture<TransitionResult> r2 = queue.post("order-1", PAYED, "2").toCompletableFuture();
+        CompletableFuture<TransitionResult> r3 = queue.post("order-1", SHIPPED, "3").toCompletableFuture();
+        CompletableFuture<TransitionResult> r4 = queue.post("order-2", SHIPPED, "4").toCompletableFuture();
+        // one scheduled drain per id
+        Assertions.assertEquals(2, scheduled.size());
+        Assertions.assertEquals(2, queue.getPendingIdCount());
+        runAll();
+        Assertions.assertEquals(TransitionResult.OK, r1.join());
+        Assertions.assertEquals(TransitionResult.OK, r2.join());
+        Assertions.assertEquals(TransitionResult.OK, r3.join());
+        Assertions.assertEquals(TransitionResult.NO_ROUTE, r4.join());
+        Assertions.assertEquals(List.of("in payed 1", "in payed 2"), processes);
+        Assertions.assertEquals(SHIPPED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-2"));
+        Assertions.assertEquals(0, queue.getPendingIdCount());
+        Assertions.assertEquals(4, queue.getExecutedCount());
+    }
+
+    @Test
+    public void coalescing() {
+        StateMachine<String, String> sm = createStateMachine();
+        TransitionQueue<String, String> queue = new TransitionQueue<>(sm, scheduled::add);
+        queue.setCoalescing(true);
+        CompletableFuture<TransitionResult> r1 = queue.post("order-1", PAYED, "1").toCompletableFuture();
+        CompletableFuture<TransitionResult> r2 = queue.post("order-1", PAYED, "2").toCompletableFuture();
+        queue.post("order-1", PAYED, "3");
+        queue.accept("order-1", 'x', null);
+        queue.post("order-1", PAYED, "4");
+        runAll();
+        Assertions.assertSame(r1.join(), r2.join());
+        // merged into one transition with the last payload, and the post after the input is not merged
+        Assertions.assertEquals(List.of("in payed 3", "in payed 4"), processes);
+        Assertions.assertEquals(5, queue.getSubmittedCount());
+        Assertions.assertEquals(2, queue.getCoalescedCount());
+        Assertions.assertEquals(3, queue.getExecutedCount());
+
+        processes.clear();
+        AtomicInteger combined = new AtomicInteger();
+        queue.setCombiner((p1, p2) -> {
+            combined.incrementAndGet();
+            return p1 + "+" + p2;
+        });
+        queue.post("order-2", PAYED, "1");
+        queue.post("order-2", PAYED, "2");
+        queue.post("order-2", PAYED, "3");
+        // combined when executed instead of submitted, out of the lock of the queue
+        Assertions.assertEquals(0, combined.get());
+        runAll();
+        Assertions.assertEquals(2, combined.get());
+        Assertions.assertEquals(List.of("in payed 1+2+3"), processes);
+    }
+
+    @Test
+    public void priority() throws InterruptedException {
+        StateMachine<String, String> sm = createStateMachine();
+        sm.start("order-3");
+        TransitionQueue<String, String> queue = new TransitionQueue<>(sm, scheduled::add);
+        queue.post("order-1", PAYED, "low", TransitionQueue.Priority.LOW);
+        queue.post("order-2", PAYED, "normal");
+        queue.post("order-3", PAYED, "high", TransitionQueue.Priority.HIGH);
+        Assertions.assertEquals(1, queue.getLaneDepth(TransitionQueue.Priority.LOW));
+        Assertions.assertEquals(1, queue.getLaneDepth(TransitionQueue.Priority.HIGH));
+        runAll();
+        Assertions.assertEquals(List.of("in payed high", "in payed normal", "in payed low"), processes);
+        Assertions.assertEquals(1, queue.getExecutedCount(TransitionQueue.Priority.LOW));
+        Assertions.assertEquals(0, queue.getLaneDepth(TransitionQueue.Priority.LOW));
+        Assertions.assertFalse(queue.getAverageWait(TransitionQueue.Priority.LOW).isZero());
+
+        // an urgent transition of an id waiting in a lower lane takes the id to the higher lane, after its earlier transitions
+        processes.clear();
+        queue.post("order-1", PAYED, "low", TransitionQueue.Priority.LOW);
+        queue.post("order-2", PAYED, "normal");
+        queue.post("order-1", SHIPPED, "high", TransitionQueue.Priority.HIGH);
+        scheduled.remove(0).run();
+        scheduled.remove(0).run();
+        Assertions.assertEquals(List.of("in payed low"), processes);
+        Assertions.assertEquals(SHIPPED, sm.getCurrentState("order-1"));
+        runAll();
+        Assertions.assertEquals(List.of("in payed low", "in payed normal"), processes);
+
+        // starvation protection
+        processes.clear();
+        queue.setMaxWait(Duration.ofMillis(20));
+        queue.post("order-3", PAYED, "low", TransitionQueue.Priority.LOW);
+        Thread.sleep(30);
+        queue.post("order-2", PAYED, "high", TransitionQueue.Priority.HIGH);
+        runAll();
+        Assertions.assertEquals(List.of("in payed low", "in payed high"), processes);
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        StateMachine<String, String> sm = createStateMachine();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TransitionQueue<String, String> queue = new TransitionQueue<>(sm, executor);
+        queue.setCoalescing(true);
+        List<CompletableFuture<TransitionResult>> results = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String id = "order-" + (i % 2 + 1);
+            results.add(queue.post(id, PAYED, String.valueOf(i)).toCompletableFuture());
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(queue.getSubmittedCount(), queue.getExecutedCount() + queue.getCoalescedCount());
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-2"));
+    }
+}
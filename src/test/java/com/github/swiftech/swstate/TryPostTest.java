@@ -0,0 +1,73 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class TryPostTest extends BaseStateTest {
+
+    private StateMachine<String, Integer> createStateMachine() {
+        StateBuilder<String, Integer> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, amount -> amount != null && amount > 0,
+                        stateBuilder.triggerBuilder().c('p').build())
+                .action("ship", PAYED, SHIPPED, stateBuilder.triggerBuilder().c('s').build())
+                .action("cancel", CREATED, CANCELED)
+                .state(SHIPPED).in(payload -> {
+                    throw new RuntimeException("force exception");
+                });
+        return new StateMachine<>(stateBuilder);
+    }
+
+    @Test
+    public void tryPost() {
+        StateMachine<String, Integer> sm = createStateMachine();
+        Assertions.assertEquals(TransitionResult.NOT_STARTED, sm.tryPost("order-1", PAYED));
+        sm.start("order-1");
+        Assertions.assertEquals(TransitionResult.NO_ROUTE, sm.tryPost("order-1", SHIPPED));
+        Assertions.assertEquals(TransitionResult.REJECTED, sm.tryPostWithPayload("order-1", PAYED, 0));
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals(TransitionResult.OK, sm.tryPostWithPayload("order-1", PAYED, 100));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        // duplicated request
+        Assertions.assertEquals(TransitionResult.NO_ROUTE, sm.tryPostWithPayload("order-1", PAYED, 100));
+        // the state is written in silent mode
+        Assertions.assertEquals(TransitionResult.PROCESS_FAILED, sm.tryPost("order-1", SHIPPED));
+        Assertions.assertEquals(SHIPPED, sm.getCurrentState("order-1"));
+
+        sm.setSilent(false);
+        sm.start("order-2");
+        sm.postWithPayload("order-2", PAYED, 100);
+        Assertions.assertEquals(TransitionResult.PROCESS_FAILED, sm.tryPost("order-2", SHIPPED));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-2"));
+    }
+
+    @Test
+    public void tryAccept() {
+        StateMachine<String, Integer> sm = createStateMachine();
+        Assertions.assertEquals(TransitionResult.NOT_STARTED, sm.tryAccept("order-1", 'p'));
+        sm.start("order-1");
+        Assertions.assertEquals(TransitionResult.NO_TRIGGER, sm.tryAccept("order-1", 's'));
+        Assertions.assertEquals(TransitionResult.NO_TRIGGER, sm.tryAcceptWithPayload("order-1", 'p', 0));
+        Assertions.assertEquals(TransitionResult.OK, sm.tryAcceptWithPayload("order-1", 'p', 100));
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+    }
+
+    @Test
+    public void stacklessExceptions() {
+        StateMachine<String, Integer> sm = createStateMachine();
+        sm.start("order-1");
+        StateException e = Assertions.assertThrows(StateException.class, () -> sm.post("order-1", SHIPPED));
+        Assertions.assertTrue(e.getStackTrace().length > 0);
+        sm.setStacklessExceptions(true);
+        e = Assertions.assertThrows(StateException.class, () -> sm.post("order-1", SHIPPED));
+        Assertions.assertEquals(0, e.getStackTrace().length);
+        e = Assertions.assertThrows(StateException.class, () -> sm.post("order-2", SHIPPED));
+        Assertions.assertEquals(0, e.getStackTrace().length);
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.swiftech.swstate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.swiftech.swstate.TestConstants.*;
+
+/**
+ * @author swiftech
+ * @since 2.3
+ */
+public class UpdateDefinitionTest extends BaseStateTest {
+
+    static final String PAID = "Paid";
+
+    @Test
+    public void updateDefinition() {
+        StateBuilder<String, String> v1 = new StateBuilder<>();
+        v1.initialize(CREATED).action("pay", CREATED, PAYED, v1.triggerBuilder().c('p').build());
+        StateMachine<String, String> sm = new StateMachine<>(v1);
+        sm.setSilent(false);
+        sm.start("order-1");
+        sm.start("order-2");
+        sm.accept("order-1", 'p');
+        Assertions.assertThrows(RuntimeException.class, () -> sm.post("order-1", SHIPPED));
+
+        // rename PAYED to PAID and add shipping
+        StringBuilder processes = new StringBuilder();
+        StateBuilder<String, String> v2 = new StateBuilder<>();
+        v2.initialize(CREATED).action("pay", CREATED, PAID, v2.triggerBuilder().c('p').build())
+                .action("ship", PAID, SHIPPED, v2.triggerBuilder().c('s').build())
+                .state(SHIPPED).in(payload -> {
+                    processes.append("shipped");
+                    throw new IllegalStateException("failed");
+                });
+        sm.updateDefinition(v2, state -> PAYED.equals(state) ? PAID : state);
+
+        Assertions.assertEquals(PAID, sm.getCurrentState("order-1"));
+        Assertions.assertTrue(sm.isState("order-1", PAID));
+        Assertions.assertTrue(sm.isStateOfIdIn("order-1", PAID, SHIPPED));
+        // settings are kept, the failed process throws exception.
+        Assertions.assertThrows(StateException.class, () -> sm.accept("order-1", 's'));
+        Assertions.assertEquals("shipped", processes.toString());
+
+        sm.accept("order-2", 'p');
+        Assertions.assertEquals(PAID, sm.getCurrentState("order-2"));
+    }
+
+    @Test
+    public void builderChangedAfterConstruction() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED).action("pay", CREATED, PAYED, stateBuilder.triggerBuilder().c('p').build());
+        StateMachine<String, String> sm = new StateMachine<>(stateBuilder);
+        StringBuilder processes = new StringBuilder();
+        stateBuilder.state(PAYED).in(payload -> processes.append("payed"));
+        sm.start("order-1");
+        sm.accept("order-1", 'p');
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        Assertions.assertEquals("", processes.toString());
+    }
+
+    @Test
+    public void replaceMapping() {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder().compileToBytecode(), new DefaultStateProvider<>());
+        sm.start("order-1");
+        sm.accept("order-1", 'p');
+
+        StateBuilder<String, String> v2 = new StateBuilder<>();
+        v2.initialize(CREATED).action("pay", CREATED, PAID, v2.triggerBuilder().c('p').build());
+        sm.updateDefinition(v2, state -> PAYED.equals(state) ? PAID : state);
+        Assertions.assertEquals(PAID, sm.getCurrentState("order-1"));
+        // the implementation of definition is kept
+        Assertions.assertInstanceOf(BytecodeStateTransition.class, sm.getStateTransition());
+
+        // the state renamed back is not mapped by the previous mapping
+        sm.updateDefinition(createBuilder());
+        Assertions.assertEquals(PAYED, sm.getCurrentState("order-1"));
+        sm.accept("order-1", 'c');
+        Assertions.assertEquals(CREATED, sm.getCurrentState("order-1"));
+    }
+
+    @Test
+    public void updateDefinitionConcurrently() throws Exception {
+        StateMachine<String, String> sm = new StateMachine<>(createBuilder());
+        for (int i = 0; i < 100; i++) {
+            sm.start(String.valueOf(i));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<?>[] futures = new Future[4];
+        for (int t = 0; t < futures.length; t++) {
+            int offset = t;
+            futures[t] = executor.submit(() -> {
+                while (running.get()) {
+                    for (int i = offset; i < 100; i += 4) {
+                        String id = String.valueOf(i);
+                        sm.accept(id, CREATED.equals(sm.getCurrentState(id)) ? 'p' : 'c');
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < 100; i++) {
+            sm.updateDefinition(createBuilder());
+        }
+        running.set(false);
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(sm.isStateOfIdIn(String.valueOf(i), CREATED, PAYED));
+        }
+    }
+
+    private StateBuilder<String, String> createBuilder() {
+        StateBuilder<String, String> stateBuilder = new StateBuilder<>();
+        stateBuilder.initialize(CREATED)
+                .action("pay", CREATED, PAYED, stateBuilder.triggerBuilder().c('p').build())
+                .action("cancel", PAYED, CREATED, stateBuilder.triggerBuilder().c('c').build());
+        return stateBuilder;
+    }
+}
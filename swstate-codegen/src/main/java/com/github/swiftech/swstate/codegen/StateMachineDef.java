@@ -0,0 +1,34 @@
+package com.github.swiftech.swstate.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Defines a state machine on an enum of states, the transitions are defined by {@link Transition} on the same enum.
+ * A definition class named {@code <Enum>Definition} is generated at compile time, which provides a
+ * {@code StateMachine} with switch-based transition checks and trigger matching.
+ *
+ * @author swiftech
+ * @see StateMachineDefProcessor
+ * @since 2.3
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface StateMachineDef {
+
+    /**
+     * Name of the enum constant as the initial state.
+     *
+     * @return
+     */
+    String initial();
+
+    /**
+     * Simple name of the generated class, default is the enum name followed by {@code Definition}.
+     *
+     * @return
+     */
+    String name() default "";
+}
@@ -0,0 +1,308 @@
+package com.github.swiftech.swstate.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a definition class for each enum annotated by {@link StateMachineDef}, which contains:
+ * <pre>
+ *     - a {@code Handler} interface with IN/OUT methods for each state, which are the processes of the states.
+ *     - {@code hasRoute()} and {@code resolveTrigger()} implemented by switch statements.
+ *     - a {@code Transition} class which extends {@code StateTransition} with the switch-based methods,
+ *       and calls the IN/OUT methods of the handler by switch statements directly.
+ *     - {@code builder()} and {@code newStateMachine()} to construct the {@code StateMachine}.
+ * </pre>
+ * Guards, custom triggers and hierarchical states are not supported, use {@code StateBuilder} for them.
+ *
+ * @author swiftech
+ * @since 2.3
+ */
+@SupportedAnnotationTypes({"com.github.swiftech.swstate.codegen.StateMachineDef",
+        "com.github.swiftech.swstate.codegen.Transition",
+        "com.github.swiftech.swstate.codegen.Transitions"})
+public class StateMachineDefProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(StateMachineDef.class)) {
+            if (element.getKind() != ElementKind.ENUM) {
+                error(element, "@StateMachineDef is only allowed on enum");
+                continue;
+            }
+            TypeElement enumElement = (TypeElement) element;
+            try {
+                this.generate(enumElement);
+            } catch (IllegalArgumentException e) {
+                error(element, e.getMessage());
+            } catch (IOException e) {
+                error(element, "Failed to generate definition: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement enumElement) throws IOException {
+        StateMachineDef def = enumElement.getAnnotation(StateMachineDef.class);
+        Transition[] transitions = enumElement.getAnnotationsByType(Transition.class);
+        List<String> states = new ArrayList<>();
+        for (Element enclosed : enumElement.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.ENUM_CONSTANT) {
+                states.add(enclosed.getSimpleName().toString());
+            }
+        }
+        checkState(states, def.initial());
+        // state from -> transitions from it in the order of definition
+        Map<String, List<Transition>> transitionMap = new LinkedHashMap<>();
+        for (Transition transition : transitions) {
+            checkState(states, transition.from());
+            checkState(states, transition.to());
+            transitionMap.computeIfAbsent(transition.from(), k -> new ArrayList<>()).add(transition);
+        }
+
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(enumElement);
+        String packageName = packageElement.getQualifiedName().toString();
+        String enumName = enumElement.getQualifiedName().toString();
+        String className = def.name().isEmpty() ? enumElement.getSimpleName() + "Definition" : def.name();
+        String e = enumElement.getSimpleName().toString();
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("""
+                import com.github.swiftech.swstate.StateBuilder;
+                import com.github.swiftech.swstate.StateMachine;
+                import com.github.swiftech.swstate.StateProvider;
+                import com.github.swiftech.swstate.StateTransition;
+
+                import java.io.Serializable;
+
+                """);
+        if (!enumName.equals(packageName.isEmpty() ? e : packageName + "." + e)) {
+            src.append("import ").append(enumName).append(";\n\n");
+        }
+        src.append("/**\n * Generated by swstate-codegen from {@link ").append(e).append("}, do not edit.\n */\n");
+        src.append("public final class ").append(className).append(" {\n\n");
+        src.append("    private ").append(className).append("() {\n    }\n\n");
+
+        // handler of processes
+        src.append("    /**\n     * Processes executed when entering or exiting each state.\n     */\n");
+        src.append("    public interface Handler<P extends Serializable> {\n");
+        for (String state : states) {
+            String method = toPascalCase(state);
+            src.append("\n        default void in").append(method).append("(P payload) {\n        }\n");
+            src.append("\n        default void out").append(method).append("(P payload) {\n        }\n");
+        }
+        src.append("    }\n\n");
+
+        // routes
+        src.append("    public static boolean hasRoute(").append(e).append(" from, ").append(e).append(" to) {\n");
+        src.append("        if (to == null) {\n            return false;\n        }\n");
+        // the initial action is from null
+        src.append("        if (from == null) {\n            return to == ").append(e).append(".").append(def.initial()).append(";\n        }\n");
+        src.append("        switch (from) {\n");
+        for (Map.Entry<String, List<Transition>> entry : transitionMap.entrySet()) {
+            src.append("            case ").append(entry.getKey()).append(":\n");
+            src.append("                switch (to) {\n");
+            Set<String> targets = new LinkedHashSet<>();
+            entry.getValue().forEach(t -> targets.add(t.to()));
+            for (String to : targets) {
+                src.append("                    case ").append(to).append(":\n");
+            }
+            src.append("                        return true;\n");
+            src.append("                    default:\n                        return false;\n                }\n");
+        }
+        src.append("            default:\n                return false;\n        }\n    }\n\n");
+
+        // triggers
+        src.append("    public static ").append(e).append(" resolveTrigger(").append(e).append(" from, Object data) {\n");
+        src.append("        if (from == null || data == null) {\n            return null;\n        }\n");
+        src.append("        switch (from) {\n");
+        for (Map.Entry<String, List<Transition>> entry : transitionMap.entrySet()) {
+            StringBuilder cases = new StringBuilder();
+            appendSwitch(cases, "Character", e, entry.getValue(), t -> {
+                List<String> values = new ArrayList<>();
+                for (char c : t.chars()) values.add(toCharLiteral(c));
+                return values;
+            });
+            appendSwitch(cases, "Integer", e, entry.getValue(), t -> {
+                List<String> values = new ArrayList<>();
+                for (int i : t.ints()) values.add(String.valueOf(i));
+                return values;
+            });
+            appendSwitch(cases, "String", e, entry.getValue(), t -> {
+                List<String> values = new ArrayList<>();
+                for (String s : t.strings()) values.add(toLiteral(s));
+                return values;
+            });
+            appendLongs(cases, e, entry.getValue());
+            if (cases.length() > 0) {
+                src.append("            case ").append(entry.getKey()).append(":\n");
+                src.append(cases);
+                src.append("                return null;\n");
+            }
+        }
+        src.append("            default:\n                return null;\n        }\n    }\n\n");
+
+        // builder
+        src.append("    public static <P extends Serializable> StateBuilder<").append(e).append(", P> builder(Handler<P> handler) {\n");
+        src.append("        StateBuilder<").append(e).append(", P> stateBuilder = new StateBuilder<>();\n");
+        src.append("        stateBuilder.initialize(").append(e).append(".").append(def.initial()).append(");\n");
+        for (Transition t : transitions) {
+            src.append("        stateBuilder.action(").append(toLiteral(t.name())).append(", ")
+                    .append(e).append(".").append(t.from()).append(", ").append(e).append(".").append(t.to())
+                    .append(", stateBuilder.triggerBuilder()");
+            for (char c : t.chars()) src.append(".c(").append(toCharLiteral(c)).append(")");
+            for (int i : t.ints()) src.append(".i(").append(i).append(")");
+            for (long l : t.longs()) src.append(".l(").append(l).append("L)");
+            for (String s : t.strings()) src.append(".s(").append(toLiteral(s)).append(")");
+            src.append(".build());\n");
+        }
+        for (String state : states) {
+            String method = toPascalCase(state);
+            src.append("        stateBuilder.state(").append(e).append(".").append(state).append(")")
+                    .append(".in(handler::in").append(method).append(").out(handler::out").append(method).append(");\n");
+        }
+        src.append("        return stateBuilder;\n    }\n\n");
+
+        // state machine
+        src.append("    public static <P extends Serializable> StateMachine<").append(e).append(", P> newStateMachine(")
+                .append("Handler<P> handler, StateProvider<").append(e).append("> stateProvider) {\n");
+        src.append("        return new StateMachine<>(new Transition<>(handler), stateProvider);\n    }\n\n");
+
+        // transition
+        src.append("    /**\n     * State transition with switch-based transition checks, trigger matching and process dispatching.\n     */\n");
+        src.append("    public static class Transition<P extends Serializable> extends StateTransition<").append(e).append(", P> {\n\n");
+        src.append("        private final Handler<P> handler;\n\n");
+        src.append("        public Transition(Handler<P> handler) {\n");
+        // the processes registered by the builder are only executed with the transition timeout.
+        src.append("            super(builder(handler), true);\n");
+        src.append("            this.handler = handler;\n        }\n\n");
+        for (String direction : List.of("in", "out")) {
+            String suffix = direction.equals("in") ? "In" : "Out";
+            src.append("        @Override\n        protected void dispatch").append(suffix).append("(").append(e).append(" state, P payload) {\n");
+            src.append("            switch (state) {\n");
+            for (String state : states) {
+                src.append("                case ").append(state).append(":\n");
+                src.append("                    handler.").append(direction).append(toPascalCase(state)).append("(payload);\n");
+                src.append("                    break;\n");
+            }
+            src.append("                default:\n                    break;\n            }\n        }\n\n");
+        }
+        src.append("        @Override\n        public boolean hasRoute(").append(e).append(" from, ").append(e).append(" to) {\n");
+        src.append("            return ").append(className).append(".hasRoute(from, to);\n        }\n\n");
+        src.append("        @Override\n        public ").append(e).append(" resolveTrigger(").append(e).append(" from, Object data, P payload) {\n");
+        src.append("            return ").append(className).append(".resolveTrigger(from, data);\n        }\n    }\n");
+        src.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, enumElement).openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    /**
+     * Append switch statement for triggers of one type, the first transition wins for duplicated values.
+     */
+    private void appendSwitch(StringBuilder cases, String type, String e, List<Transition> transitions,
+                              java.util.function.Function<Transition, List<String>> values) {
+        Map<String, String> valueToState = new LinkedHashMap<>();
+        for (Transition t : transitions) {
+            for (String value : values.apply(t)) {
+                valueToState.putIfAbsent(value, t.to());
+            }
+        }
+        if (valueToState.isEmpty()) {
+            return;
+        }
+        cases.append("                if (data instanceof ").append(type).append(") {\n");
+        cases.append("                    switch ((").append(type).append(") data) {\n");
+        valueToState.forEach((value, to) -> cases.append("                        case ").append(value)
+                .append(":\n                            return ").append(e).append(".").append(to).append(";\n"));
+        cases.append("                        default:\n                            break;\n");
+        cases.append("                    }\n                }\n");
+    }
+
+    /**
+     * Append comparisons for long triggers, which can't be switched.
+     */
+    private void appendLongs(StringBuilder cases, String e, List<Transition> transitions) {
+        Map<Long, String> valueToState = new LinkedHashMap<>();
+        for (Transition t : transitions) {
+            for (long l : t.longs()) {
+                valueToState.putIfAbsent(l, t.to());
+            }
+        }
+        if (valueToState.isEmpty()) {
+            return;
+        }
+        cases.append("                if (data instanceof Long) {\n");
+        cases.append("                    long value = (Long) data;\n");
+        valueToState.forEach((value, to) -> cases.append("                    if (value == ").append(value)
+                .append("L) return ").append(e).append(".").append(to).append(";\n"));
+        cases.append("                }\n");
+    }
+
+    private void checkState(List<String> states, String state) {
+        if (!states.contains(state)) {
+            throw new IllegalArgumentException("'%s' is not a constant of the enum".formatted(state));
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * ORDER_CREATED -> OrderCreated, Created -> Created
+     */
+    static String toPascalCase(String name) {
+        StringBuilder buf = new StringBuilder();
+        for (String part : name.split("_")) {
+            if (part.isEmpty()) continue;
+            buf.append(Character.toUpperCase(part.charAt(0)));
+            String rest = part.substring(1);
+            buf.append(rest.equals(rest.toUpperCase()) ? rest.toLowerCase() : rest);
+        }
+        return buf.toString();
+    }
+
+    static String toCharLiteral(char c) {
+        return "(char) " + (int) c;
+    }
+
+    static String toLiteral(String s) {
+        StringBuilder buf = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                buf.append('\\').append(c);
+            }
+            else if (c < 0x20 || c == 0x7f) {
+                // unicode escapes are translated before parsing, so line terminators must be escaped in octal
+                buf.append("\\%03o".formatted((int) c));
+            }
+            else if (c > 0x7f) {
+                buf.append("\\u%04x".formatted((int) c));
+            }
+            else {
+                buf.append(c);
+            }
+        }
+        return buf.append('"').toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.swiftech.swstate.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Defines an action from one state to another with triggers of primitive values, the states are names of enum constants.
+ *
+ * @author swiftech
+ * @see StateMachineDef
+ * @since 2.3
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+@Repeatable(Transitions.class)
+public @interface Transition {
+
+    /**
+     * Name of the action.
+     *
+     * @return
+     */
+    String name();
+
+    /**
+     * The state before the action happens.
+     *
+     * @return
+     */
+    String from();
+
+    /**
+     * The state after the action happens.
+     *
+     * @return
+     */
+    String to();
+
+    char[] chars() default {};
+
+    int[] ints() default {};
+
+    long[] longs() default {};
+
+    String[] strings() default {};
+}
@@ -0,0 +1,19 @@
+package com.github.swiftech.swstate.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Container of repeated {@link Transition}.
+ *
+ * @author swiftech
+ * @since 2.3
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Transitions {
+
+    Transition[] value();
+}
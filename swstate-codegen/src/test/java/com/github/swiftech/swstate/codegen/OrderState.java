@@ -0,0 +1,17 @@
+package com.github.swiftech.swstate.codegen;
+
+/**
+ * @author swiftech
+ */
+@StateMachineDef(initial = "CREATED")
+@Transition(name = "pay", from = "CREATED", to = "PAID", chars = 'p', strings = "pay")
+@Transition(name = "cancel", from = "CREATED", to = "CANCELLED", chars = 'c', ints = 0)
+@Transition(name = "ship", from = "PAID", to = "SHIPPED", longs = 1L, strings = {"ship", "\"quoted\"\n"})
+@Transition(name = "refund", from = "PAID", to = "CANCELLED", chars = '\'', ints = 0)
+@Transition(name = "ship again", from = "PAID", to = "CANCELLED", strings = "ship")
+public enum OrderState {
+    CREATED,
+    PAID,
+    SHIPPED,
+    CANCELLED
+}
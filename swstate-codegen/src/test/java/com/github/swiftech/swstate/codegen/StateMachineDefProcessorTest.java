@@ -0,0 +1,67 @@
+package com.github.swiftech.swstate.codegen;
+
+import com.github.swiftech.swstate.DefaultStateProvider;
+import com.github.swiftech.swstate.StateMachine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author swiftech
+ */
+public class StateMachineDefProcessorTest {
+
+    @Test
+    public void testRoutesAndTriggers() {
+        Assertions.assertTrue(OrderStateDefinition.hasRoute(OrderState.CREATED, OrderState.PAID));
+        Assertions.assertTrue(OrderStateDefinition.hasRoute(OrderState.PAID, OrderState.CANCELLED));
+        Assertions.assertFalse(OrderStateDefinition.hasRoute(OrderState.SHIPPED, OrderState.PAID));
+        Assertions.assertTrue(OrderStateDefinition.hasRoute(null, OrderState.CREATED));
+        Assertions.assertFalse(OrderStateDefinition.hasRoute(null, OrderState.PAID));
+
+        Assertions.assertEquals(OrderState.PAID, OrderStateDefinition.resolveTrigger(OrderState.CREATED, 'p'));
+        Assertions.assertEquals(OrderState.PAID, OrderStateDefinition.resolveTrigger(OrderState.CREATED, "pay"));
+        Assertions.assertEquals(OrderState.CANCELLED, OrderStateDefinition.resolveTrigger(OrderState.CREATED, 0));
+        Assertions.assertEquals(OrderState.SHIPPED, OrderStateDefinition.resolveTrigger(OrderState.PAID, 1L));
+        Assertions.assertEquals(OrderState.SHIPPED, OrderStateDefinition.resolveTrigger(OrderState.PAID, "\"quoted\"\n"));
+        Assertions.assertEquals(OrderState.CANCELLED, OrderStateDefinition.resolveTrigger(OrderState.PAID, '\''));
+        // the first defined transition wins
+        Assertions.assertEquals(OrderState.SHIPPED, OrderStateDefinition.resolveTrigger(OrderState.PAID, "ship"));
+        Assertions.assertNull(OrderStateDefinition.resolveTrigger(OrderState.PAID, 'p'));
+        Assertions.assertNull(OrderStateDefinition.resolveTrigger(OrderState.SHIPPED, "ship"));
+    }
+
+    @Test
+    public void testStateMachine() {
+        List<String> processes = new ArrayList<>();
+        OrderStateDefinition.Handler<String> handler = new OrderStateDefinition.Handler<>() {
+            @Override
+            public void inPaid(String payload) {
+                processes.add("in paid " + payload);
+            }
+
+            @Override
+            public void outPaid(String payload) {
+                processes.add("out paid " + payload);
+            }
+        };
+        StateMachine<OrderState, String> stateMachine = OrderStateDefinition.newStateMachine(handler, new DefaultStateProvider<>());
+        stateMachine.start("order1");
+        stateMachine.acceptWithPayload("order1", 'p', "a");
+        Assertions.assertTrue(stateMachine.isState("order1", OrderState.PAID));
+        stateMachine.acceptWithPayload("order1", "ship", "b");
+        Assertions.assertTrue(stateMachine.isState("order1", OrderState.SHIPPED));
+        Assertions.assertEquals(List.of("in paid a", "out paid b"), processes);
+
+        // the processes registered by the builder are executed with the transition timeout
+        processes.clear();
+        OrderStateDefinition.Transition<String> transition = new OrderStateDefinition.Transition<>(handler);
+        transition.setTransitionTimeout(Duration.ofSeconds(1));
+        transition.post(OrderState.CREATED, OrderState.PAID, "c");
+        transition.post(OrderState.PAID, OrderState.SHIPPED, "d");
+        Assertions.assertEquals(List.of("in paid c", "out paid d"), processes);
+    }
+}